@@ -0,0 +1,229 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+import salsa.corpora.elements.Frame;
+
+/**
+ * An {@link AnalysisPipeline} runs the analysis of a corpus in three stages which work at the same time: a
+ * reader thread assembles the sentences for the modules, a pool of worker threads finds their frames, and
+ * the calling thread writes the frames in the order of the sentences.
+ *
+ * The stages are connected by bounded queues. At most <code>capacity</code> sentences are between the reader
+ * and the writer at any time, so if the workers or the writer fall behind, the reader waits (backpressure).
+ * The memory needed for assembled sentences and their frames does not grow with the size of the corpus as
+ * long as {@link Stages#write(int, List)} drops what was assembled for a sentence once it has been written.
+ * The depth of each queue is recorded in the {@link PipelineMetrics} whenever a sentence is added to it: a
+ * queue that is mostly full shows that the stage after it is the bottleneck, a queue that is mostly empty
+ * that the stage before it is.
+ *
+ * @param <T> The type of what the reader passes to the workers with each sentence.
+ */
+public class AnalysisPipeline<T> {
+
+  /**
+   * The work of the three stages.
+   *
+   * @param <T> The type of what the reader passes to the workers with each sentence.
+   */
+  public interface Stages<T> {
+
+    /**
+     * Prepares a sentence for the modules. Called by the reader thread for one sentence after the other.
+     *
+     * @param index The index of the sentence.
+     * @return What is passed to {@link #analyse(int, Object)} for the sentence.
+     */
+    T assemble(int index);
+
+    /**
+     * Finds the frames of a sentence. Called by the worker threads for several sentences at the same time.
+     *
+     * @param index The index of the sentence.
+     * @param assembled What {@link #assemble(int)} returned for the sentence.
+     * @return The frames of the sentence.
+     */
+    List<Frame> analyse(int index, T assembled);
+
+    /**
+     * Writes the frames of a sentence. Called by the thread which runs the pipeline, in the order of the
+     * sentences. Afterwards, nothing that was assembled for the sentence is needed any more.
+     *
+     * @param index The index of the sentence.
+     * @param frames The frames of the sentence.
+     * @throws IOException If the frames cannot be written.
+     */
+    void write(int index, List<Frame> frames) throws IOException;
+  }
+
+  /**
+   * An assembled sentence on its way to a worker.
+   */
+  private static final class Item<T> {
+
+    private final int index;
+    private final T assembled;
+
+    Item(int index, T assembled) {
+      this.index = index;
+      this.assembled = assembled;
+    }
+  }
+
+  private final int threads;
+  private final int capacity;
+  private final PipelineMetrics metrics;
+
+  /**
+   * @param threads The number of worker threads.
+   * @param capacity The maximum number of sentences between the reader and the writer.
+   * @param metrics The metrics in which the depth of the queues is recorded.
+   */
+  public AnalysisPipeline(int threads, int capacity, PipelineMetrics metrics) {
+    if (threads < 1 || capacity < 1) {
+      throw new IllegalArgumentException("The pipeline needs at least one worker and a capacity of at least one");
+    }
+    this.threads = threads;
+    this.capacity = capacity;
+    this.metrics = metrics;
+  }
+
+  /**
+   * @return The number of worker threads.
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Runs the pipeline over all sentences and returns when the last one has been written. If a stage fails,
+   * the other stages are stopped and the failure is thrown.
+   *
+   * @param size The number of sentences.
+   * @param stages The work of the stages.
+   * @throws IOException If writing fails.
+   */
+  public void run(final int size, final Stages<T> stages) throws IOException {
+    // a permit is taken for each sentence that is assembled and returned when it has been written
+    final Semaphore window = new Semaphore(capacity);
+    // the queue can take the end markers of all workers in addition to the sentences of the window
+    final BlockingQueue<Item<T>> assembled = new ArrayBlockingQueue<Item<T>>(capacity + threads);
+    // the frames by index modulo capacity, which is unique within the window. Guarded by itself.
+    final Object[] analysed = new Object[capacity];
+    final Item<T> end = new Item<T>(-1, null);
+    final Throwable[] failure = new Throwable[1];
+
+    final PipelineMetrics.Queue assembledQueue = metrics.queue("Assembled sentences", capacity);
+    final PipelineMetrics.Queue analysedQueue = metrics.queue("Analysed sentences", capacity);
+    final int[] waiting = new int[1];
+
+    final List<Thread> started = new ArrayList<Thread>();
+    final Thread reader = new Thread(new Runnable() {
+      public void run() {
+        try {
+          for (int i = 0; i < size; i++) {
+            final long start = System.nanoTime();
+            window.acquire();
+            assembledQueue.producerWait(System.nanoTime() - start);
+            final Item<T> item = new Item<T>(i, stages.assemble(i));
+            assembled.put(item);
+            assembledQueue.depth(assembled.size());
+          }
+        } catch (InterruptedException e) {
+          return;
+        } catch (Throwable e) {
+          fail(failure, analysed, e);
+        }
+        for (int i = 0; i < threads; i++) {
+          if (!assembled.offer(end)) {
+            break;
+          }
+        }
+      }
+    }, "Pipeline reader");
+    started.add(reader);
+
+    for (int t = 0; t < threads; t++) {
+      started.add(new Thread(new Runnable() {
+        public void run() {
+          try {
+            while (true) {
+              final long start = System.nanoTime();
+              final Item<T> item = assembled.take();
+              assembledQueue.consumerWait(System.nanoTime() - start);
+              if (item == end) {
+                return;
+              }
+              final List<Frame> frames = stages.analyse(item.index, item.assembled);
+              synchronized (analysed) {
+                analysed[item.index % capacity] = frames;
+                analysedQueue.depth(++waiting[0]);
+                analysed.notifyAll();
+              }
+            }
+          } catch (InterruptedException e) {
+            return;
+          } catch (Throwable e) {
+            fail(failure, analysed, e);
+          }
+        }
+      }, "Pipeline worker " + (t + 1)));
+    }
+
+    for (Thread thread : started) {
+      thread.setDaemon(true);
+      thread.start();
+    }
+    try {
+      for (int i = 0; i < size; i++) {
+        final List<Frame> frames;
+        synchronized (analysed) {
+          final long start = System.nanoTime();
+          while (analysed[i % capacity] == null && failure[0] == null) {
+            analysed.wait();
+          }
+          analysedQueue.consumerWait(System.nanoTime() - start);
+          if (failure[0] != null) {
+            break;
+          }
+          @SuppressWarnings("unchecked")
+          final List<Frame> result = (List<Frame>) analysed[i % capacity];
+          frames = result;
+          analysed[i % capacity] = null;
+          waiting[0]--;
+        }
+        stages.write(i, frames);
+        window.release();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing the results");
+    } finally {
+      for (Thread thread : started) {
+        thread.interrupt();
+      }
+    }
+
+    synchronized (analysed) {
+      if (failure[0] instanceof RuntimeException) {
+        throw (RuntimeException) failure[0];
+      } else if (failure[0] instanceof Error) {
+        throw (Error) failure[0];
+      } else if (failure[0] != null) {
+        throw new IOException("The analysis failed", failure[0]);
+      }
+    }
+  }
+
+  private static void fail(Throwable[] failure, Object[] analysed, Throwable e) {
+    synchronized (analysed) {
+      if (failure[0] == null) {
+        failure[0] = e;
+      }
+      analysed.notifyAll();
+    }
+  }
+}
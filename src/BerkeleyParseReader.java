@@ -0,0 +1,232 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import salsa.corpora.elements.Body;
+import salsa.corpora.elements.Corpus;
+import salsa.corpora.elements.Edge;
+import salsa.corpora.elements.Graph;
+import salsa.corpora.elements.Head;
+import salsa.corpora.elements.Matches;
+import salsa.corpora.elements.Nonterminal;
+import salsa.corpora.elements.Nonterminals;
+import salsa.corpora.elements.Semantics;
+import salsa.corpora.elements.Sentence;
+import salsa.corpora.elements.Terminal;
+import salsa.corpora.elements.Terminals;
+import salsa.corpora.noelement.Id;
+import salsa.util.CompressedStreams;
+
+/**
+ * A {@link BerkeleyParseReader} reads the output of the Berkeley parser, i.e. one bracketed (Penn Treebank
+ * style) parse per line like in data/hgcSample.berkeleyParse.rand500.txt, into a {@link Corpus} of Tiger
+ * graphs. This replaces the conversion of the parses to a Tiger XML file for {@link SalsaAPIConnective}.
+ *
+ * The ids follow our Tiger XML files: the sentence on line N gets the id s&lt;N&gt;, its terminals are
+ * numbered s&lt;N&gt;_1, s&lt;N&gt;_2, ... from left to right and its nonterminals s&lt;N&gt;_500,
+ * s&lt;N&gt;_501, ... in preorder, so the root of the graph is s&lt;N&gt;_500. The nonterminals are listed
+ * bottom-up and the edges of a nonterminal from left to right. All edges are labelled "--", and the
+ * terminals have an empty lemma.
+ */
+public class BerkeleyParseReader {
+
+  // nonterminal ids start at this number (or above the number of terminals), like in our Tiger files
+  private static final int NONTERMINAL_BASE = 500;
+
+  private static final String EDGE_LABEL = "--";
+
+  /**
+   * A constituent of the parse which is turned into a {@link Nonterminal} once all terminals are numbered.
+   */
+  private static final class Constituent {
+
+    private final String cat;
+    private final int index;
+    // the Terminals and Constituents below this one, from left to right
+    private final List<Object> children = new ArrayList<Object>();
+    private Nonterminal nonterminal;
+
+    Constituent(String cat, int index) {
+      this.cat = cat;
+      this.index = index;
+    }
+  }
+
+  /**
+   * Reads a file with one bracketed parse per line, which may be gzip compressed.
+   *
+   * @param file The path of the file.
+   * @return The {@link Corpus} with one {@link Sentence} per line of the file.
+   * @throws IOException If the file cannot be read or a line is not a bracketed parse.
+   */
+  public static Corpus readCorpus(String file) throws IOException {
+    final Corpus corpus = new Corpus(new java.io.File(file).getName(), "");
+    corpus.setHead(new Head());
+    final Body body = new Body();
+    corpus.setBody(body);
+
+    final BufferedReader reader = CompressedStreams.openReader(file);
+    try {
+      int lineNumber = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+          line = line.substring(1);
+        }
+        try {
+          body.addSentence(parseSentence(line, "s" + lineNumber));
+        } catch (IllegalArgumentException e) {
+          throw new IOException("Could not read line " + lineNumber + " of " + file + ": " + e.getMessage(), e);
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    return corpus;
+  }
+
+  /**
+   * Builds the Tiger graph of a bracketed parse in one pass over its characters. The unlabelled outermost
+   * bracket which the Berkeley parser puts around every parse is dropped unless it has several children.
+   * A line without any constituent, e.g. the "(())" of a failed parse, gives a graph that only consists of
+   * an empty root with the category "VROOT", so that the sentences stay aligned with the other input files.
+   *
+   * @param line The bracketed parse.
+   * @param sentenceId The id of the sentence.
+   * @return The {@link Sentence} with the graph of the parse and an empty semantic annotation.
+   * @throws IllegalArgumentException If the brackets of the line are not balanced.
+   */
+  public static Sentence parseSentence(String line, String sentenceId) {
+    final List<Terminal> terminals = new ArrayList<Terminal>();
+    final List<Constituent> constituents = new ArrayList<Constituent>();
+    final List<Object> roots = new ArrayList<Object>();
+    final Deque<Constituent> open = new ArrayDeque<Constituent>();
+    // the outermost brackets without a label which are not part of the tree
+    int openWrappers = 0;
+    int nextIndex = 0;
+
+    final int length = line.length();
+    int i = 0;
+    while (i < length) {
+      final char c = line.charAt(i);
+
+      if (c == '(') {
+        final int labelStart = ++i;
+        while (i < length && !isDelimiter(line.charAt(i))) {
+          i++;
+        }
+        final String label = line.substring(labelStart, i);
+        while (i < length && Character.isWhitespace(line.charAt(i))) {
+          i++;
+        }
+        if (i == length) {
+          throw new IllegalArgumentException("unbalanced brackets");
+        }
+
+        if (label.isEmpty() && open.isEmpty()) {
+          openWrappers++;
+        } else if (isWord(line, i)) {
+          // a part of speech and a word
+          final int wordStart = i++;
+          while (i < length && line.charAt(i) != ')') {
+            i++;
+          }
+          if (i == length) {
+            throw new IllegalArgumentException("unbalanced brackets");
+          }
+          i++;
+          final Terminal terminal = new Terminal(new Id(sentenceId + "_" + (terminals.size() + 1), true), "", null,
+                  label, line.substring(wordStart, i - 1).trim());
+          terminals.add(terminal);
+          addChild(open, roots, terminal);
+        } else {
+          open.push(new Constituent(label, nextIndex++));
+        }
+
+      } else if (c == ')') {
+        i++;
+        if (!open.isEmpty()) {
+          final Constituent constituent = open.pop();
+          constituents.add(constituent);
+          addChild(open, roots, constituent);
+        } else if (openWrappers > 0) {
+          openWrappers--;
+        } else {
+          throw new IllegalArgumentException("unbalanced brackets");
+        }
+
+      } else {
+        i++;
+      }
+    }
+    if (!open.isEmpty() || openWrappers > 0) {
+      throw new IllegalArgumentException("unbalanced brackets");
+    }
+
+    // a terminal directly below the wrapper or several trees are put below a virtual root
+    if (roots.size() != 1 || roots.get(0) instanceof Terminal) {
+      final Constituent root = new Constituent("VROOT", nextIndex);
+      root.children.addAll(roots);
+      constituents.add(root);
+      roots.clear();
+      roots.add(root);
+    }
+
+    final int base = Math.max(NONTERMINAL_BASE, terminals.size() + 1);
+    for (Constituent constituent : constituents) {
+      constituent.nonterminal = new Nonterminal(constituent.cat,
+              new Id(sentenceId + "_" + (base + constituent.index), false));
+    }
+    final Nonterminals nonterminals = new Nonterminals();
+    for (Constituent constituent : constituents) {
+      for (Object child : constituent.children) {
+        final String childId = child instanceof Terminal ? ((Terminal) child).getId().getId()
+                : ((Constituent) child).nonterminal.getId().getId();
+        constituent.nonterminal.addEdge(new Edge(new Id(childId), EDGE_LABEL));
+      }
+      nonterminals.addNonterminal(constituent.nonterminal);
+    }
+    final Terminals terminalsElement = new Terminals();
+    for (Terminal terminal : terminals) {
+      terminalsElement.addTerminal(terminal);
+    }
+
+    final Graph graph = new Graph(new Id(((Constituent) roots.get(0)).nonterminal.getId().getId()));
+    graph.setTerminals(terminalsElement);
+    graph.setNonterminals(nonterminals);
+
+    final Sentence sentence = new Sentence(new Id(sentenceId));
+    sentence.setGraph(graph);
+    sentence.setMatches(new Matches());
+    sentence.setSem(new Semantics());
+    return sentence;
+  }
+
+  /**
+   * Decides whether the text after a label is a word or the beginning of a constituent. A bracket is a word
+   * if it is directly followed by the closing bracket of its part of speech, e.g. "(FM ()" or "($( ))".
+   */
+  private static boolean isWord(String line, int i) {
+    final char c = line.charAt(i);
+    if (c != '(' && c != ')') {
+      return true;
+    }
+    return i + 1 < line.length() && line.charAt(i + 1) == ')';
+  }
+
+  private static boolean isDelimiter(char c) {
+    return c == '(' || c == ')' || Character.isWhitespace(c);
+  }
+
+  private static void addChild(Deque<Constituent> open, List<Object> roots, Object child) {
+    if (open.isEmpty()) {
+      roots.add(child);
+    } else {
+      open.peek().children.add(child);
+    }
+  }
+}
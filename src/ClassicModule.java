@@ -152,6 +152,35 @@ public class ClassicModule implements Module {
     }
   }
 
+  /**
+   * Checks whether the lemma or the name of any word is in the lexicon. The
+   * normalization joins the lemmas of separated verb particles and their verbs,
+   * so every particle is also tried with every lemma of the sentence.
+   *
+   * @param sentence The {@link SentenceObj}.
+   * @return true if the lexicon contains a word of the sentence
+   */
+  @Override
+  public boolean isCandidate(SentenceObj sentence) {
+    final List<String> particles = new ArrayList<String>();
+    for (WordObj word : sentence.wordList) {
+      if (lex.sentimentMap.containsKey(word.getLemma()) || lex.sentimentMap.containsKey(word.getName())) {
+        return true;
+      }
+      if ("avz".equals(word.getRelation())) {
+        particles.add(word.getLemma());
+      }
+    }
+    for (String particle : particles) {
+      for (WordObj word : sentence.wordList) {
+        if (lex.sentimentMap.containsKey(particle + word.getLemma())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   /**
    * Looks at a single {@link SentenceObj} to find any sentiment expressions and
    * adds the information to the Salsa XML structure. Multiple frames per
@@ -170,8 +199,8 @@ public class ClassicModule implements Module {
   public Collection<Frame> findFrames(SentenceObj sentence) {
 
     int hitcount = 0;
-    DependencyGraph graph = sentence.graph;
-    ConstituencyTree tree = sentence.tree;
+    DependencyGraph graph = sentence.getGraph();
+    ConstituencyTree tree = sentence.getTree();
 
     final Collection<Frame> sentFrames = new ArrayList<Frame>();
     NamedEntityList namedEntityList = sentence.getNamedEntityList();
@@ -0,0 +1,229 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link CompiledLexicon} is a binary form of a sentiment lexicon text file as read by
+ * {@link SentimentLex#fileToLex(String)}. It contains every {@link SentimentUnit} of the lexicon, including
+ * the flexible MWE variants created by {@link SentimentLex#mweFlexibility(SentimentUnit)}, together with
+ * the keys of {@link SentimentLex#sentimentMap}. All strings are stored once in a string table, so
+ * identical names, parts of speech and source / target specifications are shared after loading.
+ *
+ * The artifact records a hash of the lexicon text file and whether flexible MWEs were expanded. It is only
+ * used if both match the current configuration, otherwise the text file has to be read.
+ */
+public class CompiledLexicon {
+
+  private static final int MAGIC = 0x4f52584c; // "ORXL"
+  private static final int VERSION = 1;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final int NONE = -1;
+
+  private final File file;
+
+  /**
+   * @param file The compiled lexicon file.
+   */
+  public CompiledLexicon(File file) {
+    this.file = file;
+  }
+
+  /**
+   * @return The compiled lexicon file.
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * @return true if the compiled lexicon file exists.
+   */
+  public boolean exists() {
+    return file.isFile();
+  }
+
+  /**
+   * Writes a {@link SentimentLex} that was read from a lexicon text file.
+   *
+   * @param lex The lexicon as read by {@link SentimentLex#fileToLex(String)}.
+   * @param lexiconFile The path of the lexicon text file.
+   * @throws IOException If the lexicon text file cannot be read or the artifact cannot be written.
+   */
+  public void write(SentimentLex lex, String lexiconFile) throws IOException {
+    final Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+
+    // the map keys are the names of the units, followed by a '+' for every earlier unit with the same name
+    final Map<SentimentUnit, String> keys = new IdentityHashMap<SentimentUnit, String>();
+    for (Map.Entry<String, SentimentUnit> entry : lex.sentimentMap.entrySet()) {
+      keys.put(entry.getValue(), entry.getKey());
+    }
+
+    final ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 18);
+    final DataOutputStream out = new DataOutputStream(body);
+    out.writeInt(index(strings, lex.collectSubjectiveExpressions[lex.collectSubjectiveExpressions.length - 1]));
+    out.writeInt(lex.sentimentList.size());
+    for (SentimentUnit unit : lex.sentimentList) {
+      out.writeInt(index(strings, keys.get(unit)));
+      out.writeInt(index(strings, unit.name));
+      out.writeInt(index(strings, unit.typ));
+      writeArray(out, strings, unit.collocations);
+      writeArray(out, strings, unit.source);
+      writeArray(out, strings, unit.target);
+    }
+
+    final File tmp = new File(file.getPath() + ".tmp");
+    final DataOutputStream fileOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+    try {
+      fileOut.writeInt(MAGIC);
+      fileOut.writeInt(VERSION);
+      fileOut.writeByte(lex.flexibleMWEs ? 1 : 0);
+      fileOut.write(hash(lexiconFile));
+      fileOut.writeInt(strings.size());
+      for (String s : strings.keySet()) {
+        final byte[] bytes = s.getBytes(UTF8);
+        fileOut.writeInt(bytes.length);
+        fileOut.write(bytes);
+      }
+      body.writeTo(fileOut);
+    } finally {
+      fileOut.close();
+    }
+
+    if (file.exists() && !file.delete() || !tmp.renameTo(file)) {
+      tmp.delete();
+      throw new IOException("Could not move compiled lexicon to " + file);
+    }
+  }
+
+  /**
+   * Fills an empty {@link SentimentLex} from the compiled lexicon. The lexicon is left empty if the artifact
+   * cannot be used.
+   *
+   * @param lex An empty {@link SentimentLex}.
+   * @param lexiconFile The path of the lexicon text file the artifact has to be compiled from.
+   * @throws IOException If the artifact cannot be read, has a different version or was compiled from a
+   * different lexicon or with a different setting for flexible MWEs.
+   */
+  public void read(SentimentLex lex, String lexiconFile) throws IOException {
+    final RandomAccessFile raf = new RandomAccessFile(file, "r");
+    final ByteBuffer buffer;
+    try {
+      final FileChannel channel = raf.getChannel();
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } finally {
+      raf.close();
+    }
+
+    if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+      throw new IOException(file + " is not a compiled lexicon of this version");
+    }
+    if ((buffer.get() != 0) != lex.flexibleMWEs) {
+      throw new IOException(file + " was compiled with a different setting for flexible MWEs");
+    }
+    final byte[] hash = new byte[32];
+    buffer.get(hash);
+    if (!Arrays.equals(hash, hash(lexiconFile))) {
+      throw new IOException(file + " was compiled from a different version of " + lexiconFile);
+    }
+
+    final String[] strings = new String[buffer.getInt()];
+    byte[] bytes = new byte[256];
+    for (int i = 0; i < strings.length; i++) {
+      final int length = buffer.getInt();
+      if (length > bytes.length) {
+        bytes = new byte[length];
+      }
+      buffer.get(bytes, 0, length);
+      strings[i] = new String(bytes, 0, length, UTF8);
+    }
+
+    final String lastSubjectiveExpression = string(strings, buffer.getInt());
+    final int size = buffer.getInt();
+    final List<SentimentUnit> units = new ArrayList<SentimentUnit>(size);
+    final Map<String, SentimentUnit> map = new HashMap<String, SentimentUnit>(size * 2);
+    for (int i = 0; i < size; i++) {
+      final String key = string(strings, buffer.getInt());
+      // the units are stored with their collocations already split off the name
+      final SentimentUnit unit = new SentimentUnit(string(strings, buffer.getInt()));
+      unit.typ = string(strings, buffer.getInt());
+      unit.collocations = readArray(buffer, strings);
+      unit.source = readArray(buffer, strings);
+      unit.target = readArray(buffer, strings);
+      units.add(unit);
+      if (key != null) {
+        map.put(key, unit);
+      }
+    }
+
+    lex.sentimentList.addAll(units);
+    lex.sentimentMap.putAll(map);
+    lex.collectSubjectiveExpressions[lex.collectSubjectiveExpressions.length - 1] = lastSubjectiveExpression;
+  }
+
+  private static int index(Map<String, Integer> strings, String value) {
+    if (value == null) {
+      return NONE;
+    }
+    Integer index = strings.get(value);
+    if (index == null) {
+      index = strings.size();
+      strings.put(value, index);
+    }
+    return index;
+  }
+
+  private static String string(String[] strings, int index) {
+    return index == NONE ? null : strings[index];
+  }
+
+  private static void writeArray(DataOutputStream out, Map<String, Integer> strings, String[] values)
+          throws IOException {
+    if (values == null) {
+      out.writeInt(NONE);
+      return;
+    }
+    out.writeInt(values.length);
+    for (String value : values) {
+      out.writeInt(index(strings, value));
+    }
+  }
+
+  private static String[] readArray(ByteBuffer buffer, String[] strings) {
+    final int length = buffer.getInt();
+    if (length == NONE) {
+      return null;
+    }
+    final String[] values = new String[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = string(strings, buffer.getInt());
+    }
+    return values;
+  }
+
+  private static byte[] hash(String lexiconFile) throws IOException {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(new File(lexiconFile).toPath()));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException("SHA-256 is not available: " + e.getMessage());
+    }
+  }
+}
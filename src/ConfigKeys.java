@@ -7,11 +7,24 @@ enum ConfigKeys {
 
   USE_CLASSIC_MODULE("UseClassicModule", "True"),
   LEXICON_PATH("LexiconPath", "data/opinionRoleLexicon.defaultRules.txt"),
+  COMPILED_LEXICON_PATH("CompiledLexiconPath", ""),
   TEXT_PATH("TextPath", "data/hgcSample.raw.rand500.txt"),
   OUTPUT_PATH("OutputPath", "data/results.xml"),
+  OUTPUT_FORMAT("OutputFormat", "SalsaXml"),
   DEPENDENCY_PATH("DependencyPath", "data/hgcSample.parZu.rand500.txt"),
   NORMALIZE_DEPENDENCY_GRAPHS("NormalizeDependencyGraphs", "True"),
   CONSTITUENCY_PATH("ConstituencyPath", "data/hgcSample.tiger.rand500.xml"),
+  BERKELEY_PARSE_PATH("BerkeleyParsePath", ""),
+  VALIDATE_XML("ValidateXml", "False"),
+  SNAPSHOT_DIR("SnapshotDir", ""),
+  RESULT_CACHE_PATH("ResultCachePath", ""),
+  RESULT_CACHE_MAX_MEGABYTES("ResultCacheMaxMegabytes", "256"),
+  DUPLICATE_SENTENCE_MEGABYTES("DuplicateSentenceMegabytes", "0"),
+  ANALYSIS_THREADS("AnalysisThreads", "0"),
+  ANALYSIS_QUEUE_CAPACITY("AnalysisQueueCapacity", "64"),
+  METRICS_REPORT_PATH("MetricsReportPath", ""),
+  SENTENCE_TIME_BUDGET_MILLIS("SentenceTimeBudgetMillis", "0"),
+  CANDIDATE_PREFILTER("CandidatePrefilter", "True"),
   PERSON_CHECK("PersonCheck", "False"),
   NAMED_ENTITY_PATH("NamedEntityPath", "data/hgc_tagged.txt"),
   GERMANET_DIR("GermaNetDir", "data/GermaNetV80/GN_V80_XML"),
@@ -30,7 +43,9 @@ enum ConfigKeys {
   FIND_TARGETS("FindTargets", "True"),
   SUBJECTIVE_EXPRESSION_LOCATION_PATH("SubjectiveExpressionLocationPath", "data/shata14_adjudicated(noSourceTarget).xml"),
   IGNORE_LEXICON("IgnoreLexicon", "False"),
-  USE_PRESET_SE_LOCATION_MODULE("UsePresetSELocationModule", "False");
+  USE_PRESET_SE_LOCATION_MODULE("UsePresetSELocationModule", "False"),
+  SERVER_PORT("ServerPort", "8080"),
+  SERVER_THREADS("ServerThreads", "0");
 
   private final String key;
   private final String defaultValue;
@@ -0,0 +1,284 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.xml.sax.SAXException;
+
+import de.tuebingen.uni.sfs.germanet.api.GermaNet;
+import salsa.corpora.elements.Corpus;
+import salsa.corpora.elements.Frame;
+import salsa.corpora.processing.CorpusProcessor;
+import salsa.corpora.xmlparser.CorpusParser;
+
+/**
+ * Finds the subjective expressions of one input with every combination of values of some boolean settings
+ * and scores each combination against a gold standard with {@link StepsScorer}, e.g. to tune the triggers of
+ * the grammar induced module. All other settings are taken from the configuration file.
+ *
+ * The input files are read and preprocessed once, or once per value of NormalizeDependencyGraphs if it is
+ * varied, and the lexicon is read once per value of useFlexibleMWEs. For every configuration only the
+ * {@link Module}s are created, and the configurations are run in parallel on the shared sentences.
+ *
+ * The results table has a row per configuration with the values of the varied settings, followed by the
+ * precision, recall and F1 (and for partial matches the Dice coefficient) of every category of
+ * {@link StepsScorer}, separated by tabs.
+ */
+class ConfigSweep {
+
+  /**
+   * The settings that can be varied.
+   */
+  static final List<ConfigKeys> SWEEPABLE_KEYS = Collections.unmodifiableList(Arrays.asList(
+          ConfigKeys.GIM_TRIGGER_MODAL, ConfigKeys.GIM_TRIGGER_FUTURE, ConfigKeys.GIM_TRIGGER_IMPERATIVE,
+          ConfigKeys.GIM_TRIGGER_SUBJUNCTIVE2_WUERDEB, ConfigKeys.FLEXIBLE_MWES,
+          ConfigKeys.NORMALIZE_DEPENDENCY_GRAPHS, ConfigKeys.FIND_SOURCES, ConfigKeys.FIND_TARGETS));
+
+  private final SafeProperties prop;
+  private final List<ConfigKeys> keys;
+  private final CorpusParser corpusParser;
+
+  /**
+   * The preprocessed input for one value of NormalizeDependencyGraphs.
+   */
+  private static final class Input {
+
+    final SentenceList sentences = new SentenceList();
+    Map<String, HashMap<String, String>> presetSEs;
+  }
+
+  /**
+   * @param prop The configuration with the input files and the settings that are not varied.
+   * @param keys The settings to vary, a subset of {@link #SWEEPABLE_KEYS}.
+   * @param corpusParser The parser for the Salsa / Tiger XML files.
+   */
+  ConfigSweep(SafeProperties prop, List<ConfigKeys> keys, CorpusParser corpusParser) {
+    this.prop = prop;
+    this.keys = new ArrayList<ConfigKeys>(keys);
+    this.corpusParser = corpusParser;
+  }
+
+  /**
+   * Runs and scores all configurations and writes the results table.
+   *
+   * @param goldFile The gold standard Salsa XML file for the input.
+   * @param resultFile The file to write the results table to.
+   * @param threads The number of configurations run in parallel.
+   * @throws IOException If a file cannot be read or written.
+   */
+  void run(String goldFile, String resultFile, int threads) throws IOException {
+    final PipelineMetrics metrics = new PipelineMetrics();
+
+    // every combination of values; the first setting changes slowest
+    final List<Properties> configurations = new ArrayList<Properties>();
+    for (int i = 0; i < 1 << keys.size(); i++) {
+      final Properties configuration = new Properties();
+      configuration.putAll(prop.properties);
+      for (int k = 0; k < keys.size(); k++) {
+        final boolean value = (i >> (keys.size() - 1 - k) & 1) == 0;
+        configuration.setProperty(keys.get(k).getKey(), value ? "True" : "False");
+      }
+      configurations.add(configuration);
+    }
+
+    System.out.println("Reading gold standard from " + goldFile + "...");
+    final StepsScorer scorer = new StepsScorer(parse(goldFile));
+
+    // the resources and inputs which the configurations need, each loaded once
+    final boolean personCheck = prop.getPropertyBool(ConfigKeys.PERSON_CHECK);
+    final GermaNet germaNet = personCheck
+            ? OpinionRoleExtractor.instantiateGermaNet(prop.getProperty(ConfigKeys.GERMANET_DIR)) : null;
+    final Map<Boolean, SentimentLex> lexicons = new HashMap<Boolean, SentimentLex>();
+    final Map<Boolean, Input> inputs = new HashMap<Boolean, Input>();
+    final String berkeleyParseFile = prop.getProperty(ConfigKeys.BERKELEY_PARSE_PATH);
+    final String constituencyFile = berkeleyParseFile.isEmpty()
+            ? prop.getProperty(ConfigKeys.CONSTITUENCY_PATH) : berkeleyParseFile;
+    System.out.println("Reading constituency data from " + constituencyFile + "...");
+    final Corpus corpus = berkeleyParseFile.isEmpty()
+            ? parse(constituencyFile) : BerkeleyParseReader.readCorpus(berkeleyParseFile);
+    for (Properties configuration : configurations) {
+      final SafeProperties config = new SafeProperties(configuration);
+      final boolean flexibleMWEs = config.getPropertyBool(ConfigKeys.FLEXIBLE_MWES);
+      if (!lexicons.containsKey(flexibleMWEs)) {
+        final String fileLex = config.getProperty(ConfigKeys.LEXICON_PATH);
+        System.out.println("Reading lexicon from " + fileLex + " (useFlexibleMWEs=" + flexibleMWEs + ")...");
+        final SentimentLex lex = new SentimentLex(flexibleMWEs);
+        lex.loadLex(fileLex, config.getProperty(ConfigKeys.COMPILED_LEXICON_PATH));
+        lexicons.put(flexibleMWEs, lex);
+      }
+      final boolean normalize = config.getPropertyBool(ConfigKeys.NORMALIZE_DEPENDENCY_GRAPHS);
+      if (!inputs.containsKey(normalize)) {
+        inputs.put(normalize, preprocess(config, corpus, germaNet, lexicons.get(flexibleMWEs), metrics));
+      }
+    }
+
+    final CorpusProcessor processor = new CorpusProcessor(corpus);
+    final ExecutorService workers = Executors.newFixedThreadPool(Math.max(threads, 1));
+    final List<Future<StepsScorer.Scores>> results = new ArrayList<Future<StepsScorer.Scores>>();
+    System.out.println("Running " + configurations.size() + " configurations with " + threads + " threads...");
+    try {
+      for (final Properties configuration : configurations) {
+        results.add(workers.submit(new Callable<StepsScorer.Scores>() {
+          @Override
+          public StepsScorer.Scores call() throws IOException {
+            final SafeProperties config = new SafeProperties(configuration);
+            final SentimentLex lex = lexicons.get(config.getPropertyBool(ConfigKeys.FLEXIBLE_MWES));
+            final Input input = inputs.get(config.getPropertyBool(ConfigKeys.NORMALIZE_DEPENDENCY_GRAPHS));
+            return scorer.score(describe(configuration), processor, findFrames(config, lex, germaNet, input));
+          }
+        }));
+      }
+      writeResults(configurations, results, resultFile);
+    } finally {
+      workers.shutdownNow();
+    }
+    System.out.println("Results written to " + resultFile);
+  }
+
+  private Corpus parse(String file) throws IOException {
+    try {
+      return corpusParser.parseCorpusFromFile(file);
+    } catch (SAXException e) {
+      throw new IOException("Could not parse " + file, e);
+    }
+  }
+
+  /**
+   * Reads and preprocesses the input like {@link Main}, but without skipping sentences, since the modules
+   * differ between the configurations.
+   */
+  private Input preprocess(SafeProperties config, Corpus corpus, GermaNet germaNet, SentimentLex lex,
+          PipelineMetrics metrics) throws IOException {
+    final Input input = new Input();
+    final boolean readNamedEntities = config.getPropertyBool(ConfigKeys.USE_CLASSIC_MODULE)
+            && config.getPropertyBool(ConfigKeys.PERSON_CHECK);
+    final SalsaAPIConnective salsa = Main.preprocess(config, input.sentences, corpusParser, corpus,
+            readNamedEntities, null, metrics);
+    Main.checkMorphology(config, input.sentences, germaNet, lex, metrics);
+
+    if (usesPresetSEs(config)) {
+      final SalsaAPIConnective salsa2 = new SalsaAPIConnective(
+              config.getProperty(ConfigKeys.SUBJECTIVE_EXPRESSION_LOCATION_PATH), input.sentences, corpusParser);
+      final SubtaskParser subtaskParser = new SubtaskParser(salsa2, input.sentences);
+      subtaskParser.searchSEs();
+      input.presetSEs = subtaskParser.getSEsFromInput();
+      salsa2.getTrees();
+    } else {
+      salsa.getTrees();
+    }
+    // the graphs and trees are built now, since they are shared by the threads
+    input.sentences.buildGraphs();
+    return input;
+  }
+
+  private static boolean usesPresetSEs(SafeProperties config) throws IOException {
+    return config.getPropertyBool(ConfigKeys.USE_PRESET_SE_LOCATION_MODULE)
+            || config.getPropertyBool(ConfigKeys.IGNORE_LEXICON);
+  }
+
+  /**
+   * Creates the modules of a configuration like {@link Main} and finds the frames of all sentences.
+   */
+  private static List<Frame> findFrames(SafeProperties config, SentimentLex lex, GermaNet germaNet, Input input)
+          throws IOException {
+    final OpinionRoleExtractor extractor = new OpinionRoleExtractor.Builder().config(config.properties)
+            .lexicon(lex).germaNet(germaNet).build();
+    final Set<Module> modules = new HashSet<Module>(extractor.getModules());
+    if (usesPresetSEs(config)) {
+      final boolean findSources = config.getPropertyBool(ConfigKeys.FIND_SOURCES);
+      final boolean findTargets = config.getPropertyBool(ConfigKeys.FIND_TARGETS);
+      final Module giModule = OpinionRoleExtractor.createGrammarInducedModule(config, findSources, findTargets);
+      modules.add(new PresetSELocationModule(input.presetSEs, input.sentences, lex, findSources, findTargets,
+              config.getPropertyBool(ConfigKeys.IGNORE_LEXICON), giModule));
+    }
+
+    final List<Frame> frames = new ArrayList<Frame>();
+    for (SentenceObj sentence : input.sentences.getSentenceList()) {
+      frames.addAll(extractor.getMetrics().findFrames(modules, sentence, extractor.getSentenceTimeBudget()));
+    }
+    return frames;
+  }
+
+  private String describe(Properties configuration) {
+    final StringBuilder description = new StringBuilder();
+    for (ConfigKeys key : keys) {
+      description.append(description.length() == 0 ? "" : ",").append(key.getKey()).append('=')
+              .append(configuration.getProperty(key.getKey()));
+    }
+    return description.toString();
+  }
+
+  private void writeResults(List<Properties> configurations, List<Future<StepsScorer.Scores>> results,
+          String resultFile) throws IOException {
+    final PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(resultFile), "UTF-8"));
+    try {
+      for (ConfigKeys key : keys) {
+        out.print(key.getKey() + "\t");
+      }
+      final StringBuilder header = new StringBuilder();
+      for (StepsScorer.Category category : StepsScorer.Category.values()) {
+        for (String match : new String[]{"exact", "partial"}) {
+          final String prefix = category.label + " " + match + " ";
+          header.append(prefix).append("precision\t").append(prefix).append("recall\t").append(prefix)
+                  .append("f1\t");
+          if (match.equals("partial")) {
+            header.append(prefix).append("dice\t");
+          }
+        }
+      }
+      out.println(header.substring(0, header.length() - 1));
+
+      for (int i = 0; i < configurations.size(); i++) {
+        final StepsScorer.Scores scores = get(results.get(i));
+        System.out.println("Configuration " + (i + 1) + " of " + configurations.size() + " scored: "
+                + scores.name);
+        final StringBuilder row = new StringBuilder();
+        for (ConfigKeys key : keys) {
+          row.append(configurations.get(i).getProperty(key.getKey())).append('\t');
+        }
+        for (StepsScorer.Category category : StepsScorer.Category.values()) {
+          for (boolean exact : new boolean[]{true, false}) {
+            final StepsScorer.Counts counts = scores.get(category, exact);
+            row.append(String.format(Locale.ROOT, "%.4f\t%.4f\t%.4f\t", counts.precision(), counts.recall(),
+                    counts.f1()));
+            if (!exact) {
+              row.append(String.format(Locale.ROOT, "%.4f\t", counts.dice()));
+            }
+          }
+        }
+        out.println(row.substring(0, row.length() - 1));
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  private static StepsScorer.Scores get(Future<StepsScorer.Scores> result) throws IOException {
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while running the configurations", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("A configuration failed", e.getCause());
+    }
+  }
+}
@@ -510,6 +510,21 @@ public class ConstituencyTree {
 	 * @return The node which is dominated directly by the lowest node in the tree dominating both the predicate and the argument node.
 	 */
 	public Object getArgumentNode(WordObj predicate, WordObj argument, DependencyGraph depGraph){
+
+		SentenceBudget.check();
+		SentenceEvents.ArgumentLookup event = new SentenceEvents.ArgumentLookup();
+		event.begin();
+		Object phrase = findArgumentNode(predicate, argument, depGraph);
+		event.predicate = predicate.getName();
+		event.argument = argument.getName();
+		event.endForCurrentSentence();
+		return phrase;
+	}
+
+	/**
+	 * Implements {@link #getArgumentNode(WordObj, WordObj, DependencyGraph)}.
+	 */
+	private Object findArgumentNode(WordObj predicate, WordObj argument, DependencyGraph depGraph){
 		
 		Terminal predicateNode = getTerminal(predicate);
 		Terminal argumentNode = getTerminal(argument);
@@ -557,6 +572,21 @@ public class ConstituencyTree {
 	 */
 	public Object getArgumentNodeMWE(WordObj predicate, WordObj argument, List<WordObj> allPredicateTokens){
 
+		SentenceBudget.check();
+		SentenceEvents.ArgumentLookup event = new SentenceEvents.ArgumentLookup();
+		event.begin();
+		Object phrase = findArgumentNodeMWE(predicate, argument, allPredicateTokens);
+		event.predicate = predicate.getName();
+		event.argument = argument.getName();
+		event.endForCurrentSentence();
+		return phrase;
+	}
+
+	/**
+	 * Implements {@link #getArgumentNodeMWE(WordObj, WordObj, List)}.
+	 */
+	private Object findArgumentNodeMWE(WordObj predicate, WordObj argument, List<WordObj> allPredicateTokens){
+
 		Terminal predicateNode = getTerminal(predicate);
 		Terminal argumentNode = getTerminal(argument);
 
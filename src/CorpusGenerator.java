@@ -0,0 +1,491 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import salsa.corpora.elements.Body;
+import salsa.corpora.elements.Corpus;
+import salsa.corpora.elements.Edge;
+import salsa.corpora.elements.Graph;
+import salsa.corpora.elements.Matches;
+import salsa.corpora.elements.Nonterminal;
+import salsa.corpora.elements.Nonterminals;
+import salsa.corpora.elements.Secedge;
+import salsa.corpora.elements.Semantics;
+import salsa.corpora.elements.Sentence;
+import salsa.corpora.elements.Terminal;
+import salsa.corpora.elements.Terminals;
+import salsa.corpora.noelement.Id;
+import salsa.corpora.xmlparser.CorpusParser;
+
+/**
+ * A {@link CorpusGenerator} creates input corpora of any size for load tests from an aligned sample, i.e. a
+ * raw text file, the ParZu dependency parse, the Tiger XML file and the GermaNER named entity file of the
+ * same sentences (like data/hgcSample.*.rand500.*). Every generated sentence is a copy of a sample sentence
+ * or, if clauses are concatenated, of several sample sentences joined into one. The sentences of the
+ * generated files stay aligned: the dependency parses and the Tiger graphs of concatenated sentences are
+ * joined as well, and the sentence and node ids of the Tiger XML file are renumbered. The Morphisto file
+ * is a lookup table of word forms, so it is copied unchanged. The semantic annotation of the Tiger XML
+ * file is not copied.
+ *
+ * Usage:
+ * <code>CorpusGenerator &lt;config-file&gt; &lt;sentences&gt; &lt;output-dir&gt; [shuffle] [clauses=&lt;n&gt;]
+ * [seed=&lt;n&gt;]</code>
+ *
+ * The sample files are taken from the TextPath, DependencyPath, ConstituencyPath, NamedEntityPath and
+ * MorphologyPath of the configuration file. The output directory receives the generated files and a copy
+ * of the configuration file whose paths point to them.
+ */
+public class CorpusGenerator {
+
+  // nonterminal ids start above this number (or above the number of terminals), like in our Tiger files
+  private static final int NONTERMINAL_BASE = 500;
+
+  private static final ConfigKeys[] INPUT_KEYS = {ConfigKeys.TEXT_PATH, ConfigKeys.DEPENDENCY_PATH,
+    ConfigKeys.CONSTITUENCY_PATH, ConfigKeys.NAMED_ENTITY_PATH};
+
+  private final List<String> texts;
+  private final List<List<String[]>> parses;
+  private final List<Sentence> trees;
+  private final List<String> namedEntities;
+  private final Corpus corpus;
+  private final String sentenceIdPrefix;
+
+  private boolean shuffle = false;
+  private int maxClauses = 1;
+  private Random random = new Random();
+
+  /**
+   * Reads the sample.
+   *
+   * @param textFile The raw text file.
+   * @param dependencyFile The ParZu dependency parse file.
+   * @param constituencyFile The Tiger XML file.
+   * @param namedEntityFile The GermaNER named entity file.
+   * @param corpusParser The parser for the Tiger XML file.
+   * @throws IOException If a file cannot be read or the files are not aligned.
+   */
+  public CorpusGenerator(String textFile, String dependencyFile, String constituencyFile,
+          String namedEntityFile, CorpusParser corpusParser) throws IOException {
+    texts = readLines(textFile);
+    parses = readParses(dependencyFile);
+    namedEntities = readLines(namedEntityFile);
+    try {
+      corpus = corpusParser.parseCorpusFromFile(constituencyFile);
+    } catch (Exception e) {
+      throw new IOException("Could not parse " + constituencyFile + ": " + e.getMessage(), e);
+    }
+    trees = corpus.getBody().getSentences();
+
+    if (texts.isEmpty() || parses.size() != texts.size() || trees.size() != texts.size()
+            || namedEntities.size() != texts.size()) {
+      throw new IOException("The sample files are not aligned: " + texts.size() + " sentences in "
+              + textFile + ", " + parses.size() + " in " + dependencyFile + ", " + trees.size() + " in "
+              + constituencyFile + ", " + namedEntities.size() + " in " + namedEntityFile);
+    }
+
+    // sentence ids are numbers, possibly with a prefix like "s"
+    sentenceIdPrefix = trees.get(0).getId().getId().replaceAll("[0-9]+$", "");
+  }
+
+  /**
+   * @param shuffle true if the sample sentences should be used in random order instead of one after
+   * another.
+   */
+  public void setShuffle(boolean shuffle) {
+    this.shuffle = shuffle;
+  }
+
+  /**
+   * @param maxClauses The maximum number of sample sentences that are concatenated to one sentence. The
+   * number is chosen at random for every sentence. 1 means that sentences are not concatenated.
+   */
+  public void setMaxClauses(int maxClauses) {
+    if (maxClauses < 1) {
+      throw new IllegalArgumentException("At least one clause per sentence is needed");
+    }
+    this.maxClauses = maxClauses;
+  }
+
+  /**
+   * @param seed The seed for shuffling and the number of clauses.
+   */
+  public void setSeed(long seed) {
+    this.random = new Random(seed);
+  }
+
+  /**
+   * Writes a corpus.
+   *
+   * @param size The number of sentences.
+   * @param textFile The raw text file to write.
+   * @param dependencyFile The ParZu dependency parse file to write.
+   * @param constituencyFile The Tiger XML file to write.
+   * @param namedEntityFile The GermaNER named entity file to write.
+   * @throws IOException If a file cannot be written.
+   */
+  public void generate(int size, String textFile, String dependencyFile, String constituencyFile,
+          String namedEntityFile) throws IOException {
+    final Writer textOut = open(textFile);
+    final Writer dependencyOut = open(dependencyFile);
+    final Writer constituencyOut = open(constituencyFile);
+    final Writer namedEntityOut = open(namedEntityFile);
+    try {
+      writeHead(constituencyOut);
+
+      final List<Integer> order = new ArrayList<Integer>();
+      int next = 0;
+      for (int sentence = 1; sentence <= size; sentence++) {
+        final int clauses = maxClauses == 1 ? 1 : 1 + random.nextInt(maxClauses);
+        final List<Integer> parts = new ArrayList<Integer>(clauses);
+        for (int i = 0; i < clauses; i++) {
+          if (next == order.size()) {
+            // start the next pass through the sample
+            order.clear();
+            for (int j = 0; j < texts.size(); j++) {
+              order.add(j);
+            }
+            if (shuffle) {
+              Collections.shuffle(order, random);
+            }
+            next = 0;
+          }
+          parts.add(order.get(next++));
+        }
+
+        textOut.write(joinText(parts));
+        textOut.write('\n');
+        writeParse(dependencyOut, parts);
+        constituencyOut.write("\t\t" + joinTrees(parts, sentenceIdPrefix + sentence).toString());
+        namedEntityOut.write(joinNamedEntities(parts));
+        namedEntityOut.write('\n');
+      }
+
+      constituencyOut.write("\t</" + Body.getXmltag() + ">\n");
+      constituencyOut.write("</" + Corpus.getXmltag() + ">\n");
+    } finally {
+      textOut.close();
+      dependencyOut.close();
+      constituencyOut.close();
+      namedEntityOut.close();
+    }
+  }
+
+  private String joinText(List<Integer> parts) {
+    final StringBuilder text = new StringBuilder();
+    for (int part : parts) {
+      if (text.length() > 0) {
+        text.append(' ');
+      }
+      text.append(texts.get(part).trim());
+    }
+    return text.toString();
+  }
+
+  private String joinNamedEntities(List<Integer> parts) {
+    final StringBuilder tags = new StringBuilder();
+    for (int part : parts) {
+      tags.append(namedEntities.get(part).trim()).append(' ');
+    }
+    return tags.toString();
+  }
+
+  /**
+   * Writes the dependency parse of a sentence. The word ids and heads of every clause are shifted by the
+   * number of words before it; the roots of all clauses stay attached to the root.
+   */
+  private void writeParse(Writer out, List<Integer> parts) throws IOException {
+    int offset = 0;
+    for (int part : parts) {
+      final List<String[]> rows = parses.get(part);
+      for (String[] row : rows) {
+        final String[] columns = row.clone();
+        columns[0] = Integer.toString(Integer.parseInt(columns[0]) + offset);
+        final int head = Integer.parseInt(columns[6]);
+        columns[6] = Integer.toString(head == 0 ? 0 : head + offset);
+        for (int i = 0; i < columns.length; i++) {
+          if (i > 0) {
+            out.write('\t');
+          }
+          out.write(columns[i]);
+        }
+        out.write('\n');
+      }
+      offset += rows.size();
+    }
+    out.write('\n');
+  }
+
+  /**
+   * Joins the Tiger graphs of the clauses of a sentence. Terminals are numbered from 1 and nonterminals
+   * from {@link #NONTERMINAL_BASE} + 1 in the order of the sample. The children of the roots of later
+   * clauses are attached to the root of the first clause.
+   */
+  private Sentence joinTrees(List<Integer> parts, String sentenceId) {
+    final Map<String, Id> ids = new HashMap<String, Id>();
+    final List<Terminal> terminals = new ArrayList<Terminal>();
+    final List<Nonterminal> nonterminals = new ArrayList<Nonterminal>();
+
+    int terminalCount = 0;
+    for (int part : parts) {
+      terminalCount += trees.get(part).getGraph().getTerminals().getTerminals().size();
+    }
+    int nextTerminal = 1;
+    int nextNonterminal = Math.max(NONTERMINAL_BASE, terminalCount) + 1;
+
+    Nonterminal root = null;
+    for (int i = 0; i < parts.size(); i++) {
+      final Graph graph = trees.get(parts.get(i)).getGraph();
+      final String prefix = i + "#";
+
+      for (Terminal terminal : graph.getTerminals().getTerminals()) {
+        ids.put(prefix + terminal.getId().getId(), new Id(sentenceId + "_" + nextTerminal++, true));
+      }
+      for (Nonterminal nonterminal : graph.getNonterminals().getNonterminals()) {
+        ids.put(prefix + nonterminal.getId().getId(), new Id(sentenceId + "_" + nextNonterminal++, false));
+      }
+
+      for (Terminal terminal : graph.getTerminals().getTerminals()) {
+        final Terminal copy = new Terminal();
+        copy.setId(ids.get(prefix + terminal.getId().getId()));
+        copy.setWord(terminal.getWord());
+        copy.setLemma(terminal.getLemma());
+        copy.setMorph(terminal.getMorph());
+        copy.setPos(terminal.getPos());
+        copy.setSecedge(copySecedge(terminal.getSecedge(), ids, prefix));
+        terminals.add(copy);
+      }
+
+      final String rootId = graph.getRoot().getId();
+      for (Nonterminal nonterminal : graph.getNonterminals().getNonterminals()) {
+        final boolean isRoot = nonterminal.getId().getId().equals(rootId);
+        if (isRoot && root != null) {
+          // the root of a later clause is replaced by the root of the first clause
+          for (Edge edge : nonterminal.getEdges()) {
+            root.addEdge(new Edge(ids.get(prefix + edge.getId().getId()), edge.getLabel()));
+          }
+          continue;
+        }
+        final Nonterminal copy = new Nonterminal(nonterminal.getCat(), ids.get(prefix + nonterminal.getId().getId()));
+        for (Edge edge : nonterminal.getEdges()) {
+          copy.addEdge(new Edge(ids.get(prefix + edge.getId().getId()), edge.getLabel()));
+        }
+        copy.setSecedge(copySecedge(nonterminal.getSecedge(), ids, prefix));
+        nonterminals.add(copy);
+        if (isRoot) {
+          root = copy;
+        }
+      }
+    }
+
+    final Graph graph = new Graph(root != null ? root.getId() : new Id(sentenceId + "_" + nextNonterminal));
+    final Terminals terminalsElement = new Terminals();
+    for (Terminal terminal : terminals) {
+      terminalsElement.addTerminal(terminal);
+    }
+    graph.setTerminals(terminalsElement);
+    final Nonterminals nonterminalsElement = new Nonterminals();
+    for (Nonterminal nonterminal : nonterminals) {
+      nonterminalsElement.addNonterminal(nonterminal);
+    }
+    graph.setNonterminals(nonterminalsElement);
+
+    final Sentence sentence = new Sentence(new Id(sentenceId));
+    sentence.setGraph(graph);
+    sentence.setMatches(new Matches());
+    sentence.setSem(new Semantics());
+    return sentence;
+  }
+
+  private static Secedge copySecedge(Secedge secedge, Map<String, Id> ids, String prefix) {
+    if (secedge == null) {
+      return null;
+    }
+    return new Secedge(ids.get(prefix + secedge.getId().getId()), secedge.getLabel());
+  }
+
+  /**
+   * Writes the beginning of the Tiger XML file like {@link Corpus#toString()}, with the head of the sample.
+   */
+  private void writeHead(Writer out) throws IOException {
+    out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    out.write("<" + Corpus.getXmltag() + " corpusname=\"" + corpus.getCorpusname() + "\" target=\""
+            + corpus.getTarget() + "\">\n");
+    if (corpus.getHead() != null) {
+      out.write("\t" + corpus.getHead().toString());
+    }
+    out.write("\t<" + Body.getXmltag() + ">\n");
+  }
+
+  private static Writer open(String filename) throws IOException {
+    return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename), "UTF-8"), 1 << 16);
+  }
+
+  private static BufferedReader openReader(String filename) throws IOException {
+    return new BufferedReader(new InputStreamReader(new FileInputStream(filename), "UTF-8"));
+  }
+
+  /**
+   * Reads the lines of a file without a byte order mark.
+   */
+  private static List<String> readLines(String filename) throws IOException {
+    final List<String> lines = new ArrayList<String>();
+    final BufferedReader in = openReader(filename);
+    try {
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (lines.isEmpty() && line.startsWith("\uFEFF")) {
+          line = line.substring(1);
+        }
+        lines.add(line);
+      }
+    } finally {
+      in.close();
+    }
+    return lines;
+  }
+
+  /**
+   * Reads a ParZu dependency parse file. Sentences are separated by empty lines.
+   */
+  private static List<List<String[]>> readParses(String filename) throws IOException {
+    final List<List<String[]>> sentences = new ArrayList<List<String[]>>();
+    List<String[]> rows = new ArrayList<String[]>();
+    for (String line : readLines(filename)) {
+      if (line.trim().isEmpty()) {
+        if (!rows.isEmpty()) {
+          sentences.add(rows);
+          rows = new ArrayList<String[]>();
+        }
+        continue;
+      }
+      final String[] columns = line.split("\t", -1);
+      if (columns.length < 8) {
+        throw new IOException("Invalid line in " + filename + ": " + line);
+      }
+      rows.add(columns);
+    }
+    if (!rows.isEmpty()) {
+      sentences.add(rows);
+    }
+    return sentences;
+  }
+
+  /**
+   * Generates a corpus from the sample files of a configuration file.
+   *
+   * @param args The configuration file, the number of sentences, the output directory and optionally
+   * "shuffle", "clauses=&lt;n&gt;" (the maximum number of sample sentences per sentence) and
+   * "seed=&lt;n&gt;".
+   * @throws IOException If a file cannot be read or written.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 3) {
+      System.err.println("Usage: CorpusGenerator <config-file> <sentences> <output-dir> [shuffle] "
+              + "[clauses=<n>] [seed=<n>]");
+      return;
+    }
+
+    final String configFile = args[0];
+    final int size = Integer.parseInt(args[1]);
+    final File outputDir = new File(args[2]);
+    boolean shuffle = false;
+    int maxClauses = 1;
+    Long seed = null;
+    for (int i = 3; i < args.length; i++) {
+      if (args[i].equals("shuffle")) {
+        shuffle = true;
+      } else if (args[i].startsWith("clauses=")) {
+        maxClauses = Integer.parseInt(args[i].substring("clauses=".length()));
+      } else if (args[i].startsWith("seed=")) {
+        seed = Long.parseLong(args[i].substring("seed=".length()));
+      } else {
+        throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+
+    final SafeProperties prop = new SafeProperties(new ConfigReader(configFile).readConfig());
+    if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+      throw new IOException("Could not create output directory " + outputDir);
+    }
+
+    final Map<ConfigKeys, String> outputs = new EnumMap<ConfigKeys, String>(ConfigKeys.class);
+    for (ConfigKeys key : INPUT_KEYS) {
+      outputs.put(key, new File(outputDir, new File(prop.getProperty(key)).getName()).getAbsolutePath());
+      if (outputs.get(key).equals(new File(prop.getProperty(key)).getAbsolutePath())) {
+        throw new IOException("The output directory must not contain the sample files");
+      }
+    }
+
+    System.out.println("Reading sample from " + configFile + "...");
+    final CorpusParser corpusParser;
+    try {
+      corpusParser = new CorpusParser(prop.getPropertyBool(ConfigKeys.VALIDATE_XML));
+    } catch (Exception e) {
+      throw new IOException("Could not create the XML parser: " + e.getMessage(), e);
+    }
+    final CorpusGenerator generator = new CorpusGenerator(prop.getProperty(ConfigKeys.TEXT_PATH),
+            prop.getProperty(ConfigKeys.DEPENDENCY_PATH), prop.getProperty(ConfigKeys.CONSTITUENCY_PATH),
+            prop.getProperty(ConfigKeys.NAMED_ENTITY_PATH), corpusParser);
+    generator.setShuffle(shuffle);
+    generator.setMaxClauses(maxClauses);
+    if (seed != null) {
+      generator.setSeed(seed);
+    }
+
+    System.out.println("Generating " + size + " sentences in " + outputDir + "...");
+    generator.generate(size, outputs.get(ConfigKeys.TEXT_PATH), outputs.get(ConfigKeys.DEPENDENCY_PATH),
+            outputs.get(ConfigKeys.CONSTITUENCY_PATH), outputs.get(ConfigKeys.NAMED_ENTITY_PATH));
+
+    // the morphology file is a lookup table of word forms, which does not change
+    final String morphologyFile = prop.getProperty(ConfigKeys.MORPHOLOGY_PATH);
+    if (!morphologyFile.isEmpty() && new File(morphologyFile).isFile()) {
+      final File copy = new File(outputDir, new File(morphologyFile).getName());
+      Files.copy(new File(morphologyFile).toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      outputs.put(ConfigKeys.MORPHOLOGY_PATH, copy.getAbsolutePath());
+    }
+
+    // the generated corpus always comes with a Tiger XML file
+    outputs.put(ConfigKeys.BERKELEY_PARSE_PATH, "");
+
+    final File config = new File(outputDir, new File(configFile).getName());
+    writeConfig(configFile, config, outputs);
+    System.out.println("Configuration for the generated corpus written to " + config);
+  }
+
+  /**
+   * Copies a configuration file and replaces the given paths.
+   */
+  private static void writeConfig(String configFile, File output, Map<ConfigKeys, String> paths)
+          throws IOException {
+    final List<String> lines = readLines(configFile);
+    final Writer out = open(output.getPath());
+    try {
+      for (String line : lines) {
+        for (Map.Entry<ConfigKeys, String> path : paths.entrySet()) {
+          if (line.matches("\\s*" + path.getKey().getKey() + "\\s*[=:].*")) {
+            line = path.getKey().getKey() + "=" + path.getValue().replace('\\', '/');
+          }
+        }
+        out.write(line);
+        out.write('\n');
+      }
+    } finally {
+      out.close();
+    }
+  }
+}
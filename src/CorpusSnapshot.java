@@ -0,0 +1,582 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xml.sax.SAXException;
+
+import salsa.corpora.elements.Body;
+import salsa.corpora.elements.Corpus;
+import salsa.corpora.elements.Graph;
+import salsa.corpora.elements.Match;
+import salsa.corpora.elements.Matches;
+import salsa.corpora.elements.Nonterminal;
+import salsa.corpora.elements.Nonterminals;
+import salsa.corpora.elements.Secedge;
+import salsa.corpora.elements.Sentence;
+import salsa.corpora.elements.Terminal;
+import salsa.corpora.elements.Terminals;
+import salsa.corpora.elements.Variable;
+import salsa.corpora.noelement.Id;
+import salsa.corpora.xmlparser.CorpusParser;
+
+/**
+ * A {@link CorpusSnapshot} stores a fully preprocessed corpus in a compact binary file, so that later runs
+ * on the same input can skip reading the raw text, the dependency parses, the Tiger XML and the named
+ * entities as well as the normalization of the dependency graphs.
+ *
+ * A snapshot contains
+ * - for every {@link SentenceObj}: the sentence, its id, the lemma, part of speech, relation and head of
+ *   every {@link WordObj} (including particles and deleted words), the raw and the normalized
+ *   {@link DependencyGraph} and the {@link NamedEntityList}
+ * - the Salsa / Tiger XML corpus: its head as XML and, for every sentence, the terminals and nonterminals
+ *   with their Tiger ids, from which the {@link ConstituencyTree}s are rebuilt, and the matches. The
+ *   semantics of the sentences are not stored, since they are replaced by the results of the analysis.
+ *
+ * The file is named after a key that is computed from the contents of the input files and the settings that
+ * influence preprocessing (see {@link #computeKey(List, String)}). A changed input therefore never hits an
+ * old snapshot. Snapshots are read through a memory-mapped buffer. Morphology correction is not part of the
+ * snapshot, since it depends on the lexicon.
+ *
+ * A warm run can find different frames for some sentences than the run that wrote the snapshot. The nodes and
+ * edges of a {@link DependencyGraph} are kept in hash sets, whose iteration order depends on the identity hash
+ * codes of the words and on the order of the additions and removals that built the set. They are restored in
+ * the order in which they were written, but a rebuilt set does not always iterate in that order, and the
+ * modules look at the nodes and edges in iteration order. Two runs without a snapshot differ in the same way
+ * unless the identity hash codes are fixed (-XX:hashCode=2).
+ */
+public class CorpusSnapshot {
+
+  private static final int MAGIC = 0x4f525853; // "ORXS"
+  private static final int VERSION = 1;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  // node reference of the root of the raw dependency graph
+  private static final int ROOT = -1;
+
+  private static final int NO_STRING = -1;
+
+  private final File file;
+  private final String key;
+
+  /**
+   * @param directory The directory in which snapshots are stored.
+   * @param key The key of the snapshot as computed by {@link #computeKey(List, String)}.
+   */
+  public CorpusSnapshot(File directory, String key) {
+    this.file = new File(directory, key + ".snapshot");
+    this.key = key;
+  }
+
+  /**
+   * Computes the key of a snapshot from the contents of the input files and a description of the settings
+   * which influence preprocessing.
+   *
+   * @param inputFiles The paths of all files that are read during preprocessing.
+   * @param settings A {@link String} that describes the preprocessing settings.
+   * @return The hex encoded SHA-256 hash of the format version, the settings and the file contents.
+   * @throws IOException If an input file cannot be read.
+   */
+  public static String computeKey(List<String> inputFiles, String settings) throws IOException {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException("SHA-256 is not available: " + e.getMessage());
+    }
+
+    digest.update((VERSION + "\n" + settings + "\n").getBytes(UTF8));
+
+    final byte[] buffer = new byte[1 << 16];
+    for (String inputFile : inputFiles) {
+      final InputStream in = new FileInputStream(inputFile);
+      try {
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+          digest.update(buffer, 0, read);
+        }
+      } finally {
+        in.close();
+      }
+      // separate the files, so that moving bytes between them changes the key
+      digest.update((byte) 0);
+    }
+
+    final StringBuilder hex = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+
+  /**
+   * @return The snapshot file.
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * @return true if a snapshot has been written for the key.
+   */
+  public boolean exists() {
+    return file.isFile();
+  }
+
+  /**
+   * Writes a preprocessed corpus to the snapshot file. The file is written to a temporary file first, so
+   * that an interrupted run never leaves a broken snapshot behind.
+   *
+   * @param sentences The preprocessed {@link SentenceList}.
+   * @param salsa The {@link SalsaAPIConnective} holding the Salsa / Tiger XML corpus.
+   * @throws IOException If the snapshot cannot be written or the corpus contains structures that cannot be
+   * stored.
+   */
+  public void write(SentenceList sentences, SalsaAPIConnective salsa) throws IOException {
+    final Writer writer = new Writer();
+
+    writer.writeCorpus(salsa.getCorpus());
+    writer.writeInt(sentences.sentenceList.size());
+    for (SentenceObj sentence : sentences.sentenceList) {
+      writer.writeSentence(sentence);
+    }
+
+    final File tmp = new File(file.getPath() + ".tmp");
+    final DataOutputStream out = new DataOutputStream(new java.io.BufferedOutputStream(new FileOutputStream(tmp)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(key);
+      out.writeInt(writer.strings.size());
+      for (String s : writer.strings.keySet()) {
+        final byte[] bytes = s.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+      writer.body.writeTo(out);
+    } finally {
+      out.close();
+    }
+
+    if (file.exists() && !file.delete() || !tmp.renameTo(file)) {
+      tmp.delete();
+      throw new IOException("Could not move snapshot to " + file);
+    }
+  }
+
+  /**
+   * Reads the snapshot file. The sentences are added to the given (empty) {@link SentenceList} and every
+   * {@link SentenceObj} gets its {@link ConstituencyTree}.
+   *
+   * @param sentences An empty {@link SentenceList} which is filled with the stored sentences.
+   * @param corpusParser The {@link CorpusParser} used to read the head of the Salsa XML corpus.
+   * @return A {@link SalsaAPIConnective} for the stored Salsa / Tiger XML corpus.
+   * @throws IOException If the snapshot cannot be read or does not belong to the key.
+   */
+  public SalsaAPIConnective read(SentenceList sentences, CorpusParser corpusParser) throws IOException {
+    final RandomAccessFile raf = new RandomAccessFile(file, "r");
+    final ByteBuffer buffer;
+    try {
+      final FileChannel channel = raf.getChannel();
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } finally {
+      raf.close();
+    }
+
+    final Reader reader = new Reader(buffer);
+    if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+      throw new IOException(file + " is not a snapshot of this version");
+    }
+    if (!key.equals(reader.readModifiedUtf8())) {
+      throw new IOException(file + " does not belong to the current input");
+    }
+    reader.readStringTable();
+
+    final Corpus corpus = reader.readCorpus(corpusParser);
+    final int size = buffer.getInt();
+    for (int i = 0; i < size; i++) {
+      sentences.sentenceList.add(reader.readSentence());
+    }
+
+    return new SalsaAPIConnective(corpus, sentences);
+  }
+
+  /**
+   * Serializes the corpus into an in-memory body and collects all strings in a table, which is written in
+   * front of the body.
+   */
+  private static class Writer {
+
+    private final Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 20);
+    private final DataOutputStream out = new DataOutputStream(body);
+
+    void writeInt(int value) throws IOException {
+      out.writeInt(value);
+    }
+
+    void writeBoolean(boolean value) throws IOException {
+      out.writeByte(value ? 1 : 0);
+    }
+
+    void writeString(String value) throws IOException {
+      if (value == null) {
+        out.writeInt(NO_STRING);
+        return;
+      }
+      Integer index = strings.get(value);
+      if (index == null) {
+        index = strings.size();
+        strings.put(value, index);
+      }
+      out.writeInt(index);
+    }
+
+    void writeCorpus(Corpus corpus) throws IOException {
+      // the head is small and has many optional parts, so it is stored as XML
+      final Corpus shell = new Corpus(corpus.getCorpusname(), corpus.getTarget());
+      shell.setHead(corpus.getHead());
+      shell.setBody(new Body());
+      writeString(shell.toString());
+
+      final List<Sentence> sentences = corpus.getBody().getSentences();
+      writeInt(sentences.size());
+      for (Sentence sentence : sentences) {
+        writeString(sentence.getId().getId());
+        writeString(sentence.getSource());
+
+        final Graph graph = sentence.getGraph();
+        writeString(graph.getRoot().getId());
+
+        final List<Terminal> terminals = graph.getTerminals().getTerminals();
+        writeInt(terminals.size());
+        for (Terminal terminal : terminals) {
+          writeString(terminal.getId().getId());
+          writeString(terminal.getWord());
+          writeString(terminal.getLemma());
+          writeString(terminal.getPos());
+          writeString(terminal.getMorph());
+          writeSecedge(terminal.getSecedge());
+        }
+
+        final List<Nonterminal> nonterminals = graph.getNonterminals().getNonterminals();
+        writeInt(nonterminals.size());
+        for (Nonterminal nonterminal : nonterminals) {
+          writeString(nonterminal.getId().getId());
+          writeString(nonterminal.getCat());
+          writeSecedge(nonterminal.getSecedge());
+          writeInt(nonterminal.getEdges().size());
+          for (salsa.corpora.elements.Edge edge : nonterminal.getEdges()) {
+            writeString(edge.getId().getId());
+            writeString(edge.getLabel());
+          }
+        }
+
+        final Matches matches = sentence.getMatches();
+        writeBoolean(matches != null);
+        if (matches != null) {
+          writeInt(matches.getMatches().size());
+          for (Match match : matches.getMatches()) {
+            writeString(match.getSubgraph());
+            writeInt(match.getVariables().size());
+            for (Variable variable : match.getVariables()) {
+              writeString(variable.getName());
+              writeString(variable.getId().getId());
+              writeString(variable.getText());
+            }
+          }
+        }
+      }
+    }
+
+    void writeSecedge(Secedge secedge) throws IOException {
+      writeBoolean(secedge != null);
+      if (secedge != null) {
+        writeString(secedge.getId().getId());
+        writeString(secedge.getLabel());
+      }
+    }
+
+    void writeSentence(SentenceObj sentence) throws IOException {
+      writeString(sentence.sentence);
+      writeString(sentence.id.getId());
+
+      final DependencyGraph rawGraph = sentence.getRawGraph();
+      final Map<WordObj, Integer> refs = new IdentityHashMap<WordObj, Integer>();
+      int index = 0;
+      for (WordObj word : sentence.wordList) {
+        refs.put(word, index++);
+      }
+      refs.put(rawGraph.getRoot(), ROOT);
+
+      for (WordObj word : sentence.wordList) {
+        writeString(word.getLemma());
+        writeString(word.getPos());
+        writeString(word.getRelation());
+        writeInt(word.getEdge());
+        writeBoolean(word.getIsParticleVerb());
+        writeInt(word.getParticle() == null ? Integer.MIN_VALUE : ref(refs, word.getParticle()));
+        writeInt(word.getDeleted().size());
+        for (WordObj deleted : word.getDeleted()) {
+          writeInt(ref(refs, deleted));
+        }
+      }
+
+      writeGraph(rawGraph, refs);
+      final boolean normalized = sentence.getGraph() != rawGraph;
+      writeBoolean(normalized);
+      if (normalized) {
+        writeGraph(sentence.getGraph(), refs);
+      }
+
+      final NamedEntityList namedEntityList = sentence.getNamedEntityList();
+      writeBoolean(namedEntityList != null);
+      if (namedEntityList != null) {
+        writeInt(namedEntityList.getNamedEntities().size());
+        for (NamedEntity ne : namedEntityList.getNamedEntities()) {
+          writeString(ne.getName());
+          writeString(ne.getTag());
+          writeInt(ne.getStartIndex());
+          writeInt(ne.getEndIndex());
+        }
+      }
+    }
+
+    void writeGraph(DependencyGraph graph, Map<WordObj, Integer> refs) throws IOException {
+      writeBoolean(graph.isActivePassive());
+      writeInt(graph.getNodes().size());
+      for (WordObj node : graph.getNodes()) {
+        writeInt(ref(refs, node));
+      }
+      writeInt(graph.getEdges().size());
+      for (Edge edge : graph.getEdges()) {
+        writeInt(ref(refs, edge.source));
+        writeInt(ref(refs, edge.target));
+        writeString(edge.depRel);
+      }
+    }
+
+    int ref(Map<WordObj, Integer> refs, WordObj word) throws IOException {
+      final Integer ref = refs.get(word);
+      if (ref == null) {
+        throw new IOException("The dependency graph refers to a node that is not part of its sentence: " + word);
+      }
+      return ref;
+    }
+  }
+
+  /**
+   * Reads the corpus from the mapped snapshot file.
+   */
+  private static class Reader {
+
+    private final ByteBuffer buffer;
+    private String[] strings;
+
+    Reader(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    /**
+     * Reads a string as written by {@link DataOutputStream#writeUTF(String)}. Only used for the key, which
+     * is plain ASCII.
+     */
+    String readModifiedUtf8() {
+      final byte[] bytes = new byte[buffer.getShort() & 0xffff];
+      buffer.get(bytes);
+      return new String(bytes, UTF8);
+    }
+
+    void readStringTable() {
+      strings = new String[buffer.getInt()];
+      byte[] bytes = new byte[256];
+      for (int i = 0; i < strings.length; i++) {
+        final int length = buffer.getInt();
+        if (length > bytes.length) {
+          bytes = new byte[length];
+        }
+        buffer.get(bytes, 0, length);
+        strings[i] = new String(bytes, 0, length, UTF8);
+      }
+    }
+
+    String readString() {
+      final int index = buffer.getInt();
+      return index == NO_STRING ? null : strings[index];
+    }
+
+    boolean readBoolean() {
+      return buffer.get() != 0;
+    }
+
+    Corpus readCorpus(CorpusParser corpusParser) throws IOException {
+      final Corpus corpus;
+      try {
+        corpus = corpusParser.parseCorpusFromString(readString());
+      } catch (SAXException e) {
+        throw new IOException("Could not parse the corpus head: " + e.getMessage());
+      }
+
+      final Body body = corpus.getBody();
+      final int size = buffer.getInt();
+      for (int i = 0; i < size; i++) {
+        final Sentence sentence = new Sentence(new Id(readString()));
+        final String source = readString();
+        if (source != null) {
+          sentence.setSource(source);
+        }
+
+        final Graph graph = new Graph(new Id(readString()));
+
+        final Terminals terminals = new Terminals();
+        final int terminalCount = buffer.getInt();
+        for (int j = 0; j < terminalCount; j++) {
+          // the stored values are already escaped, so the escaping constructor is not used
+          final Terminal terminal = new Terminal();
+          terminal.setId(new Id(readString()));
+          terminal.setWord(readString());
+          terminal.setLemma(readString());
+          terminal.setPos(readString());
+          terminal.setMorph(readString());
+          final Secedge secedge = readSecedge();
+          if (secedge != null) {
+            terminal.setSecedge(secedge);
+          }
+          terminals.addTerminal(terminal);
+        }
+        graph.setTerminals(terminals);
+
+        final Nonterminals nonterminals = new Nonterminals();
+        final int nonterminalCount = buffer.getInt();
+        for (int j = 0; j < nonterminalCount; j++) {
+          final Id id = new Id(readString());
+          final Nonterminal nonterminal = new Nonterminal(readString(), id);
+          final Secedge secedge = readSecedge();
+          if (secedge != null) {
+            nonterminal.setSecedge(secedge);
+          }
+          final int edgeCount = buffer.getInt();
+          for (int k = 0; k < edgeCount; k++) {
+            final Id idref = new Id(readString());
+            nonterminal.addEdge(new salsa.corpora.elements.Edge(idref, readString()));
+          }
+          nonterminals.addNonterminal(nonterminal);
+        }
+        graph.setNonterminals(nonterminals);
+        sentence.setGraph(graph);
+
+        if (readBoolean()) {
+          final Matches matches = new Matches();
+          final int matchCount = buffer.getInt();
+          for (int j = 0; j < matchCount; j++) {
+            final Match match = new Match(readString());
+            final int variableCount = buffer.getInt();
+            for (int k = 0; k < variableCount; k++) {
+              final String name = readString();
+              final Variable variable = new Variable(name, new Id(readString()));
+              variable.setText(readString());
+              match.addVariable(variable);
+            }
+            matches.addMatch(match);
+          }
+          sentence.setMatches(matches);
+        }
+
+        body.addSentence(sentence);
+      }
+      return corpus;
+    }
+
+    Secedge readSecedge() {
+      if (!readBoolean()) {
+        return null;
+      }
+      final Id id = new Id(readString());
+      return new Secedge(id, readString());
+    }
+
+    SentenceObj readSentence() {
+      final SentenceObj sentence = new SentenceObj(readString());
+      sentence.id = new Id(readString());
+
+      final List<WordObj> words = new ArrayList<WordObj>(sentence.wordList);
+      final DependencyGraph rawGraph = new DependencyGraph(sentence.wordList);
+
+      for (WordObj word : words) {
+        word.setLemma(readString());
+        word.setPos(readString());
+        word.setRelation(readString());
+        word.setEdge(buffer.getInt());
+        word.setIsParticleVerb(readBoolean());
+        final int particle = buffer.getInt();
+        if (particle != Integer.MIN_VALUE) {
+          word.setParticle(node(words, rawGraph, particle));
+        }
+        final int deletedCount = buffer.getInt();
+        for (int i = 0; i < deletedCount; i++) {
+          word.addDeleted(node(words, rawGraph, buffer.getInt()));
+        }
+      }
+
+      readGraph(rawGraph, words, rawGraph);
+      sentence.setRawGraph(rawGraph);
+      if (readBoolean()) {
+        final DependencyGraph graph = new DependencyGraph(sentence.wordList);
+        readGraph(graph, words, rawGraph);
+        sentence.setGraph(graph);
+      } else {
+        sentence.setGraph(rawGraph);
+      }
+
+      if (readBoolean()) {
+        final NamedEntityList namedEntityList = new NamedEntityList();
+        final int size = buffer.getInt();
+        for (int i = 0; i < size; i++) {
+          final String name = readString();
+          final String tag = readString();
+          final int startIndex = buffer.getInt();
+          namedEntityList.getNamedEntities().add(new NamedEntity(name, tag, startIndex, buffer.getInt()));
+        }
+        sentence.setNamedEntityList(namedEntityList);
+      }
+      return sentence;
+    }
+
+    /**
+     * Adds the nodes and edges of a graph in the order in which they were written. Large sets may still iterate
+     * in a different order than the written graph, see {@link CorpusSnapshot}.
+     */
+    void readGraph(DependencyGraph graph, List<WordObj> words, DependencyGraph rawGraph) {
+      graph.setActivePassive(readBoolean());
+      final int nodeCount = buffer.getInt();
+      for (int i = 0; i < nodeCount; i++) {
+        graph.addNode(node(words, rawGraph, buffer.getInt()));
+      }
+      final int edgeCount = buffer.getInt();
+      for (int i = 0; i < edgeCount; i++) {
+        final WordObj source = node(words, rawGraph, buffer.getInt());
+        final WordObj target = node(words, rawGraph, buffer.getInt());
+        graph.addEdge(source, target, readString());
+      }
+    }
+
+    WordObj node(List<WordObj> words, DependencyGraph rawGraph, int ref) {
+      return ref == ROOT ? rawGraph.getRoot() : words.get(ref);
+    }
+  }
+}
@@ -33,6 +33,29 @@ public class DependencyGraph {
     wordList = wl;
   }
 
+  /**
+   * Builds the graph of a parsed sentence: every word is a node and has an
+   * edge from its head (see {@link WordObj#getEdge()}, 0 for the root) labeled
+   * with its relation.
+   *
+   * @param words The words of the sentence with the heads and relations of
+   * the dependency parse.
+   * @return The unnormalized graph.
+   */
+  static DependencyGraph fromParse(List<WordObj> words) {
+    final DependencyGraph graph = new DependencyGraph(words);
+    final List<WordObj> byPosition = new ArrayList<WordObj>(words);
+    for (WordObj word : byPosition) {
+      graph.addNode(word);
+    }
+    for (WordObj target : byPosition) {
+      final int sourceNum = target.getEdge();
+      final WordObj source = sourceNum == 0 ? graph.getRoot() : byPosition.get(sourceNum - 1);
+      graph.addEdge(source, target, target.getRelation());
+    }
+    return graph;
+  }
+
   public DependencyGraph(DependencyGraph old) {
     this.root = new WordObj("root");
     this.edges = new HashSet<>(old.edges);
@@ -65,6 +88,79 @@ public class DependencyGraph {
     return nodes;
   }
 
+  /**
+   * @return true if the graph is the result of the normalization for active and
+   * passive voice
+   */
+  boolean isActivePassive() {
+    return ap;
+  }
+
+  /**
+   * @param ap true if the graph is the result of the normalization for active
+   * and passive voice
+   */
+  void setActivePassive(boolean ap) {
+    this.ap = ap;
+  }
+
+  /**
+   * The state of a graph and its words before {@link DependencyGraph#normalize(DependencyGraph)},
+   * which changes both in place. Used to fall back to the raw graph if the
+   * normalization is aborted.
+   */
+  static class Checkpoint {
+
+    private final DependencyGraph graph;
+    private final HashSet<Edge> edges;
+    private final HashSet<WordObj> nodes;
+    private final List<WordObj> words = new ArrayList<WordObj>();
+    private final List<String> relations = new ArrayList<String>();
+    private final List<String> lemmas = new ArrayList<String>();
+    private final List<Boolean> particleVerbs = new ArrayList<Boolean>();
+    private final List<WordObj> particles = new ArrayList<WordObj>();
+    private final List<List<WordObj>> deleted = new ArrayList<List<WordObj>>();
+
+    /**
+     * @param graph The graph whose state is saved.
+     */
+    Checkpoint(DependencyGraph graph) {
+      this.graph = graph;
+      this.edges = new HashSet<Edge>(graph.edges);
+      this.nodes = new HashSet<WordObj>(graph.nodes);
+      final HashSet<WordObj> all = new HashSet<WordObj>(graph.nodes);
+      all.addAll(graph.wordList);
+      for (WordObj word : all) {
+        words.add(word);
+        relations.add(word.getRelation());
+        lemmas.add(word.getLemma());
+        particleVerbs.add(word.getIsParticleVerb());
+        particles.add(word.getParticle());
+        deleted.add(new ArrayList<WordObj>(word.getDeleted()));
+      }
+    }
+
+    /**
+     * Restores the saved state of the graph and its words.
+     *
+     * @return The restored graph.
+     */
+    DependencyGraph restore() {
+      graph.edges = new HashSet<Edge>(edges);
+      graph.nodes = new HashSet<WordObj>(nodes);
+      for (int i = 0; i < words.size(); i++) {
+        final WordObj word = words.get(i);
+        word.setRelation(relations.get(i));
+        word.setLemma(lemmas.get(i));
+        word.setIsParticleVerb(particleVerbs.get(i));
+        word.setParticle(particles.get(i));
+        word.getDeleted().clear();
+        word.getDeleted().addAll(deleted.get(i));
+      }
+      return graph;
+    }
+  }
+
   /**
    * Returns the list of word objects.
    *
@@ -483,11 +579,16 @@ public class DependencyGraph {
    * @param graph the sentence's graph as input
    * @return the normalized graph, or if no normalization needed, the same graph
    * as the input
+   * @throws SentenceBudget.ExceededException if the time budget of the sentence
+   * is used up. The graph and its words may then be partially normalized, see
+   * {@link Checkpoint}.
    */
   public DependencyGraph normalize(DependencyGraph graph) {
 
     while (!graph.isNormalized()) {
 
+      SentenceBudget.check();
+
       for (WordObj word : this.wordList) {
 
         // pred and aux can be normalized in the same way (rising one
@@ -855,6 +956,7 @@ public class DependencyGraph {
    * mweWordsToBeMatched.
    */
   public ArrayList<WordObj> getMweMatches(WordObj startNode, ArrayList<String> mweWordsToBeMatched, boolean topCall) {
+    SentenceBudget.check();
     ArrayList<String> mweWords = new ArrayList<String>(mweWordsToBeMatched);
     ArrayList<String> matchedMWEWords = new ArrayList<String>();
     // returns all WordObj nodes (also deleted ones) that match a string
@@ -996,6 +1098,9 @@ public class DependencyGraph {
    * @return Boolean representing if the MWE is matched in the graph
    */
   public boolean mweMatch(WordObj wtmp, SentimentUnit mwe) {
+    final SentenceEvents.MweMatch event = new SentenceEvents.MweMatch();
+    event.begin();
+
     ArrayList<String> mweWords = new ArrayList<>();
     for (String word : mwe.collocations) {
       mweWords.add(word);
@@ -1019,6 +1124,9 @@ public class DependencyGraph {
       }
     }
 
+    event.mwe = mwe.name;
+    event.matched = match;
+    event.endForCurrentSentence();
     return match;
   }
 
@@ -0,0 +1,510 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.xml.sax.SAXException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import salsa.corpora.elements.Body;
+import salsa.corpora.elements.Corpus;
+import salsa.corpora.elements.FrameElement;
+import salsa.corpora.elements.Fenode;
+import salsa.corpora.elements.Flag;
+import salsa.corpora.elements.Frame;
+import salsa.corpora.elements.Frames;
+import salsa.corpora.elements.Head;
+import salsa.corpora.elements.Semantics;
+import salsa.corpora.elements.Sentence;
+import salsa.corpora.noelement.Id;
+import salsa.corpora.xmlparser.CorpusParser;
+
+/**
+ * An HTTP server that keeps an {@link OpinionRoleExtractor} with the lexicon, GermaNet and the {@link Module}s
+ * loaded and annotates batches of preprocessed sentences. It offers the following endpoints:
+ *
+ * - <code>POST /annotate</code>: The request body (UTF-8) contains the ParZu dependency parse of the batch
+ *   (CoNLL rows, sentences separated by empty lines), followed by the Salsa / Tiger XML of the same sentences
+ *   (either a whole corpus or just the <code>&lt;s&gt;</code> elements). The XML starts at the first line
+ *   beginning with '&lt;'. The response is the Salsa XML corpus with the found frames, or the frames as JSON
+ *   if the query contains <code>format=json</code>.
+ * - <code>GET /health</code>: Returns the status, the uptime and the number of handled and failed batches.
+ * - <code>GET /latency</code>: Returns percentiles of the time needed to annotate the recent batches.
+ * - <code>GET /metrics</code>: Returns the {@link PipelineMetrics} of the extractor as JSON.
+ *
+ * The {@link PipelineMetrics} are also registered with the platform MBean server as
+ * {@value #METRICS_OBJECT_NAME} while the server is running.
+ *
+ * The sentences of a batch are annotated concurrently. The ids of the sentences are derived from the Tiger
+ * sentence ids ("s12" becomes "12"), just as the line numbers of the raw text file correspond to the Tiger
+ * ids in a batch run.
+ */
+public class ExtractionServer {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final String METRICS_OBJECT_NAME = "OpinionRoleExtractor:type=PipelineMetrics";
+
+  // number of recent batches used for the latency percentiles
+  private static final int LATENCY_WINDOW = 1024;
+
+  private final OpinionRoleExtractor extractor;
+  private final boolean normalize;
+  private final boolean personCheck;
+  private final CorpusParser corpusParser;
+  private final ExecutorService workers;
+  // the threads which handle the HTTP requests
+  private final ExecutorService handlers;
+  private final HttpServer server;
+
+  private final long startTime = System.currentTimeMillis();
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong failedBatches = new AtomicLong();
+  private final long[] latencies = new long[LATENCY_WINDOW];
+  private int latencyCount = 0;
+
+  /**
+   * @param extractor The extractor that finds the sentiment expressions.
+   * @param normalize true if the dependency graphs should be normalized.
+   * @param personCheck true if the classic module checks sources with named entities. Since a batch
+   * contains no named entity information, every sentence gets an empty {@link NamedEntityList}.
+   * @param corpusParser The parser for the Salsa / Tiger XML of the batches.
+   * @param port The port to listen on.
+   * @param threads The number of threads which annotate sentences.
+   * @throws IOException If the server cannot listen on the port.
+   */
+  public ExtractionServer(OpinionRoleExtractor extractor, boolean normalize, boolean personCheck,
+          CorpusParser corpusParser, int port, int threads) throws IOException {
+    this.extractor = extractor;
+    this.normalize = normalize;
+    this.personCheck = personCheck;
+    this.corpusParser = corpusParser;
+    this.workers = Executors.newFixedThreadPool(threads);
+
+    server = HttpServer.create(new InetSocketAddress(port), 0);
+    handlers = Executors.newFixedThreadPool(threads);
+    server.setExecutor(handlers);
+    server.createContext("/annotate", new AnnotateHandler());
+    server.createContext("/health", new HealthHandler());
+    server.createContext("/latency", new LatencyHandler());
+    server.createContext("/metrics", new MetricsHandler());
+  }
+
+  /**
+   * Starts the server in the background and registers the metrics of the extractor with JMX.
+   */
+  public void start() {
+    try {
+      final MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName name = new ObjectName(METRICS_OBJECT_NAME);
+      if (!mbeans.isRegistered(name)) {
+        mbeans.registerMBean(extractor.getMetrics(), name);
+      }
+    } catch (JMException e) {
+      System.err.println("Could not register the metrics with JMX: " + e.getMessage());
+    }
+    server.start();
+  }
+
+  /**
+   * Stops the server and its worker threads.
+   */
+  public void stop() {
+    server.stop(0);
+    handlers.shutdown();
+    workers.shutdown();
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(METRICS_OBJECT_NAME));
+    } catch (JMException e) {
+      // not registered
+    }
+  }
+
+  /**
+   * @return The port the server listens on.
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Annotates a batch of sentences.
+   *
+   * @param batch The dependency parse followed by the Salsa / Tiger XML.
+   * @return The corpus of the batch with a {@link Semantics} for every sentence.
+   * @throws BadRequestException If the batch cannot be read.
+   * @throws IOException If annotating a sentence fails.
+   */
+  Corpus annotate(String batch) throws BadRequestException, IOException {
+    final int xmlStart = findXmlStart(batch);
+    if (xmlStart < 0) {
+      throw new BadRequestException("The batch contains no Salsa / Tiger XML");
+    }
+    final Corpus corpus = parseCorpus(batch.substring(xmlStart));
+    final List<String> parses = splitSentences(batch.substring(0, xmlStart));
+    final List<Sentence> tigerSentences = corpus.getBody().getSentences();
+    if (parses.size() != tigerSentences.size()) {
+      throw new BadRequestException("The batch contains " + parses.size() + " dependency parses but "
+              + tigerSentences.size() + " Tiger sentences");
+    }
+
+    final SentenceList sentences = new SentenceList();
+    final StringBuilder dependencies = new StringBuilder();
+    for (int i = 0; i < parses.size(); i++) {
+      final StringBuilder raw = new StringBuilder();
+      for (String row : parses.get(i).split("\n")) {
+        final String[] columns = row.split("\t");
+        if (columns.length < 8) {
+          throw new BadRequestException("Not a ParZu dependency row: " + row);
+        }
+        if (raw.length() > 0) {
+          raw.append(' ');
+        }
+        raw.append(columns[1]);
+      }
+      final SentenceObj sentence = new SentenceObj(raw.toString());
+      final String tigerId = tigerSentences.get(i).getId().getId();
+      sentence.id = new Id(tigerId.matches("s\\d+") ? tigerId.substring(1) : tigerId);
+      if (personCheck) {
+        sentence.setNamedEntityList(new NamedEntityList());
+      }
+      sentences.sentenceList.add(sentence);
+
+      if (i > 0) {
+        dependencies.append("\n\n");
+      }
+      dependencies.append(parses.get(i));
+    }
+
+    try {
+      final Scanner scanner = new Scanner(dependencies.toString());
+      scanner.useLocale(Locale.GERMANY);
+      sentences.readDependencyParse(scanner);
+    } catch (RuntimeException e) {
+      throw new BadRequestException("The dependency parse does not match the sentences: " + e);
+    }
+    if (extractor.isCandidatePrefilter()) {
+      sentences.markCandidates(extractor.getModules());
+    }
+    if (normalize) {
+      sentences.normalizeDependencyGraphs(extractor.getSentenceTimeBudget(), extractor.getMetrics());
+    }
+    try {
+      new SalsaAPIConnective(corpus, sentences);
+    } catch (RuntimeException e) {
+      throw new BadRequestException("The Tiger XML does not match the sentences: " + e);
+    }
+
+    final List<Future<Semantics>> results = new ArrayList<Future<Semantics>>();
+    for (final SentenceObj sentence : sentences.sentenceList) {
+      results.add(workers.submit(new Callable<Semantics>() {
+        public Semantics call() {
+          return SentimentChecker.toSemantics(extractor.annotate(sentence));
+        }
+      }));
+    }
+    for (int i = 0; i < results.size(); i++) {
+      try {
+        tigerSentences.get(i).setSem(results.get(i).get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while annotating the batch");
+      } catch (ExecutionException e) {
+        throw new IOException("Could not annotate sentence " + tigerSentences.get(i).getId().getId(),
+                e.getCause());
+      }
+    }
+
+    if (corpus.getHead() == null) {
+      corpus.setHead(new Head());
+    }
+    SentimentChecker.declareFrames(corpus.getHead());
+    return corpus;
+  }
+
+  private static int findXmlStart(String batch) {
+    if (batch.startsWith("<")) {
+      return 0;
+    }
+    final int index = batch.indexOf("\n<");
+    return index < 0 ? -1 : index + 1;
+  }
+
+  private Corpus parseCorpus(String xml) throws BadRequestException, IOException {
+    if (!xml.contains("<corpus")) {
+      xml = "<corpus corpusname=\"batch\" target=\"\"><body>" + xml + "</body></corpus>";
+    }
+    final Corpus corpus;
+    try {
+      // the parser is not thread-safe
+      synchronized (corpusParser) {
+        corpus = corpusParser.parseCorpusFromString(xml);
+      }
+    } catch (SAXException e) {
+      throw new BadRequestException("Could not parse the Salsa / Tiger XML: " + e.getMessage());
+    }
+    if (corpus.getBody() == null) {
+      corpus.setBody(new Body());
+    }
+    return corpus;
+  }
+
+  /**
+   * Splits a dependency parse into the rows of the single sentences. Carriage returns and additional empty
+   * lines are removed.
+   */
+  private static List<String> splitSentences(String parse) {
+    final List<String> sentences = new ArrayList<String>();
+    for (String sentence : parse.replace("\r", "").split("\n\\s*\n")) {
+      if (!sentence.trim().isEmpty()) {
+        sentences.add(sentence.trim());
+      }
+    }
+    return sentences;
+  }
+
+  private synchronized void recordLatency(long nanos) {
+    latencies[latencyCount % LATENCY_WINDOW] = nanos;
+    latencyCount++;
+  }
+
+  private synchronized long[] recentLatencies() {
+    final long[] recent = Arrays.copyOf(latencies, Math.min(latencyCount, LATENCY_WINDOW));
+    Arrays.sort(recent);
+    return recent;
+  }
+
+  private static String percentile(long[] sorted, double p) {
+    if (sorted.length == 0) {
+      return "null";
+    }
+    final int index = (int) Math.ceil(p / 100 * sorted.length) - 1;
+    return String.format(Locale.ENGLISH, "%.3f", sorted[Math.max(index, 0)] / 1e6);
+  }
+
+  /**
+   * Writes the frames of all sentences of an annotated corpus as JSON.
+   */
+  static String toJson(Corpus corpus) {
+    final StringBuilder json = new StringBuilder("{\"sentences\":[");
+    final List<Sentence> sentences = corpus.getBody().getSentences();
+    for (int i = 0; i < sentences.size(); i++) {
+      final Sentence sentence = sentences.get(i);
+      json.append(i > 0 ? "," : "").append("{\"id\":").append(quote(sentence.getId().getId()))
+              .append(",\"frames\":[");
+      boolean firstFrame = true;
+      if (sentence.getSem() != null) {
+        for (Frames frames : sentence.getSem().getFrames()) {
+          for (Frame frame : frames.getFrames()) {
+            json.append(firstFrame ? "" : ",").append("{\"id\":").append(quote(frame.getId().getId()))
+                    .append(",\"name\":").append(quote(frame.getName()))
+                    .append(",\"target\":").append(fenodes(frame.getTarget() == null
+                                    ? new ArrayList<Fenode>() : frame.getTarget().getFenodes()))
+                    .append(",\"fes\":[");
+            for (int j = 0; j < frame.getFes().size(); j++) {
+              final FrameElement fe = frame.getFes().get(j);
+              json.append(j > 0 ? "," : "").append("{\"id\":").append(quote(fe.getId().getId()))
+                      .append(",\"name\":").append(quote(fe.getName()))
+                      .append(",\"fenodes\":").append(fenodes(fe.getFenodes()))
+                      .append(",\"flags\":").append(flags(fe.getFlags())).append("}");
+            }
+            json.append("],\"flags\":").append(flags(frame.getFlags())).append("}");
+            firstFrame = false;
+          }
+        }
+      }
+      json.append("]}");
+    }
+    return json.append("]}").toString();
+  }
+
+  private static String fenodes(List<Fenode> fenodes) {
+    final StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < fenodes.size(); i++) {
+      json.append(i > 0 ? "," : "").append(quote(fenodes.get(i).getIdref().getId()));
+    }
+    return json.append("]").toString();
+  }
+
+  private static String flags(List<Flag> flags) {
+    final StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < flags.size(); i++) {
+      json.append(i > 0 ? "," : "").append(quote(flags.get(i).getName()));
+    }
+    return json.append("]").toString();
+  }
+
+  /**
+   * @param value A string or null.
+   * @return The value as a JSON string literal, or null.
+   */
+  static String quote(String value) {
+    return appendQuoted(new StringBuilder(), value).toString();
+  }
+
+  /**
+   * Appends a value like {@link #quote(String)}, without creating intermediate strings.
+   *
+   * @param json The buffer to append to.
+   * @param value A string or null.
+   * @return The buffer.
+   */
+  static StringBuilder appendQuoted(StringBuilder json, String value) {
+    if (value == null) {
+      return json.append("null");
+    }
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          json.append("\\\"");
+          break;
+        case '\\':
+          json.append("\\\\");
+          break;
+        case '\n':
+          json.append("\\n");
+          break;
+        case '\r':
+          json.append("\\r");
+          break;
+        case '\t':
+          json.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            json.append(String.format("\\u%04x", (int) c));
+          } else {
+            json.append(c);
+          }
+      }
+    }
+    return json.append('"');
+  }
+
+  private static String readBody(HttpExchange exchange) throws IOException {
+    final InputStream in = exchange.getRequestBody();
+    try {
+      final ByteArrayOutputStream body = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[1 << 16];
+      int read;
+      while ((read = in.read(buffer)) > 0) {
+        body.write(buffer, 0, read);
+      }
+      return new String(body.toByteArray(), UTF8);
+    } finally {
+      in.close();
+    }
+  }
+
+  private static void respond(HttpExchange exchange, int status, String contentType, String body)
+          throws IOException {
+    final byte[] bytes = body.getBytes(UTF8);
+    exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=UTF-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+    final OutputStream out = exchange.getResponseBody();
+    try {
+      out.write(bytes);
+    } finally {
+      out.close();
+    }
+  }
+
+  private static boolean wantsJson(URI uri) {
+    final String query = uri.getRawQuery();
+    return query != null && Arrays.asList(query.split("&")).contains("format=json");
+  }
+
+  /**
+   * Thrown if a batch cannot be read.
+   */
+  static class BadRequestException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    BadRequestException(String message) {
+      super(message);
+    }
+  }
+
+  private class AnnotateHandler implements HttpHandler {
+
+    public void handle(HttpExchange exchange) throws IOException {
+      if (!exchange.getRequestMethod().equals("POST")) {
+        respond(exchange, 405, "text/plain", "Use POST to send a batch\n");
+        return;
+      }
+      final long start = System.nanoTime();
+      try {
+        final Corpus corpus = annotate(readBody(exchange));
+        if (wantsJson(exchange.getRequestURI())) {
+          respond(exchange, 200, "application/json", toJson(corpus));
+        } else {
+          respond(exchange, 200, "application/xml", corpus.toString());
+        }
+        batches.incrementAndGet();
+        recordLatency(System.nanoTime() - start);
+      } catch (BadRequestException e) {
+        failedBatches.incrementAndGet();
+        respond(exchange, 400, "text/plain", e.getMessage() + "\n");
+      } catch (IOException e) {
+        failedBatches.incrementAndGet();
+        e.printStackTrace();
+        respond(exchange, 500, "text/plain", e.getMessage() + "\n");
+      } catch (RuntimeException e) {
+        failedBatches.incrementAndGet();
+        e.printStackTrace();
+        respond(exchange, 500, "text/plain", e + "\n");
+      }
+    }
+  }
+
+  private class HealthHandler implements HttpHandler {
+
+    public void handle(HttpExchange exchange) throws IOException {
+      respond(exchange, 200, "application/json", "{\"status\":\"UP\",\"uptimeSeconds\":"
+              + (System.currentTimeMillis() - startTime) / 1000 + ",\"batches\":" + batches.get()
+              + ",\"failedBatches\":" + failedBatches.get() + "}");
+    }
+  }
+
+  private class LatencyHandler implements HttpHandler {
+
+    public void handle(HttpExchange exchange) throws IOException {
+      final long[] recent = recentLatencies();
+      respond(exchange, 200, "application/json", "{\"unit\":\"ms\",\"batches\":" + recent.length
+              + ",\"p50\":" + percentile(recent, 50) + ",\"p90\":" + percentile(recent, 90)
+              + ",\"p99\":" + percentile(recent, 99) + ",\"max\":" + percentile(recent, 100) + "}");
+    }
+  }
+
+  private class MetricsHandler implements HttpHandler {
+
+    public void handle(HttpExchange exchange) throws IOException {
+      respond(exchange, 200, "application/json", extractor.getMetrics().toJson());
+    }
+  }
+}
@@ -0,0 +1,177 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import salsa.corpora.xmlparser.CorpusParser;
+
+/**
+ * Checks the {@link ExtractionServer} with the sample corpus in the data directory
+ * (data/hgcSample.*.rand500.*): it starts a server on a free port, posts the first sentences once as a whole
+ * Salsa / Tiger XML corpus and once as bare <code>&lt;s&gt;</code> elements, and fails unless both batches
+ * are annotated with the same frames. The frames of a sentence are compared regardless of their order and
+ * ids, since the modules do not find them in a fixed order. Since the server is stopped at the end, the
+ * check also hangs if the server leaves threads running after {@link ExtractionServer#stop()}.
+ *
+ * The modules iterate over hash sets of words and edges in the order of their identity hash codes, so with
+ * the default hash codes a sentence can get other frames, e.g. another target, each time it is annotated.
+ * The check therefore only runs in a JVM with fixed identity hash codes (-XX:hashCode=2).
+ *
+ * Usage (in the repository directory):
+ * <code>java -XX:+UnlockExperimentalVMOptions -XX:hashCode=2 ExtractionServerCheck [sentences]</code>
+ */
+public class ExtractionServerCheck {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final String DEPENDENCY_PATH = "data/hgcSample.parZu.rand500.txt";
+  private static final String CONSTITUENCY_PATH = "data/hgcSample.tiger.rand500.xml";
+
+  private static final Pattern SENTENCE = Pattern.compile("<s[ >].*?</s>", Pattern.DOTALL);
+
+  // the fields of the sentences, frames and frame elements in a JSON response
+  private static final Pattern FIELD = Pattern.compile("\"(id|name|target|fenodes|flags)\":(\"[^\"]*\"|\\[[^\\]]*\\])");
+
+  private static final String FIXED_HASH_CODES = "-XX:hashCode=2";
+
+  public static void main(String[] args) throws Exception {
+    if (!ManagementFactory.getRuntimeMXBean().getInputArguments().contains(FIXED_HASH_CODES)) {
+      throw new IllegalStateException("The frames depend on the identity hash codes, run the check with "
+              + "-XX:+UnlockExperimentalVMOptions " + FIXED_HASH_CODES);
+    }
+    final int size = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+
+    final String xml = new String(Files.readAllBytes(Paths.get(CONSTITUENCY_PATH)), UTF8);
+    final StringBuilder fragments = new StringBuilder();
+    final Matcher sentence = SENTENCE.matcher(xml);
+    int found = 0;
+    while (found < size && sentence.find()) {
+      fragments.append(sentence.group()).append('\n');
+      found++;
+    }
+    final List<String> parses = readParses(size);
+    if (found != size || parses.size() != size) {
+      throw new IllegalStateException("The sample corpus has fewer than " + size + " sentences");
+    }
+    final StringBuilder dependencies = new StringBuilder();
+    for (String parse : parses) {
+      dependencies.append(parse).append("\n\n");
+    }
+
+    final int headEnd = xml.indexOf("</head>") + "</head>".length();
+    final String corpus = xml.substring(0, headEnd) + "\n<body>\n" + fragments + "</body>\n</corpus>\n";
+
+    final OpinionRoleExtractor extractor = new OpinionRoleExtractor.Builder().build();
+    final ExtractionServer server = new ExtractionServer(extractor, true, false, new CorpusParser(false), 0,
+            Runtime.getRuntime().availableProcessors());
+    server.start();
+    try {
+      final String url = "http://localhost:" + server.getPort() + "/annotate?format=json";
+      // the <s> elements are posted first, when the parser of the server has not yet read any head
+      final String fromFragments = post(url, dependencies.toString() + fragments);
+      final String fromCorpus = post(url, dependencies + corpus);
+      final String fromFragmentsAgain = post(url, dependencies.toString() + fragments);
+      if (!canonical(fromCorpus).equals(canonical(fromFragments))
+              || !canonical(fromCorpus).equals(canonical(fromFragmentsAgain))) {
+        throw new IllegalStateException("The <s> elements were annotated differently than the whole corpus:\n"
+                + fromCorpus + "\n" + fromFragments + "\n" + fromFragmentsAgain);
+      }
+    } finally {
+      server.stop();
+    }
+    System.out.println("OK: " + size + " sentences annotated alike as a corpus and as <s> elements");
+  }
+
+  /**
+   * Lists the frames of each sentence of a JSON response without their ids and in sorted order.
+   */
+  private static String canonical(String json) {
+    final StringBuilder result = new StringBuilder();
+    final List<String> frames = new ArrayList<String>();
+    StringBuilder frame = null;
+    final Matcher field = FIELD.matcher(json);
+    while (field.find()) {
+      final String value = field.group(2);
+      if (field.group(1).equals("id") && !value.contains("_f")) {
+        // the next sentence
+        if (frame != null) {
+          frames.add(frame.toString());
+          frame = null;
+        }
+        Collections.sort(frames);
+        result.append(frames).append('\n').append(value).append(": ");
+        frames.clear();
+      } else if (field.group(1).equals("id") && !value.contains("_e")) {
+        if (frame != null) {
+          frames.add(frame.toString());
+        }
+        frame = new StringBuilder();
+      } else if (!field.group(1).equals("id") && frame != null) {
+        frame.append(field.group()).append(' ');
+      }
+    }
+    if (frame != null) {
+      frames.add(frame.toString());
+    }
+    Collections.sort(frames);
+    return result.append(frames).toString();
+  }
+
+  /**
+   * Reads the dependency parses of the first sentences.
+   */
+  private static List<String> readParses(int size) throws IOException {
+    final String parse = new String(Files.readAllBytes(Paths.get(DEPENDENCY_PATH)), UTF8);
+    final List<String> parses = new ArrayList<String>();
+    for (String rows : parse.replace("\r", "").split("\n\\s*\n")) {
+      if (parses.size() < size && !rows.trim().isEmpty()) {
+        parses.add(rows.trim());
+      }
+    }
+    return parses;
+  }
+
+  /**
+   * Posts a batch and returns the response body.
+   *
+   * @throws IllegalStateException If the server does not respond with status 200.
+   */
+  private static String post(String url, String batch) throws IOException {
+    final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    final OutputStream out = connection.getOutputStream();
+    try {
+      out.write(batch.getBytes(UTF8));
+    } finally {
+      out.close();
+    }
+    final int status = connection.getResponseCode();
+    final InputStream in = status == 200 ? connection.getInputStream() : connection.getErrorStream();
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    try {
+      final byte[] buffer = new byte[1 << 13];
+      for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+        body.write(buffer, 0, read);
+      }
+    } finally {
+      in.close();
+    }
+    final String response = new String(body.toByteArray(), UTF8);
+    if (status != 200) {
+      throw new IllegalStateException("The server responded with status " + status + ": " + response);
+    }
+    return response;
+  }
+}
@@ -195,6 +195,24 @@ public class GrammarInducedModule implements Module {
                 || (subjunctive2WuerdenTrigger && isSubjunctive2Auxiliary(sentence, word));
     }
 
+    /**
+     * Checks the parts of {@link #isTrigger} that only depend on the word
+     * itself: the lemma of modal verbs, the imperative tag and the forms of
+     * "werden" and "würden".
+     */
+    @Override
+    public boolean isCandidate(SentenceObj sentence) {
+        for (WordObj word : sentence.wordList) {
+            if ((modalTrigger && modalVerbChecker.isModalVerb(word))
+                    || (imperativeTrigger && (new Pos(word.getPos()).getVerbMood() == PosVerbMood.IMPERATIVE))
+                    || (futureTrigger && INDICATIVE_WERDEN_FORMS.contains(word.getName().toLowerCase()))
+                    || (subjunctive2WuerdenTrigger && WUERDEN_FORMS.contains(word.getName().toLowerCase()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Used by {@link #isFutureAuxiliary}
      */
@@ -0,0 +1,187 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import salsa.corpora.elements.Fenode;
+import salsa.corpora.elements.Flag;
+import salsa.corpora.elements.Frame;
+import salsa.corpora.elements.FrameElement;
+import salsa.corpora.elements.Graph;
+import salsa.corpora.elements.Nonterminal;
+import salsa.corpora.elements.Terminal;
+import salsa.util.CompressedStreams;
+
+/**
+ * A {@link JsonLinesWriter} writes the frames found in each sentence as one JSON object per line, e.g.
+ *
+ * <pre>
+ * {"id":"s1","text":"Er kritisiert die Pläne .","frames":[{"id":"s1_f1","name":"SubjectiveExpression",
+ *  "target":["s1_2"],"targetSpans":[[2,2]],"fes":[{"id":"s1_f1_e1","name":"Source","fenodes":["s1_1"],
+ *  "spans":[[1,1]],"flags":[]}, ...],"flags":[]}]}
+ * </pre>
+ *
+ * The fields of the frames are those of the JSON output of the {@link ExtractionServer}. In addition, the
+ * nodes of the target and of each frame element are resolved to spans of token positions (1-based, both
+ * ends inclusive), so the graphs need not be read to find the words. Unlike the Salsa XML output, each
+ * line is written as soon as its sentence has been annotated, and the graphs are not copied. The line is
+ * built in a buffer which is reused for all sentences.
+ */
+public class JsonLinesWriter implements Closeable {
+
+  private final Writer out;
+  private final StringBuilder line = new StringBuilder(1 << 12);
+
+  // the token positions of the terminals and the nonterminals of the current sentence by id
+  private final Map<String, Integer> positions = new HashMap<String, Integer>();
+  private final Map<String, Nonterminal> nonterminals = new HashMap<String, Nonterminal>();
+  private final BitSet tokens = new BitSet();
+  private final List<Fenode> noFenodes = new ArrayList<Fenode>();
+
+  /**
+   * @param out The writer to which the lines are written.
+   */
+  public JsonLinesWriter(Writer out) {
+    this.out = out;
+  }
+
+  /**
+   * Opens a UTF-8 encoded file, which is gzip compressed if its name ends with ".gz".
+   *
+   * @param filename The path of the file.
+   * @throws IOException If the file cannot be created.
+   */
+  public JsonLinesWriter(String filename) throws IOException {
+    this(new OutputStreamWriter(CompressedStreams.openOutput(filename), "UTF-8"));
+  }
+
+  /**
+   * Writes the line of a sentence.
+   *
+   * @param id The id of the sentence in the Tiger XML file.
+   * @param text The text of the sentence.
+   * @param graph The graph of the sentence, which is used to find the tokens of the nodes.
+   * @param frames The frames found in the sentence.
+   * @throws IOException If the line cannot be written.
+   */
+  public void write(String id, String text, Graph graph, Collection<Frame> frames) throws IOException {
+    positions.clear();
+    nonterminals.clear();
+    if (graph != null && !frames.isEmpty()) {
+      int position = 1;
+      for (Terminal terminal : graph.getTerminals().getTerminals()) {
+        positions.put(terminal.getId().getId(), position++);
+      }
+      for (Nonterminal nonterminal : graph.getNonterminals().getNonterminals()) {
+        nonterminals.put(nonterminal.getId().getId(), nonterminal);
+      }
+    }
+
+    line.setLength(0);
+    line.append("{\"id\":");
+    ExtractionServer.appendQuoted(line, id);
+    line.append(",\"text\":");
+    ExtractionServer.appendQuoted(line, text);
+    line.append(",\"frames\":[");
+    boolean firstFrame = true;
+    for (Frame frame : frames) {
+      line.append(firstFrame ? "{\"id\":" : ",{\"id\":");
+      ExtractionServer.appendQuoted(line, frame.getId() == null ? null : frame.getId().getId());
+      line.append(",\"name\":");
+      ExtractionServer.appendQuoted(line, frame.getName());
+      final List<Fenode> target = frame.getTarget() == null ? noFenodes : frame.getTarget().getFenodes();
+      line.append(",\"target\":");
+      appendFenodes(target);
+      line.append(",\"targetSpans\":");
+      appendSpans(target);
+      line.append(",\"fes\":[");
+      for (int i = 0; i < frame.getFes().size(); i++) {
+        final FrameElement fe = frame.getFes().get(i);
+        line.append(i > 0 ? ",{\"id\":" : "{\"id\":");
+        ExtractionServer.appendQuoted(line, fe.getId() == null ? null : fe.getId().getId());
+        line.append(",\"name\":");
+        ExtractionServer.appendQuoted(line, fe.getName());
+        line.append(",\"fenodes\":");
+        appendFenodes(fe.getFenodes());
+        line.append(",\"spans\":");
+        appendSpans(fe.getFenodes());
+        line.append(",\"flags\":");
+        appendFlags(fe.getFlags());
+        line.append('}');
+      }
+      line.append("],\"flags\":");
+      appendFlags(frame.getFlags());
+      line.append('}');
+      firstFrame = false;
+    }
+    line.append("]}\n");
+    out.append(line);
+  }
+
+  private void appendFenodes(List<Fenode> fenodes) {
+    line.append('[');
+    for (int i = 0; i < fenodes.size(); i++) {
+      if (i > 0) {
+        line.append(',');
+      }
+      ExtractionServer.appendQuoted(line, fenodes.get(i).getIdref().getId());
+    }
+    line.append(']');
+  }
+
+  /**
+   * Appends the maximal runs of consecutive tokens covered by the nodes.
+   */
+  private void appendSpans(List<Fenode> fenodes) {
+    tokens.clear();
+    for (Fenode fenode : fenodes) {
+      addTokens(fenode.getIdref().getId(), 0);
+    }
+    line.append('[');
+    boolean first = true;
+    for (int start = tokens.nextSetBit(0); start >= 0; ) {
+      final int end = tokens.nextClearBit(start);
+      line.append(first ? "[" : ",[").append(start).append(',').append(end - 1).append(']');
+      first = false;
+      start = tokens.nextSetBit(end);
+    }
+    line.append(']');
+  }
+
+  private void addTokens(String id, int depth) {
+    final Integer position = positions.get(id);
+    if (position != null) {
+      tokens.set(position);
+      return;
+    }
+    final Nonterminal nonterminal = nonterminals.get(id);
+    // the depth guards against cycles in malformed graphs
+    if (nonterminal != null && depth <= nonterminals.size()) {
+      for (salsa.corpora.elements.Edge edge : nonterminal.getEdges()) {
+        addTokens(edge.getId().getId(), depth + 1);
+      }
+    }
+  }
+
+  private void appendFlags(List<Flag> flags) {
+    line.append('[');
+    for (int i = 0; i < flags.size(); i++) {
+      if (i > 0) {
+        line.append(',');
+      }
+      ExtractionServer.appendQuoted(line, flags.get(i).getName());
+    }
+    line.append(']');
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
@@ -1,12 +1,16 @@
 
 import java.util.*;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 
-import javax.xml.stream.XMLStreamException;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
 
 import de.tuebingen.uni.sfs.germanet.api.GermaNet;
+import salsa.corpora.elements.Corpus;
+import salsa.corpora.xmlparser.CorpusParser;
 
 /**
  * The {@link Main} class handles all steps of the process of identifying
@@ -21,11 +25,36 @@ public class Main {
    * @param args The arguments of the system input. The only argument should be
    * the path of the configuration file (see the README for details on what
    * should be specified in the configuration file). If no argument is given,
-   * the default configuration file will be used.
+   * the default configuration file will be used. If the first argument is
+   * <code>validate</code>, the remaining arguments are Salsa / Tiger XML files
+   * which are validated instead (see {@link #validate(String[])}). If it is
+   * <code>compileLexicon</code>, a lexicon is compiled instead (see
+   * {@link #compileLexicon(String[])}). If it is <code>serve</code>, the
+   * remaining argument is the configuration file and an
+   * {@link ExtractionServer} is started instead of analysing the input files.
+   * If it is <code>sweep</code>, the input is analysed with several
+   * configurations (see {@link #sweep(String[])}).
    * @throws IOException If a path as specified in the configuration file does
    * not point to a file.
    */
   public static void main(String args[]) throws IOException {
+    if (args.length >= 1 && args[0].equals("validate")) {
+      validate(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    if (args.length >= 1 && args[0].equals("compileLexicon")) {
+      compileLexicon(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    if (args.length >= 1 && args[0].equals("sweep")) {
+      sweep(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    final boolean serve = args.length >= 1 && args[0].equals("serve");
+    if (serve) {
+      args = Arrays.copyOfRange(args, 1, args.length);
+    }
+
     // read in configuration file
     System.out.println("Loading files...");
     ConfigReader conReader;
@@ -62,129 +91,96 @@ public class Main {
     }
     System.out.println("Find sentiment targets set to " + findTargets + ".");
 
-    // read in sentiment lexicon 
-    String fileLex = prop.getProperty(ConfigKeys.LEXICON_PATH);
-    System.out.println("Reading lexicon from " + fileLex + "...");
-
-    boolean flexibleMWEs = false;
-    if (prop.getProperty(ConfigKeys.FLEXIBLE_MWES).equals("True")) {
-      flexibleMWEs = true;
+    // the output is either a Salsa XML corpus or one line of JSON per sentence
+    final boolean jsonLines = prop.getProperty(ConfigKeys.OUTPUT_FORMAT).equals("JsonLines");
+    if (!jsonLines && !prop.getProperty(ConfigKeys.OUTPUT_FORMAT).equals("SalsaXml")) {
+      throw new IllegalArgumentException("OutputFormat must be SalsaXml or JsonLines, not "
+              + prop.getProperty(ConfigKeys.OUTPUT_FORMAT));
     }
-    SentimentLex lex = new SentimentLex(flexibleMWEs); // argument should become  TODO <
-    lex.fileToLex(fileLex);
 
-    // read in raw input text and create SentenceList based on it
-    String fileRaw = prop.getProperty(ConfigKeys.TEXT_PATH);
+    // the time of every stage and module is recorded and written to MetricsReportPath if it is set
+    final PipelineMetrics metrics = new PipelineMetrics();
 
-    System.out.println("Reading text from " + fileRaw + "...");
-    SentenceList sentences = new SentenceList();
-    sentences.rawToSentenceList(fileRaw);
+    // load the sentiment lexicon and GermaNet and create the classic and grammar induced modules
+    final OpinionRoleExtractor extractor = new OpinionRoleExtractor.Builder().config(prop.properties)
+            .metrics(metrics).build();
+    final SentimentLex lex = extractor.getLexicon();
 
-    // read in dependency parse file and create a DependencyGraph object for each sentence
-    String dependencyFile = prop.getProperty(ConfigKeys.DEPENDENCY_PATH);
-
-    System.out.println("Reading dependency data from " + dependencyFile + "...");
-    System.out.println("Creating dependency graph...");
-    sentences.readDependencyParse(dependencyFile);
-
-    // normalize DependencyGraph objects if specified in configuration file
-    String normalizeDependencyGraphs = prop.getProperty(ConfigKeys.NORMALIZE_DEPENDENCY_GRAPHS);
-
-    if (normalizeDependencyGraphs.equals("True")) {
-      System.out.println("Normalizing dependency graph...");
-      sentences.normalizeDependencyGraphs();
+    if (serve) {
+      serve(prop, extractor);
+      return;
     }
 
-    // read in Salsa / Tiger XML file and create a ConstituencyTree object for every sentence
-    String constituencyFile = prop.getProperty(ConfigKeys.CONSTITUENCY_PATH);
-
-    System.out.println("Reading constituency data from " + constituencyFile + "...");
-    System.out.println("Creating constituency tree...");
-    SalsaAPIConnective salsa = new SalsaAPIConnective(constituencyFile, sentences);
-
     // Retrieve the value of the person check property, to be later used by the morphologyChecker,
     // as well as the classic module.
     String personCheck = prop.getProperty(ConfigKeys.PERSON_CHECK);
 
-    // instantiate a GermaNet object.  The object will be by default null, but will be instantiated
-    // as a GermaNet object if a file path for GermaNet has been provided, and personCheck
-    // has been set to true.  The GermaNet object will be used with the MorphologyChecker and the 
-    // Classic module.
-    GermaNet gNet = null;
-    if (personCheck.equals("True")) {
-      String germaNetDir = prop.getProperty(ConfigKeys.GERMANET_DIR);
-      System.out.println("Reading GermaNet data from directory " + germaNetDir + "..." + "\n");
-
-      if (germaNetDir == null) {
-        throw new IllegalArgumentException("germaNetDir must not be null if personCheck is set");
-      }
-
-      gNet = instantiateGermaNet(germaNetDir);
-    }
-
-    // read in the morphology parse file and create a MorphologyChecker object if MorphologyCheck in
-    // the Configfile is set to true.  Only updates person nouns if PersonCheck is set to "true".
-    // only updates sentiment nouns, if MorphologySentimentOff is set to "False".
-    String morphologyCheck = prop.getProperty(ConfigKeys.MORPHOLOGY_CHECK);
-
-    if (morphologyCheck.equals("True")) {
+    // if specified in configuration file, the classic module runs a named entity check for sentiment source phrases,
+    // so the named entities are read during preprocessing.
+    final boolean readNamedEntities = prop.getProperty(ConfigKeys.USE_CLASSIC_MODULE).equals("True")
+            && personCheck.equals("True");
 
-      String MorphologySentimentOff = prop.getProperty(ConfigKeys.MORPHOLOGY_SENTIMENT_OFF);
-      String morphologyFile = prop.getProperty(ConfigKeys.MORPHOLOGY_PATH);
-      System.out.println("Reading morphology data from " + morphologyFile + "...");
-      MorphologyChecker morphcheck = new MorphologyChecker(morphologyFile, gNet, personCheck.equals("True"), lex);
+    // one parser is shared by all Salsa / Tiger XML files. Unless ValidateXml is set, it skips validation
+    // and does not load the DTD, since our files are known to be well-formed.
+    CorpusParser corpusParser = instantiateCorpusParser(prop.getPropertyBool(ConfigKeys.VALIDATE_XML));
 
-      if (personCheck.equals("True")) {
-        System.out.println("Updating lemma information for person nouns");
-        morphcheck.checkMorphhology(sentences, true, false);
+    // if a snapshot of the preprocessed input exists, skip reading and normalizing the input files
+    SentenceList sentences = new SentenceList();
+    SalsaAPIConnective salsa = null;
+    final CorpusSnapshot snapshot = openSnapshot(prop, readNamedEntities);
+
+    // sentences without any lexicon entry or trigger of the grammar induced module skip the preprocessing and
+    // the modules. This is not possible if the morphology check may still change lemmas, if preset subjective
+    // expressions are used, or if the preprocessed sentences are kept in a snapshot for runs with other settings.
+    final Collection<Module> candidateModules = extractor.isCandidatePrefilter()
+            && !prop.getPropertyBool(ConfigKeys.MORPHOLOGY_CHECK)
+            && !prop.getPropertyBool(ConfigKeys.USE_PRESET_SE_LOCATION_MODULE)
+            && !prop.getPropertyBool(ConfigKeys.IGNORE_LEXICON) && snapshot == null ? extractor.getModules() : null;
+    if (snapshot != null && snapshot.exists()) {
+      System.out.println("Reading preprocessed corpus from " + snapshot.getFile() + "...");
+      final PipelineMetrics.Stage stage = metrics.startStage("Reading snapshot");
+      try {
+        salsa = snapshot.read(sentences, corpusParser);
+        stage.stop();
+      } catch (IOException e) {
+        System.err.println("Could not read snapshot " + snapshot.getFile() + ", preprocessing the input again: "
+                + e.getMessage());
+        sentences = new SentenceList();
+        salsa = null;
       }
-
-      if (MorphologySentimentOff.equals("False")) {
-        System.out.println("Updating lemma information for sentiment nouns");
-        morphcheck.checkMorphhology(sentences, false, true);
+    }
+    if (salsa == null) {
+      salsa = preprocess(prop, sentences, corpusParser, null, readNamedEntities, candidateModules, metrics);
+      // a graph that fell back to the raw parse depends on the timing of this run and is not cached
+      if (snapshot != null) {
+        sentences.buildGraphs();
+      }
+      if (snapshot != null && metrics.getNormalizationFallbacks() > 0) {
+        System.out.println("Not writing a snapshot since some sentences exceeded the time budget");
+      } else if (snapshot != null) {
+        System.out.println("Writing preprocessed corpus to " + snapshot.getFile() + "...");
+        final PipelineMetrics.Stage stage = metrics.startStage("Writing snapshot");
+        try {
+          snapshot.write(sentences, salsa);
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+        stage.stop();
       }
-
     }
 
-    final Set<Module> modules = new HashSet<Module>();
+    // The GermaNet object is null unless personCheck has been set to true. It is used with the MorphologyChecker
+    // and the Classic module.
+    final GermaNet gNet = extractor.getGermaNet();
 
-    if (prop.getProperty(ConfigKeys.USE_CLASSIC_MODULE).equals("True")) {
-      System.out.println("Initializing the classic module");
-      final ClassicModule classicModule;
-      // if specified in configuration file, run named entity check for sentiment source phrase. Filter those phrases whose head is NOT a named entity.
-      if (personCheck.equals("True")) {
-        String namedEntityFile = prop.getProperty(ConfigKeys.NAMED_ENTITY_PATH);
-        System.out.println("Reading named entity data from " + namedEntityFile + "...");
-        NamedEntityReader namedEntityReader = new NamedEntityReader(namedEntityFile);
-        namedEntityReader.readNamedEntities(sentences);
-        System.out.println("");
-
-        classicModule = new ClassicModule(lex, true, findSources, findTargets, gNet);
-      } // if specified in configuration file, do not run named entity check for sentiment sources. Accept phrases as sentiment sources even if their heads are no named entities.
-      else {
-        classicModule = new ClassicModule(lex, false, findSources, findTargets);
-      }
-      modules.add(classicModule);
-    }
+    // read in the morphology parse file and update the lemmas if MorphologyCheck is set
+    checkMorphology(prop, sentences, gNet, lex, metrics);
+
+    final Set<Module> modules = new HashSet<Module>(extractor.getModules());
 
     Module giModule = null;
-    if (prop.getProperty(ConfigKeys.USE_GRAMMAR_INDUCED_MODULE).equals("True")
-            || prop.getProperty(ConfigKeys.USE_PRESET_SE_LOCATION_MODULE).equals("True")) {
-      System.out.println("Initializing the grammar induced module");
-      final Collection<String> customModalVerbs;
-      if (prop.getPropertyBool(ConfigKeys.USE_DEFAULT_MODAL_VERBS)) {
-        customModalVerbs = null;
-      } else {
-        customModalVerbs = parseList(prop.getProperty(ConfigKeys.CUSTOM_MODAL_VERB_LEMMAS));
-      }
-      final boolean modalTrigger = prop.getPropertyBool(ConfigKeys.GIM_TRIGGER_MODAL);
-      final boolean futureTrigger = prop.getPropertyBool(ConfigKeys.GIM_TRIGGER_FUTURE);
-      final boolean imperativeTrigger = prop.getPropertyBool(ConfigKeys.GIM_TRIGGER_IMPERATIVE);
-      final boolean subjunctive2Trigger = prop.getPropertyBool(ConfigKeys.GIM_TRIGGER_SUBJUNCTIVE2_WUERDEB);
-      giModule = new GrammarInducedModule(customModalVerbs, imperativeTrigger, modalTrigger, futureTrigger, subjunctive2Trigger, findSources, findTargets);
-      if (prop.getProperty(ConfigKeys.USE_GRAMMAR_INDUCED_MODULE).equals("True")) {
-        modules.add(giModule);
-      }
+    if (prop.getProperty(ConfigKeys.USE_PRESET_SE_LOCATION_MODULE).equals("True")) {
+      giModule = OpinionRoleExtractor.createGrammarInducedModule(prop, findSources, findTargets);
     }
 
     boolean ignoreLex = false;
@@ -206,60 +202,438 @@ public class Main {
       }
 
       String subjectiveExpressionLocationPath = prop.getProperty(ConfigKeys.SUBJECTIVE_EXPRESSION_LOCATION_PATH);
-      SalsaAPIConnective salsa2 = new SalsaAPIConnective(subjectiveExpressionLocationPath, sentences);
+      final PipelineMetrics.Stage stage = metrics.startStage("Reading preset subjective expressions");
+      SalsaAPIConnective salsa2 = new SalsaAPIConnective(subjectiveExpressionLocationPath, sentences, corpusParser);
 
       SubtaskParser neu = new SubtaskParser(salsa2, sentences);
       neu.searchSEs();
+      stage.stop();
       System.out.println("Number of preset subjective expressions found " + neu.getSEsFromInput().size());
       boolean ignoreLexicon = prop.getPropertyBool(ConfigKeys.IGNORE_LEXICON);
       final Module comp = new PresetSELocationModule(neu.getSEsFromInput(), sentences, lex, findSources, findTargets, ignoreLexicon, giModule);
 
       modules.add(comp);
     }
-    final SentimentChecker sentcheck = new SentimentChecker(salsa, sentences, modules);
+    // if a result cache is used, sentences which have been analysed in an earlier run are not analysed again.
+    // Otherwise, copies of a sentence which has already been analysed in this run are not analysed again.
+    ResultCache resultCache = openResultCache(prop);
+    if (resultCache != null && resultCache.getFile() != null) {
+      System.out.println("Reading result cache from " + resultCache.getFile() + "...");
+      final PipelineMetrics.Stage stage = metrics.startStage("Reading result cache");
+      try {
+        resultCache.read();
+      } catch (IOException e) {
+        System.err.println("Could not read result cache " + resultCache.getFile() + ", starting with an empty cache: "
+                + e.getMessage());
+        resultCache = openResultCache(prop);
+      }
+      stage.stop();
+    }
+
+    int analysisThreads = Integer.parseInt(prop.getProperty(ConfigKeys.ANALYSIS_THREADS));
+    if (analysisThreads <= 0) {
+      analysisThreads = Runtime.getRuntime().availableProcessors();
+    }
+    for (Module module : modules) {
+      // the preset module keeps track of the subjective expressions it has found, so it is not thread-safe
+      if (module instanceof PresetSELocationModule) {
+        analysisThreads = 1;
+      }
+    }
+    final int queueCapacity = Integer.parseInt(prop.getProperty(ConfigKeys.ANALYSIS_QUEUE_CAPACITY));
+
+    final SentimentChecker sentcheck = new SentimentChecker(salsa, sentences, modules, metrics,
+            extractor.getSentenceTimeBudget(), resultCache, analysisThreads, queueCapacity);
     // search for sentiment expressions and write results to the output file specified in the configuration file
     System.out.println("Looking for sentiment expressions...");
     String outputPath = prop.getProperty(ConfigKeys.OUTPUT_PATH);
 
-    sentcheck.findSentiments(outputPath);
+    if (jsonLines) {
+      sentcheck.writeJsonLines(outputPath);
+    } else {
+      sentcheck.findSentiments(outputPath);
+    }
+
+    if (resultCache != null) {
+      System.out.println(resultCache.getReport());
+    }
+    if (resultCache != null && resultCache.getFile() != null) {
+      System.out.println("Writing result cache to " + resultCache.getFile() + "...");
+      final PipelineMetrics.Stage stage = metrics.startStage("Writing result cache");
+      try {
+        resultCache.write();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      stage.stop();
+    }
+
+    final String metricsReportPath = prop.getProperty(ConfigKeys.METRICS_REPORT_PATH);
+    if (!metricsReportPath.isEmpty()) {
+      System.out.println("Writing metrics report to " + metricsReportPath + "...");
+      metrics.writeReport(metricsReportPath);
+    }
   }
 
   /**
-   * Reads in data from the GermaNet directory if the variable PersonCheck is
-   * set to true in the configuration file.
+   * Reads in the morphology parse file and updates the lemmas of the sentences
+   * with a {@link MorphologyChecker} if MorphologyCheck is set. Only updates
+   * person nouns if PersonCheck is set and only updates sentiment nouns if
+   * MorphologySentimentOff is not set.
    *
-   * @param germaNetDir The directory containing the GermaNet data.
+   * @param prop The configuration.
+   * @param sentences The preprocessed sentences.
+   * @param gNet The GermaNet object or null if PersonCheck is not set.
+   * @param lex The sentiment lexicon.
+   * @param metrics The metrics in which the time of the check is recorded.
    */
-  private static GermaNet instantiateGermaNet(String germaNetDir) {
+  static void checkMorphology(SafeProperties prop, SentenceList sentences, GermaNet gNet, SentimentLex lex,
+          PipelineMetrics metrics) {
+    String morphologyCheck = prop.getProperty(ConfigKeys.MORPHOLOGY_CHECK);
+
+    if (morphologyCheck.equals("True")) {
+
+      String personCheck = prop.getProperty(ConfigKeys.PERSON_CHECK);
+      String MorphologySentimentOff = prop.getProperty(ConfigKeys.MORPHOLOGY_SENTIMENT_OFF);
+      String morphologyFile = prop.getProperty(ConfigKeys.MORPHOLOGY_PATH);
+      System.out.println("Reading morphology data from " + morphologyFile + "...");
+      final PipelineMetrics.Stage stage = metrics.startStage("Morphology check");
+      MorphologyChecker morphcheck = new MorphologyChecker(morphologyFile, gNet, personCheck.equals("True"), lex);
+
+      if (personCheck.equals("True")) {
+        System.out.println("Updating lemma information for person nouns");
+        morphcheck.checkMorphhology(sentences, true, false);
+      }
 
-    GermaNet gNet = null;
+      if (MorphologySentimentOff.equals("False")) {
+        System.out.println("Updating lemma information for sentiment nouns");
+        morphcheck.checkMorphhology(sentences, false, true);
+      }
+      stage.stop();
 
-    File gNetDir = new File(germaNetDir);
+    }
+  }
+
+  /**
+   * Starts an {@link ExtractionServer} which annotates batches of preprocessed
+   * sentences with the resources and modules of an
+   * {@link OpinionRoleExtractor}. The preset subjective expression location
+   * module and the morphology check need files for the whole input and are not
+   * available in this mode.
+   *
+   * @param prop The configuration.
+   * @param extractor The extractor holding the lexicon and the modules.
+   * @throws IOException If the server cannot be started.
+   */
+  private static void serve(SafeProperties prop, OpinionRoleExtractor extractor) throws IOException {
+    if (prop.getPropertyBool(ConfigKeys.USE_PRESET_SE_LOCATION_MODULE) || prop.getPropertyBool(ConfigKeys.IGNORE_LEXICON)) {
+      throw new IllegalArgumentException("UsePresetSELocationModule and IgnoreLexicon are not supported by the server");
+    }
+    if (prop.getPropertyBool(ConfigKeys.MORPHOLOGY_CHECK)) {
+      System.err.println("Warning: MorphologyCheck is ignored by the server");
+    }
+
+    int threads = Integer.parseInt(prop.getProperty(ConfigKeys.SERVER_THREADS));
+    if (threads <= 0) {
+      threads = Runtime.getRuntime().availableProcessors();
+    }
+    final ExtractionServer server = new ExtractionServer(extractor,
+            prop.getProperty(ConfigKeys.NORMALIZE_DEPENDENCY_GRAPHS).equals("True"),
+            prop.getPropertyBool(ConfigKeys.PERSON_CHECK) && prop.getPropertyBool(ConfigKeys.USE_CLASSIC_MODULE),
+            instantiateCorpusParser(prop.getPropertyBool(ConfigKeys.VALIDATE_XML)),
+            Integer.parseInt(prop.getProperty(ConfigKeys.SERVER_PORT)), threads);
+    server.start();
+    System.out.println("Listening on port " + server.getPort() + " with " + threads + " threads...");
+  }
+
+  /**
+   * Reads the input files as specified in the configuration file: the raw
+   * text, the dependency parses (which are normalized if specified), the Salsa
+   * / Tiger XML file and, if needed, the named entities.
+   *
+   * @param prop The configuration.
+   * @param sentences An empty {@link SentenceList} which is filled with the
+   * sentences of the input.
+   * @param corpusParser The parser for the Salsa / Tiger XML file.
+   * @param corpus The already parsed Salsa / Tiger XML file, or null to parse
+   * the file of the configuration.
+   * @param readNamedEntities true if the named entities should be read.
+   * @param candidateModules The modules used to skip sentences in which none
+   * of them can find anything, or null to preprocess all sentences.
+   * @param metrics The metrics in which the time of every step is recorded.
+   * @return The {@link SalsaAPIConnective} for the Salsa / Tiger XML file.
+   * @throws IOException If an input file cannot be read.
+   */
+  static SalsaAPIConnective preprocess(SafeProperties prop, SentenceList sentences,
+          CorpusParser corpusParser, Corpus corpus, boolean readNamedEntities, Collection<Module> candidateModules,
+          PipelineMetrics metrics) throws IOException {
+    // read in raw input text and create SentenceList based on it
+    String fileRaw = prop.getProperty(ConfigKeys.TEXT_PATH);
+
+    System.out.println("Reading text from " + fileRaw + "...");
+    PipelineMetrics.Stage stage = metrics.startStage("Reading text");
+    sentences.rawToSentenceList(fileRaw);
+    stage.stop();
+
+    // read in dependency parse file and create a DependencyGraph object for each sentence
+    String dependencyFile = prop.getProperty(ConfigKeys.DEPENDENCY_PATH);
+
+    System.out.println("Reading dependency data from " + dependencyFile + "...");
+    System.out.println("Creating dependency graph...");
+    stage = metrics.startStage("Reading dependency parses");
+    sentences.readDependencyParse(dependencyFile);
+    stage.stop();
+
+    if (candidateModules != null) {
+      final int skipped = sentences.markCandidates(candidateModules);
+      System.out.println(skipped + " sentences contain no lexicon entry or trigger and are skipped");
+    }
+
+    // normalize DependencyGraph objects if specified in configuration file
+    String normalizeDependencyGraphs = prop.getProperty(ConfigKeys.NORMALIZE_DEPENDENCY_GRAPHS);
+
+    if (normalizeDependencyGraphs.equals("True")) {
+      System.out.println("Normalizing dependency graph...");
+      stage = metrics.startStage("Normalizing dependency graphs");
+      long budgetMillis = Long.parseLong(prop.getProperty(ConfigKeys.SENTENCE_TIME_BUDGET_MILLIS));
+      sentences.normalizeDependencyGraphs(budgetMillis, metrics);
+      stage.stop();
+    }
+
+    // read in Salsa / Tiger XML file (or the Berkeley parses, if given) and create a ConstituencyTree object
+    // for every sentence
+    String constituencyFile = prop.getProperty(ConfigKeys.CONSTITUENCY_PATH);
+    String berkeleyParseFile = prop.getProperty(ConfigKeys.BERKELEY_PARSE_PATH);
+
+    System.out.println("Reading constituency data from "
+            + (berkeleyParseFile.isEmpty() ? constituencyFile : berkeleyParseFile) + "...");
+    System.out.println("Creating constituency tree...");
+    stage = metrics.startStage("Reading constituency trees");
+    if (corpus == null && !berkeleyParseFile.isEmpty()) {
+      corpus = BerkeleyParseReader.readCorpus(berkeleyParseFile);
+    }
+    SalsaAPIConnective salsa = corpus != null ? new SalsaAPIConnective(corpus, sentences)
+            : new SalsaAPIConnective(constituencyFile, sentences, corpusParser);
+    stage.stop();
+
+    if (readNamedEntities) {
+      String namedEntityFile = prop.getProperty(ConfigKeys.NAMED_ENTITY_PATH);
+      System.out.println("Reading named entity data from " + namedEntityFile + "...");
+      stage = metrics.startStage("Reading named entities");
+      NamedEntityReader namedEntityReader = new NamedEntityReader(namedEntityFile);
+      namedEntityReader.readNamedEntities(sentences);
+      stage.stop();
+      System.out.println("");
+    }
+
+    return salsa;
+  }
+
+  /**
+   * Creates the {@link CorpusSnapshot} for the input files and preprocessing
+   * settings of the configuration if SnapshotDir is set.
+   *
+   * @param prop The configuration.
+   * @param readNamedEntities true if the named entities are part of the
+   * preprocessed corpus.
+   * @return The snapshot or null if snapshots are disabled.
+   * @throws IOException If an input file cannot be read.
+   */
+  private static CorpusSnapshot openSnapshot(SafeProperties prop, boolean readNamedEntities) throws IOException {
+    final String snapshotDir = prop.getProperty(ConfigKeys.SNAPSHOT_DIR);
+    if (snapshotDir.isEmpty()) {
+      return null;
+    }
+
+    final List<String> inputFiles = new ArrayList<String>();
+    inputFiles.add(prop.getProperty(ConfigKeys.TEXT_PATH));
+    inputFiles.add(prop.getProperty(ConfigKeys.DEPENDENCY_PATH));
+    final String berkeleyParseFile = prop.getProperty(ConfigKeys.BERKELEY_PARSE_PATH);
+    inputFiles.add(berkeleyParseFile.isEmpty() ? prop.getProperty(ConfigKeys.CONSTITUENCY_PATH) : berkeleyParseFile);
+    if (readNamedEntities) {
+      inputFiles.add(prop.getProperty(ConfigKeys.NAMED_ENTITY_PATH));
+    }
+    final String settings = ConfigKeys.NORMALIZE_DEPENDENCY_GRAPHS.getKey() + "="
+            + prop.getProperty(ConfigKeys.NORMALIZE_DEPENDENCY_GRAPHS) + ",NamedEntities=" + readNamedEntities;
+
+    final File directory = new File(snapshotDir);
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Could not create snapshot directory " + snapshotDir);
+    }
+    return new CorpusSnapshot(directory, CorpusSnapshot.computeKey(inputFiles, settings));
+  }
+
+  /**
+   * Creates the {@link ResultCache} for the lexicon and the settings of the
+   * modules if ResultCachePath is set. Every setting except for the paths of
+   * the input and output files and the settings that do not change the frames
+   * found is part of the fingerprint of the cache. If ResultCachePath is not
+   * set, but DuplicateSentenceMegabytes is, a cache without a file is created
+   * which finds the duplicate sentences of this run.
+   *
+   * @param prop The configuration.
+   * @return The cache or null if the cache is disabled or cannot be used with
+   * the configuration.
+   * @throws IOException If the lexicon cannot be read.
+   */
+  private static ResultCache openResultCache(SafeProperties prop) throws IOException {
+    final String resultCachePath = prop.getProperty(ConfigKeys.RESULT_CACHE_PATH);
+    final long duplicateMegabytes = Long.parseLong(prop.getProperty(ConfigKeys.DUPLICATE_SENTENCE_MEGABYTES));
+    if (resultCachePath.isEmpty() && duplicateMegabytes <= 0) {
+      return null;
+    }
+    // the preset subjective expressions are looked up by the position of the sentence, not by its content
+    if (prop.getPropertyBool(ConfigKeys.USE_PRESET_SE_LOCATION_MODULE) || prop.getPropertyBool(ConfigKeys.IGNORE_LEXICON)) {
+      if (!resultCachePath.isEmpty()) {
+        System.err.println("Warning: ResultCachePath is ignored together with UsePresetSELocationModule and IgnoreLexicon");
+      }
+      return null;
+    }
+    // the settings are the same for all sentences of a run
+    if (resultCachePath.isEmpty()) {
+      return new ResultCache(null, "", duplicateMegabytes * 1024 * 1024);
+    }
+
+    // the contents of the input files are part of the key of each sentence instead
+    final Set<ConfigKeys> ignored = EnumSet.of(ConfigKeys.LEXICON_PATH, ConfigKeys.COMPILED_LEXICON_PATH,
+            ConfigKeys.TEXT_PATH, ConfigKeys.OUTPUT_PATH, ConfigKeys.OUTPUT_FORMAT, ConfigKeys.DEPENDENCY_PATH,
+            ConfigKeys.CONSTITUENCY_PATH, ConfigKeys.BERKELEY_PARSE_PATH, ConfigKeys.VALIDATE_XML,
+            ConfigKeys.SNAPSHOT_DIR, ConfigKeys.RESULT_CACHE_PATH, ConfigKeys.RESULT_CACHE_MAX_MEGABYTES,
+            ConfigKeys.DUPLICATE_SENTENCE_MEGABYTES, ConfigKeys.ANALYSIS_THREADS, ConfigKeys.ANALYSIS_QUEUE_CAPACITY,
+            ConfigKeys.METRICS_REPORT_PATH, ConfigKeys.SENTENCE_TIME_BUDGET_MILLIS, ConfigKeys.CANDIDATE_PREFILTER,
+            ConfigKeys.NAMED_ENTITY_PATH, ConfigKeys.MORPHOLOGY_PATH, ConfigKeys.SERVER_PORT,
+            ConfigKeys.SERVER_THREADS);
+    final StringBuilder settings = new StringBuilder();
+    for (ConfigKeys key : ConfigKeys.values()) {
+      if (!ignored.contains(key)) {
+        settings.append(key.getKey()).append('=').append(prop.getProperty(key)).append('\n');
+      }
+    }
+    final String fingerprint = ResultCache.computeFingerprint(
+            Collections.singletonList(prop.getProperty(ConfigKeys.LEXICON_PATH)), settings.toString());
+
+    final long maxMegabytes = Long.parseLong(prop.getProperty(ConfigKeys.RESULT_CACHE_MAX_MEGABYTES));
+    return new ResultCache(new File(resultCachePath), fingerprint, maxMegabytes * 1024 * 1024);
+  }
+
+  /**
+   * Creates the {@link CorpusParser} that is used for all Salsa / Tiger XML
+   * files.
+   *
+   * @param validating true if the files should be validated against their DTD
+   * @return The parser or null if it could not be created, in which case each
+   * {@link SalsaAPIConnective} creates its own parser.
+   */
+  private static CorpusParser instantiateCorpusParser(boolean validating) {
+
+    CorpusParser parser = null;
 
     try {
-      gNet = new GermaNet(gNetDir);
-    } catch (FileNotFoundException e) {
-      e.printStackTrace();
-    } catch (XMLStreamException e) {
+      parser = new CorpusParser(validating);
+    } catch (ParserConfigurationException e) {
       e.printStackTrace();
-    } catch (IOException e) {
+    } catch (SAXException e) {
       e.printStackTrace();
     }
 
-    return gNet;
+    return parser;
+  }
+
+  /**
+   * Validates Salsa / Tiger XML files strictly and prints every warning and
+   * error that is found. Exits with status 1 if a file is not valid.
+   *
+   * @param files The paths of the files to validate.
+   * @throws IOException If a file cannot be read.
+   */
+  private static void validate(String[] files) throws IOException {
+    if (files.length == 0) {
+      System.err.println("Usage: java Main validate <xml-file> [<xml-file> ...]");
+      System.exit(2);
+    }
+
+    final CorpusParser parser = instantiateCorpusParser(true);
+    if (parser == null) {
+      throw new IOException("Could not create a validating parser");
+    }
+
+    int invalidFiles = 0;
+    for (String file : files) {
+      System.out.println("Validating " + file + "...");
+      final List<SAXParseException> problems = parser.validateFile(file);
+      for (SAXParseException problem : problems) {
+        System.err.println(file + ":" + problem.getLineNumber() + ":" + problem.getColumnNumber() + ": "
+                + problem.getMessage());
+      }
+      if (problems.isEmpty()) {
+        System.out.println(file + " is valid.");
+      } else {
+        System.out.println(problems.size() + " problems found in " + file + ".");
+        invalidFiles++;
+      }
+    }
+
+    if (invalidFiles > 0) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Compiles a sentiment lexicon text file into a {@link CompiledLexicon}
+   * which can be used by setting CompiledLexiconPath.
+   *
+   * @param args The lexicon text file, the compiled lexicon file to write and
+   * <code>True</code> or <code>False</code> for useFlexibleMWEs.
+   * @throws IOException If the lexicon cannot be compiled.
+   */
+  private static void compileLexicon(String[] args) throws IOException {
+    if (args.length != 3 || !(args[2].equals("True") || args[2].equals("False"))) {
+      System.err.println("Usage: java Main compileLexicon <lexicon-file> <compiled-lexicon-file> <True|False>");
+      System.exit(2);
+    }
+
+    System.out.println("Reading lexicon from " + args[0] + "...");
+    final SentimentLex lex = new SentimentLex(args[2].equals("True"));
+    lex.fileToLex(args[0]);
+
+    System.out.println("Writing " + lex.sentimentList.size() + " entries to " + args[1] + "...");
+    new CompiledLexicon(new File(args[1])).write(lex, args[0]);
   }
 
   /**
-   * Parse a comma-separated list. Implementation based on
-   * <a href="http://stackoverflow.com/a/7488676">http://stackoverflow.com/a/7488676</a>
+   * Analyses the input of a configuration file with every combination of
+   * values of some of its settings and scores each combination against a
+   * gold standard (see {@link ConfigSweep}).
    *
-   * @param list A {@link String} that contains a list of zero or more entries
-   * separated by commas.
-   * @return A {@link List} of {@link String}s
+   * @param args The configuration file, the gold standard file, the result
+   * file and optionally the names of the settings to vary (by default all of
+   * {@link ConfigSweep#SWEEPABLE_KEYS}).
+   * @throws IOException If a file cannot be read or written.
    */
-  private static List<String> parseList(String list) {
-    final String separator = ",";
-    return Arrays.asList(list.split("\\s*" + separator + "\\s*"));
+  private static void sweep(String[] args) throws IOException {
+    final List<ConfigKeys> keys = new ArrayList<ConfigKeys>();
+    for (int i = 3; i < args.length; i++) {
+      for (ConfigKeys key : ConfigSweep.SWEEPABLE_KEYS) {
+        if (key.getKey().equals(args[i])) {
+          keys.add(key);
+        }
+      }
+    }
+    if (args.length < 3 || keys.size() != args.length - 3) {
+      System.err.println("Usage: java Main sweep <config-file> <gold-standard-file> <result-file> [<setting> ...]");
+      System.err.println("Settings: " + ConfigSweep.SWEEPABLE_KEYS);
+      System.exit(2);
+    }
+    if (keys.isEmpty()) {
+      keys.addAll(ConfigSweep.SWEEPABLE_KEYS);
+    }
+
+    final SafeProperties prop = new SafeProperties(new ConfigReader(args[0]).readConfig());
+    final CorpusParser corpusParser = instantiateCorpusParser(prop.getPropertyBool(ConfigKeys.VALIDATE_XML));
+    if (corpusParser == null) {
+      throw new IOException("Could not create the Salsa / Tiger XML parser");
+    }
+    new ConfigSweep(prop, keys, corpusParser).run(args[1], args[2], Runtime.getRuntime().availableProcessors());
   }
 
 }
@@ -15,4 +15,14 @@ interface Module {
 	 * expressions. Their results are combined by {@link SentimentChecker}.
 	 */
 	Collection<Frame> findFrames(SentenceObj sentence);
+
+	/**
+	 * A fast test on the words of a sentence, which is used to skip the preprocessing and annotation of
+	 * sentences in which no module can find anything. It only needs the names, lemmas, part-of-speech tags and
+	 * dependency relations of the words, which are known before the normalization and the constituency tree.
+	 *
+	 * @param sentence A sentence whose dependency parse has been read.
+	 * @return false only if {@link #findFrames(SentenceObj)} certainly finds no frame in the sentence.
+	 */
+	boolean isCandidate(SentenceObj sentence);
 }
@@ -1,4 +1,3 @@
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -15,6 +14,7 @@ import javax.xml.stream.XMLStreamException;
 import de.tuebingen.uni.sfs.germanet.api.ConRel;
 import de.tuebingen.uni.sfs.germanet.api.GermaNet;
 import de.tuebingen.uni.sfs.germanet.api.Synset;
+import salsa.util.CompressedStreams;
 
 
 
@@ -68,9 +68,10 @@ public class MorphologyChecker {
     Map <String, String[]> morphMap = new HashMap<String, String[]>();
 
     try {
-      scanner = new Scanner(new File(this.morphPath), "UTF-8");
+      scanner = new Scanner(CompressedStreams.openInput(this.morphPath), "UTF-8");
       // File is read in as a single string
       String wholeInput = scanner.useDelimiter("\\Z").next();
+      CompressedStreams.checkScanner(scanner, this.morphPath);
       scanner.close();
       // File is split on the '> ' delimiter which occurs only before entry words
       String[] morphEntries = wholeInput.split("> ");
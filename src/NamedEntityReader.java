@@ -1,4 +1,3 @@
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -8,6 +7,8 @@ import java.util.LinkedList;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import salsa.util.CompressedStreams;
+
 /**
  * This class implements a Named Entity Reader that is applicable to preprocessed text.
  *
@@ -42,7 +43,7 @@ public class NamedEntityReader {
 		System.out.println("");
 		
         try {
-            scanner = new Scanner(new File(this.fileName), "UTF-8"); // let the encoding be "UTF-8"
+            scanner = new Scanner(CompressedStreams.openInput(this.fileName), "UTF-8"); // let the encoding be "UTF-8"
             scanner.useLocale(Locale.GERMANY); // let the locale be Germany (working on german text)
             String line;
                		
@@ -55,6 +56,7 @@ public class NamedEntityReader {
         		ArrayList<NamedEntity> namedEntities = namedEntityList.getNamedEntities();
 
             	line = scanner.nextLine();
+            	CompressedStreams.checkScanner(scanner, this.fileName);
             	String[] words = line.split(" "); // split sentences at blank spaces
             	
             	if (words.length < sentence.wordList.size()){
@@ -138,6 +140,7 @@ public class NamedEntityReader {
             	
             	sentenceCounter++;
             }
+            CompressedStreams.checkScanner(scanner, this.fileName);
             
          // if file with specified pathname does not exist or s.th. else went wrong, track bugs (backtrace)
          } catch (FileNotFoundException e) {
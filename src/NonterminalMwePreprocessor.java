@@ -1,9 +1,23 @@
-
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
 import salsa.corpora.elements.Fenode;
 import salsa.corpora.elements.Frame;
 import salsa.corpora.elements.Frames;
@@ -12,21 +26,6 @@ import salsa.corpora.elements.Nonterminal;
 import salsa.corpora.elements.Sentence;
 import salsa.corpora.elements.Terminal;
 
-import java.io.BufferedWriter;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.DocumentBuilder;
-import org.w3c.dom.*;
-import org.w3c.dom.NodeList;
-import org.w3c.dom.Node;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-
 public class NonterminalMwePreprocessor {
   
   //Configure the path to the file in which you want to transform nonTerminals.
@@ -108,93 +107,216 @@ public class NonterminalMwePreprocessor {
     }
   }
 
-  public static final void prettyPrint(Document xml) throws Exception {
-
-    Transformer tf = TransformerFactory.newInstance().newTransformer();
+  /**
+   * Writes the Salsa XML file to the configured output path with every non terminal MWE fenode replaced by
+   * the fenodes of its terminals.
+   *
+   * @param salsaXmlPath The Salsa XML file to read.
+   * @param mapNonTerminalToTs The ids of the terminals of each non terminal MWE, keyed by the id of the non
+   * terminal.
+   */
+  public void turnNonTerminalMwesToTs(String salsaXmlPath, Map<String, String[]> mapNonTerminalToTs) {
+    turnNonTerminalMwesToTs(salsaXmlPath, mapNonTerminalToTs, output);
+  }
 
-    tf.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+  /**
+   * Copies the Salsa XML file event by event to the output path and replaces every fenode whose idref is a
+   * key of the given map by one fenode per terminal in place. The replacements keep the other attributes of
+   * the fenode. Only the current event is held in memory.
+   *
+   * The formatting of the file is kept as far as an XML parser reports it: the order of the attributes,
+   * empty element tags, the whitespace between the elements and the line separator of the file. Character
+   * references in the text are written as the characters themselves unless they must be escaped.
+   *
+   * @param salsaXmlPath The Salsa XML file to read.
+   * @param mapNonTerminalToTs The ids of the terminals of each non terminal MWE, keyed by the id of the non
+   * terminal.
+   * @param outputPath The file to write.
+   */
+  public void turnNonTerminalMwesToTs(String salsaXmlPath, Map<String, String[]> mapNonTerminalToTs,
+          String outputPath) {
 
-    tf.setOutputProperty(OutputKeys.INDENT, "yes");
+    XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    // namespace declarations are copied as the attributes they are written as, in their order
+    inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
 
-    //Writer out = new StringWriter();
-    //Output path.
-    BufferedWriter out = new BufferedWriter(new FileWriter(output));
+    try {
+      String newline = findLineSeparator(salsaXmlPath);
+      InputStream in = new BufferedInputStream(new FileInputStream(salsaXmlPath));
+      OutputStream out = new BufferedOutputStream(new FileOutputStream(outputPath));
+      try {
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+        XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out, "UTF-8");
+
+        int replaced = 0;
+        //The whitespace before the current element, repeated between the fenodes of a replaced MWE.
+        String indent = "";
+        int event = reader.getEventType();
+        while (true) {
+          int next = -1;
+          switch (event) {
+            case XMLStreamConstants.START_DOCUMENT:
+              writer.writeStartDocument("UTF-8", reader.getVersion() == null ? "1.0" : reader.getVersion());
+              writer.writeCharacters(newline);
+              break;
+            case XMLStreamConstants.DTD:
+              writer.writeDTD(reader.getText());
+              writer.writeCharacters(newline);
+              break;
+            case XMLStreamConstants.START_ELEMENT:
+              String[] terminals = reader.getLocalName().equals("fenode")
+                      ? mapNonTerminalToTs.get(reader.getAttributeValue(null, "idref")) : null;
+              if (terminals != null) {
+                writeFenodes(reader, writer, terminals, indent);
+                skipElement(reader);
+                replaced++;
+                break;
+              }
+              // an empty element tag is reported as a start and an end element at the same position
+              String name = reader.getLocalName();
+              String[][] attributes = readAttributes(reader);
+              int start = reader.getLocation().getCharacterOffset();
+              next = reader.next();
+              if (next == XMLStreamConstants.END_ELEMENT && reader.getLocation().getCharacterOffset() == start) {
+                writer.writeEmptyElement(name);
+                next = -1;
+              } else {
+                writer.writeStartElement(name);
+              }
+              for (String[] attribute : attributes) {
+                writer.writeAttribute(attribute[0], attribute[1]);
+              }
+              break;
+            case XMLStreamConstants.END_ELEMENT:
+              writer.writeEndElement();
+              break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.SPACE:
+              String text = reader.getText();
+              indent = reader.isWhiteSpace() ? text.replace("\n", newline) : "";
+              writer.writeCharacters(text.replace("\n", newline));
+              break;
+            case XMLStreamConstants.CDATA:
+              writer.writeCData(reader.getText());
+              break;
+            case XMLStreamConstants.COMMENT:
+              writer.writeComment(reader.getText());
+              break;
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+              writer.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+              break;
+            case XMLStreamConstants.ENTITY_REFERENCE:
+              writer.writeEntityRef(reader.getLocalName());
+              break;
+            default:
+              break;
+          }
+          if (event == XMLStreamConstants.END_DOCUMENT) {
+            break;
+          }
+          event = next >= 0 ? next : reader.next();
+        }
+        writer.writeEndDocument();
+        if (endsWithLineSeparator(salsaXmlPath)) {
+          writer.writeCharacters(newline);
+        }
+        writer.close();
+        reader.close();
+        System.out.println("Replaced " + replaced + " non terminal MWE fenodes");
+      } finally {
+        in.close();
+        out.close();
+      }
+      System.out.println("Completed XML");
 
-    tf.transform(new DOMSource(xml), new StreamResult(out));
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
 
-    System.out.println("Completed XML");
+  /**
+   * Writes one fenode per terminal in place of the fenode at which the reader is, each with the attributes
+   * of that fenode but the idref of the terminal.
+   */
+  private static void writeFenodes(XMLStreamReader reader, XMLStreamWriter writer, String[] terminals,
+          String indent) throws XMLStreamException {
+    String name = reader.getLocalName();
+    String[][] attributes = readAttributes(reader);
+    for (int terminalCount = 0; terminalCount < terminals.length; terminalCount++) {
+      if (terminalCount > 0) {
+        writer.writeCharacters(indent);
+      }
+      writer.writeEmptyElement(name);
+      for (String[] attribute : attributes) {
+        writer.writeAttribute(attribute[0], attribute[0].equals("idref") ? terminals[terminalCount] : attribute[1]);
+      }
+    }
+  }
 
+  /**
+   * Returns the names and values of the attributes of the current start element in the order of the file.
+   */
+  private static String[][] readAttributes(XMLStreamReader reader) {
+    String[][] attributes = new String[reader.getAttributeCount()][];
+    for (int i = 0; i < attributes.length; i++) {
+      attributes[i] = new String[] {reader.getAttributeLocalName(i), reader.getAttributeValue(i)};
+    }
+    return attributes;
   }
 
   /**
-   * @param args the command line arguments
+   * Consumes the events of the element whose start element was just read, up to and including its end
+   * element.
    */
-  public void turnNonTerminalMwesToTs(String salsaXmlPath, Map<String, String[]> mapNonTerminalToTs) {
+  private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
 
+  /**
+   * Returns the line separator of a file, which an XML parser reports as "\n": "\r\n" if the first line
+   * ends with it, "\n" otherwise.
+   */
+  private static String findLineSeparator(String path) throws IOException {
+    InputStream in = new BufferedInputStream(new FileInputStream(path));
     try {
-
-      System.out.println("DRIN1!");
-      //Input path
-      File fXmlFile = new File(salsaXmlPath);
-      DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-      DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-      Document doc = dBuilder.parse(fXmlFile);
-      doc.getDocumentElement().normalize();
-//	            mapNonTerminalToTs
-      Iterator it = mapNonTerminalToTs.entrySet().iterator();
-      System.out.println("Size: " + mapNonTerminalToTs.size() + it.hasNext());
-      while (it.hasNext()) {
-
-        Map.Entry pair = (Map.Entry) it.next();
-        String[] out = (String[]) pair.getValue();
-//	    	        String print="";
-//	    	        for(int i=0; i<out.length; i++){print+=out[i]+ " ";}
-//	    	        System.out.println(pair.getKey() + " = " + print);
-
-        NodeList nList = doc.getElementsByTagName("fenode");
-        boolean found = false;
-
-        for (int temp = 0; temp < nList.getLength(); temp++) {
-
-          Node nNode = nList.item(temp);
-          Element eElement = (Element) nNode;
-//	           	 System.out.println("vorhandene idref " + eElement.getAttribute("idref") + "vs." + pair.getKey());
-          if (eElement.getAttribute("idref").equals(pair.getKey())) {
-            found = true;
-            System.out.println("match in nonterminal " + eElement.getAttribute("idref"));
-
-            //Replace non terminal MWE by all subordinated Terminals
-            for (int terminalCount = 0; terminalCount < out.length; terminalCount++) {
-
-              Element newTerminal = doc.createElement("fenode");
-              newTerminal.setAttribute("idref", out[terminalCount]);
-              nNode.getParentNode().appendChild((Node) newTerminal);
-
-            }
-            //Delete non terminal MWE
-            nNode.getParentNode().removeChild(nNode);
-            if (found) {
-              break;
-            }
-
-          }
-
-          if (found) {
-            continue;
-          }
-//	                System.out.println("\nCurrent Element :" + nNode.getNodeName());
-//	                if (nNode.getNodeName().equals("fe")) {
-//	                    nNode.getParentNode().removeChild(nNode);
-//	                    --temp;
-//	                }
+      int previous = -1;
+      for (int read = in.read(); read != -1; read = in.read()) {
+        if (read == '\n') {
+          return previous == '\r' ? "\r\n" : "\n";
         }
-        it.remove();
+        previous = read;
       }
-      doc.normalize();
-      prettyPrint(doc);
+      return "\n";
+    } finally {
+      in.close();
+    }
+  }
 
-    } catch (Exception e) {
-      e.printStackTrace();
+  /**
+   * Returns true if a file ends with a line separator, which an XML parser does not report after the root
+   * element.
+   */
+  private static boolean endsWithLineSeparator(String path) throws IOException {
+    RandomAccessFile file = new RandomAccessFile(path, "r");
+    try {
+      if (file.length() == 0) {
+        return false;
+      }
+      file.seek(file.length() - 1);
+      return file.read() == '\n';
+    } finally {
+      file.close();
     }
   }
 
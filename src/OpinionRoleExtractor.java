@@ -0,0 +1,344 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+
+import de.tuebingen.uni.sfs.germanet.api.GermaNet;
+import salsa.corpora.elements.Frame;
+
+/**
+ * An {@link OpinionRoleExtractor} holds the loaded resources (the sentiment lexicon, GermaNet) and the
+ * {@link Module}s configured by {@link ConfigKeys} settings and finds the subjective expressions of
+ * preprocessed sentences in memory. It is created once with a {@link Builder}:
+ *
+ * <pre>
+ * OpinionRoleExtractor extractor = new OpinionRoleExtractor.Builder()
+ *     .config("data/config.txt")
+ *     .set(ConfigKeys.FIND_TARGETS, "False")
+ *     .build();
+ * List&lt;Frame&gt; frames = extractor.annotate(sentence);
+ * </pre>
+ *
+ * The sentences must be preprocessed like in {@link Main}: every {@link SentenceObj} needs its (normalized)
+ * {@link DependencyGraph}, its {@link ConstituencyTree} and, if PersonCheck is set, its
+ * {@link NamedEntityList}. The preset subjective expression location module needs the whole input and is
+ * not part of the extractor.
+ *
+ * An extractor is thread-safe: the modules keep no state between sentences, so different sentences can be
+ * annotated concurrently.
+ */
+public class OpinionRoleExtractor {
+
+  private final SentimentLex lex;
+  private final GermaNet germaNet;
+  private final Set<Module> modules;
+  private final PipelineMetrics metrics;
+  private final long budgetMillis;
+  private final boolean candidatePrefilter;
+
+  private OpinionRoleExtractor(SentimentLex lex, GermaNet germaNet, Set<Module> modules, PipelineMetrics metrics,
+          long budgetMillis, boolean candidatePrefilter) {
+    this.lex = lex;
+    this.germaNet = germaNet;
+    this.modules = Collections.unmodifiableSet(modules);
+    this.metrics = metrics;
+    this.budgetMillis = budgetMillis;
+    this.candidatePrefilter = candidatePrefilter;
+  }
+
+  /**
+   * Finds the subjective expressions of a sentence.
+   *
+   * @param sentence A preprocessed {@link SentenceObj}.
+   * @return The frames found by all modules. Each represents a SubjectiveExpression. Empty if the sentence
+   * exceeds SentenceTimeBudgetMillis.
+   */
+  public List<Frame> annotate(SentenceObj sentence) {
+    return metrics.findFrames(modules, sentence, budgetMillis);
+  }
+
+  /**
+   * Finds the subjective expressions of several sentences.
+   *
+   * @param sentences Preprocessed {@link SentenceObj}s.
+   * @return For every sentence, in the same order, the frames found by all modules.
+   */
+  public List<List<Frame>> annotate(Iterable<SentenceObj> sentences) {
+    final List<List<Frame>> frames = new ArrayList<List<Frame>>();
+    for (SentenceObj sentence : sentences) {
+      frames.add(annotate(sentence));
+    }
+    return frames;
+  }
+
+  /**
+   * @return The sentiment lexicon.
+   */
+  public SentimentLex getLexicon() {
+    return lex;
+  }
+
+  /**
+   * @return The GermaNet object or null if PersonCheck is not set.
+   */
+  public GermaNet getGermaNet() {
+    return germaNet;
+  }
+
+  /**
+   * @return The measurements of loading the resources and of all annotated sentences.
+   */
+  public PipelineMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @return The time budget per sentence in milliseconds, 0 for no limit.
+   */
+  long getSentenceTimeBudget() {
+    return budgetMillis;
+  }
+
+  /**
+   * @return true if sentences in which no module can find anything should skip the preprocessing and the
+   * modules, see {@link SentenceList#markCandidates(Collection)}.
+   */
+  boolean isCandidatePrefilter() {
+    return candidatePrefilter;
+  }
+
+  /**
+   * @return The configured modules.
+   */
+  Set<Module> getModules() {
+    return modules;
+  }
+
+  /**
+   * Creates the grammar induced module, which is also used by the preset
+   * subjective expression location module.
+   *
+   * @param prop The configuration.
+   * @param findSources true if sources should be found.
+   * @param findTargets true if targets should be found.
+   * @return The grammar induced module.
+   * @throws IOException If an option is not 'True' or 'False'.
+   */
+  static Module createGrammarInducedModule(SafeProperties prop, boolean findSources, boolean findTargets)
+          throws IOException {
+    System.out.println("Initializing the grammar induced module");
+    final Collection<String> customModalVerbs;
+    if (prop.getPropertyBool(ConfigKeys.USE_DEFAULT_MODAL_VERBS)) {
+      customModalVerbs = null;
+    } else {
+      customModalVerbs = parseList(prop.getProperty(ConfigKeys.CUSTOM_MODAL_VERB_LEMMAS));
+    }
+    final boolean modalTrigger = prop.getPropertyBool(ConfigKeys.GIM_TRIGGER_MODAL);
+    final boolean futureTrigger = prop.getPropertyBool(ConfigKeys.GIM_TRIGGER_FUTURE);
+    final boolean imperativeTrigger = prop.getPropertyBool(ConfigKeys.GIM_TRIGGER_IMPERATIVE);
+    final boolean subjunctive2Trigger = prop.getPropertyBool(ConfigKeys.GIM_TRIGGER_SUBJUNCTIVE2_WUERDEB);
+    return new GrammarInducedModule(customModalVerbs, imperativeTrigger, modalTrigger, futureTrigger, subjunctive2Trigger, findSources, findTargets);
+  }
+
+  /**
+   * Reads in data from the GermaNet directory.
+   *
+   * @param germaNetDir The directory containing the GermaNet data.
+   * @return The GermaNet object or null if it cannot be read.
+   */
+  static GermaNet instantiateGermaNet(String germaNetDir) {
+
+    GermaNet gNet = null;
+
+    File gNetDir = new File(germaNetDir);
+
+    try {
+      gNet = new GermaNet(gNetDir);
+    } catch (FileNotFoundException e) {
+      e.printStackTrace();
+    } catch (XMLStreamException e) {
+      e.printStackTrace();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+
+    return gNet;
+  }
+
+  /**
+   * Parse a comma-separated list. Implementation based on
+   * <a href="http://stackoverflow.com/a/7488676">http://stackoverflow.com/a/7488676</a>
+   *
+   * @param list A {@link String} that contains a list of zero or more entries
+   * separated by commas.
+   * @return A {@link List} of {@link String}s
+   */
+  private static List<String> parseList(String list) {
+    final String separator = ",";
+    return Arrays.asList(list.split("\\s*" + separator + "\\s*"));
+  }
+
+  /**
+   * Builds an {@link OpinionRoleExtractor}. All settings start with the default values of {@link ConfigKeys}
+   * and can be overridden by a configuration file or single values.
+   */
+  public static class Builder {
+
+    private final Properties properties = new Properties();
+    private SentimentLex lex;
+    private GermaNet germaNet;
+    private PipelineMetrics metrics;
+
+    /**
+     * Creates a builder with the default settings.
+     */
+    public Builder() {
+      for (ConfigKeys key : ConfigKeys.values()) {
+        properties.setProperty(key.getKey(), key.getDefaultValue());
+      }
+    }
+
+    /**
+     * Overrides the settings with those of a configuration file.
+     *
+     * @param filename The path of the configuration file.
+     * @return this builder
+     * @throws IOException If the file cannot be read.
+     */
+    public Builder config(String filename) throws IOException {
+      final Properties fileProperties = new Properties();
+      final InputStream in = new FileInputStream(filename);
+      try {
+        fileProperties.load(in);
+      } finally {
+        in.close();
+      }
+      return config(fileProperties);
+    }
+
+    /**
+     * Overrides the settings with the given properties.
+     *
+     * @param config The properties, with the keys of {@link ConfigKeys}.
+     * @return this builder
+     */
+    public Builder config(Properties config) {
+      for (String name : config.stringPropertyNames()) {
+        properties.setProperty(name, config.getProperty(name));
+      }
+      return this;
+    }
+
+    /**
+     * Overrides a single setting.
+     *
+     * @param key The setting.
+     * @param value The value as it would be written in a configuration file.
+     * @return this builder
+     */
+    public Builder set(ConfigKeys key, String value) {
+      properties.setProperty(key.getKey(), value);
+      return this;
+    }
+
+    /**
+     * Uses an already loaded lexicon instead of reading LexiconPath.
+     *
+     * @param lex The sentiment lexicon.
+     * @return this builder
+     */
+    public Builder lexicon(SentimentLex lex) {
+      this.lex = lex;
+      return this;
+    }
+
+    /**
+     * Uses an already loaded GermaNet instead of reading GermaNetDir.
+     *
+     * @param germaNet The GermaNet object.
+     * @return this builder
+     */
+    public Builder germaNet(GermaNet germaNet) {
+      this.germaNet = germaNet;
+      return this;
+    }
+
+    /**
+     * Records the loading of the resources and the annotated sentences in the given metrics instead of new
+     * ones, e.g. to include them in the report of a whole pipeline run.
+     *
+     * @param metrics The metrics.
+     * @return this builder
+     */
+    public Builder metrics(PipelineMetrics metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
+    /**
+     * Loads the resources and creates the modules.
+     *
+     * @return The extractor.
+     * @throws IOException If a setting has an invalid value.
+     */
+    public OpinionRoleExtractor build() throws IOException {
+      final SafeProperties prop = new SafeProperties(properties);
+      final boolean findSources = prop.getPropertyBool(ConfigKeys.FIND_SOURCES);
+      final boolean findTargets = prop.getPropertyBool(ConfigKeys.FIND_TARGETS);
+      final boolean personCheck = prop.getPropertyBool(ConfigKeys.PERSON_CHECK);
+      final PipelineMetrics metrics = this.metrics != null ? this.metrics : new PipelineMetrics();
+
+      SentimentLex lex = this.lex;
+      if (lex == null) {
+        String fileLex = prop.getProperty(ConfigKeys.LEXICON_PATH);
+        System.out.println("Reading lexicon from " + fileLex + "...");
+        final PipelineMetrics.Stage stage = metrics.startStage("Reading lexicon");
+        lex = new SentimentLex(prop.getPropertyBool(ConfigKeys.FLEXIBLE_MWES));
+        lex.loadLex(fileLex, prop.getProperty(ConfigKeys.COMPILED_LEXICON_PATH));
+        stage.stop();
+      }
+
+      // the GermaNet object is used by the classic module and the MorphologyChecker if personCheck is set
+      GermaNet germaNet = this.germaNet;
+      if (germaNet == null && personCheck) {
+        String germaNetDir = prop.getProperty(ConfigKeys.GERMANET_DIR);
+        System.out.println("Reading GermaNet data from directory " + germaNetDir + "..." + "\n");
+        final PipelineMetrics.Stage stage = metrics.startStage("Reading GermaNet");
+        germaNet = instantiateGermaNet(germaNetDir);
+        stage.stop();
+      }
+
+      final Set<Module> modules = new HashSet<Module>();
+
+      if (prop.getPropertyBool(ConfigKeys.USE_CLASSIC_MODULE)) {
+        System.out.println("Initializing the classic module");
+        // if specified in configuration file, run named entity check for sentiment source phrase. Filter those phrases whose head is NOT a named entity.
+        // Otherwise accept phrases as sentiment sources even if their heads are no named entities.
+        if (personCheck) {
+          modules.add(new ClassicModule(lex, true, findSources, findTargets, germaNet));
+        } else {
+          modules.add(new ClassicModule(lex, false, findSources, findTargets));
+        }
+      }
+
+      if (prop.getPropertyBool(ConfigKeys.USE_GRAMMAR_INDUCED_MODULE)) {
+        modules.add(createGrammarInducedModule(prop, findSources, findTargets));
+      }
+
+      final long budgetMillis = Long.parseLong(prop.getProperty(ConfigKeys.SENTENCE_TIME_BUDGET_MILLIS));
+      return new OpinionRoleExtractor(lex, germaNet, modules, metrics, budgetMillis,
+              prop.getPropertyBool(ConfigKeys.CANDIDATE_PREFILTER));
+    }
+  }
+}
@@ -0,0 +1,389 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+
+import salsa.corpora.elements.Sentence;
+import salsa.corpora.xmlparser.CorpusParser;
+
+/**
+ * Measures the hot paths of the opinion role extractor on the sample corpus in
+ * the data directory (data/hgcSample.*.rand500.*): the normalization of the
+ * dependency graphs, the matching of multi-word expressions, the search for
+ * argument nodes in the constituency trees, reading the lexicon, parsing the
+ * Tiger XML file and finding the frames with each {@link Module}.
+ *
+ * Every benchmark is run a few times to warm up the JVM and then measured for
+ * a number of iterations. Data that a benchmark changes (e.g. the dependency
+ * graphs for the normalization) is prepared anew before every iteration
+ * without being timed. The results are printed and written as JSON in the
+ * format of JMH, so they can be compared over time with the usual tools.
+ *
+ * Usage (in the repository directory):
+ * <code>PipelineBenchmark &lt;result-json&gt; [iterations] [benchmark-prefix]</code>
+ */
+public class PipelineBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 5;
+
+  private static final String CORPUS = "hgcSample.rand500";
+  private static final String TEXT_PATH = "data/hgcSample.raw.rand500.txt";
+  private static final String DEPENDENCY_PATH = "data/hgcSample.parZu.rand500.txt";
+  private static final String CONSTITUENCY_PATH = "data/hgcSample.tiger.rand500.xml";
+  private static final String LEXICON_PATH = "data/opinionRoleLexicon.defaultRules.txt";
+  private static final String MWE_LEXICON_PATH = "data/opinionRoleLexicon.mwe.txt";
+
+  /**
+   * A single benchmark.
+   */
+  private abstract static class Benchmark {
+
+    final String name;
+
+    Benchmark(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Prepares an iteration. Not timed.
+     */
+    void setUp() throws Exception {
+    }
+
+    /**
+     * Runs an iteration.
+     *
+     * @return The number of operations, e.g. the number of sentences.
+     */
+    abstract int run() throws Exception;
+  }
+
+  /**
+   * The measured times of a benchmark.
+   */
+  private static class Result {
+
+    final String name;
+    final int operations;
+    final double[] scores;
+
+    Result(String name, int operations, double[] scores) {
+      this.name = name;
+      this.operations = operations;
+      this.scores = scores;
+    }
+
+    double mean() {
+      double sum = 0;
+      for (double score : scores) {
+        sum += score;
+      }
+      return sum / scores.length;
+    }
+
+    /**
+     * @return The half-width of the 99.9% confidence interval of the mean
+     * (normal approximation).
+     */
+    double error() {
+      if (scores.length < 2) {
+        return 0;
+      }
+      final double mean = mean();
+      double sum = 0;
+      for (double score : scores) {
+        sum += (score - mean) * (score - mean);
+      }
+      return 3.29 * Math.sqrt(sum / (scores.length - 1) / scores.length);
+    }
+  }
+
+  /**
+   * Runs the benchmarks and writes the results.
+   *
+   * @param args The path of the JSON result file, optionally the number of
+   * measured iterations (default 10) and a prefix of the benchmarks to run,
+   * e.g. "DependencyGraph".
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length < 1) {
+      System.err.println("Usage: PipelineBenchmark <result-json> [iterations] [benchmark-prefix]");
+      return;
+    }
+
+    final String resultFile = args[0];
+    final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    final String prefix = args.length > 2 ? args[2] : "";
+
+    final List<Result> results = new ArrayList<Result>();
+    for (Benchmark benchmark : createBenchmarks()) {
+      if (benchmark.name.startsWith(prefix)) {
+        final Result result = measure(benchmark, iterations);
+        System.out.printf(Locale.ROOT, "%-42s %12.3f +- %.3f us/op (%d ops)%n", result.name, result.mean(),
+                result.error(), result.operations);
+        results.add(result);
+      }
+    }
+
+    writeResults(results, iterations, resultFile);
+    System.out.println("Results written to " + resultFile);
+  }
+
+  private static Result measure(Benchmark benchmark, int iterations) throws Exception {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      benchmark.setUp();
+      benchmark.run();
+    }
+
+    int operations = 0;
+    final double[] scores = new double[iterations];
+    for (int i = 0; i < iterations; i++) {
+      benchmark.setUp();
+      final long start = System.nanoTime();
+      operations = benchmark.run();
+      scores[i] = (System.nanoTime() - start) / 1e3 / Math.max(operations, 1);
+    }
+    return new Result(benchmark.name, operations, scores);
+  }
+
+  /**
+   * Reads the sample corpus like {@link Main} does.
+   *
+   * @param normalize true if the dependency graphs should be normalized.
+   * @return The sentences with their dependency graphs, which are already built so that the benchmarks do
+   * not measure their construction.
+   */
+  private static SentenceList readSentences(boolean normalize) {
+    final SentenceList sentences = new SentenceList();
+    sentences.rawToSentenceList(TEXT_PATH);
+    sentences.readDependencyParse(DEPENDENCY_PATH);
+    if (normalize) {
+      sentences.normalizeDependencyGraphs();
+    }
+    sentences.buildGraphs();
+    return sentences;
+  }
+
+  private static List<Benchmark> createBenchmarks() throws Exception {
+    final List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+    // the preprocessed corpus that is shared by all benchmarks which do not change it
+    System.out.println("Preparing the sample corpus " + CORPUS + "...");
+    final CorpusParser corpusParser = new CorpusParser(false);
+    final SentenceList sentences = readSentences(true);
+    final SalsaAPIConnective salsa = new SalsaAPIConnective(CONSTITUENCY_PATH, sentences, corpusParser);
+    final LinkedList<SentenceObj> sentenceList = sentences.getSentenceList();
+
+    final SentimentLex lex = new SentimentLex(true);
+    lex.fileToLex(LEXICON_PATH);
+    lex.fileToLex(MWE_LEXICON_PATH);
+
+    benchmarks.add(new Benchmark("DependencyGraph.normalize") {
+      private SentenceList raw;
+
+      @Override
+      void setUp() {
+        raw = readSentences(false);
+      }
+
+      @Override
+      int run() {
+        for (SentenceObj sentence : raw.getSentenceList()) {
+          final DependencyGraph graph = sentence.getGraph();
+          graph.normalize(graph);
+        }
+        return raw.getSentenceList().size();
+      }
+    });
+
+    benchmarks.add(new Benchmark("DependencyGraph.normalizeConjunctions") {
+      private final List<DependencyGraph> graphs = new ArrayList<DependencyGraph>();
+      private final List<DependencyGraph> prepared = new ArrayList<DependencyGraph>();
+
+      @Override
+      void setUp() {
+        graphs.clear();
+        prepared.clear();
+        for (SentenceObj sentence : readSentences(false).getSentenceList()) {
+          final DependencyGraph graph = sentence.getGraph();
+          graphs.add(graph);
+          prepared.add(graph.normalizeActivePassive(graph.normalize(graph)));
+        }
+      }
+
+      @Override
+      int run() {
+        for (int i = 0; i < graphs.size(); i++) {
+          graphs.get(i).normalizeConjunctions(prepared.get(i));
+        }
+        return graphs.size();
+      }
+    });
+
+    // every word of the corpus that evokes a MWE of the lexicon, looked up like in the ClassicModule
+    final List<DependencyGraph> mweGraphs = new ArrayList<DependencyGraph>();
+    final List<WordObj> mweWords = new ArrayList<WordObj>();
+    final List<SentimentUnit> mweUnits = new ArrayList<SentimentUnit>();
+    for (SentenceObj sentence : sentenceList) {
+      final DependencyGraph graph = sentence.getGraph();
+      for (WordObj word : graph.getWordList()) {
+        final List<String> wordAndLemma = new ArrayList<String>();
+        wordAndLemma.add(word.getLemma());
+        if (!word.getName().equals(word.getLemma())) {
+          wordAndLemma.add(word.getName());
+        }
+        for (String key : wordAndLemma) {
+          while (lex.sentimentMap.containsKey(key)) {
+            final SentimentUnit unit = lex.sentimentMap.get(key);
+            if (unit.typ.equals("mwe")) {
+              mweGraphs.add(graph);
+              mweWords.add(word);
+              mweUnits.add(unit);
+            }
+            key = key + "+";
+          }
+        }
+      }
+    }
+
+    benchmarks.add(new Benchmark("DependencyGraph.getMweMatches") {
+      @Override
+      int run() {
+        for (int i = 0; i < mweUnits.size(); i++) {
+          final ArrayList<String> collocations = new ArrayList<String>(Arrays.asList(mweUnits.get(i).collocations));
+          mweGraphs.get(i).getMweMatches(mweWords.get(i), collocations, true);
+        }
+        return mweUnits.size();
+      }
+    });
+
+    benchmarks.add(new Benchmark("DependencyGraph.mweMatch") {
+      @Override
+      int run() {
+        for (int i = 0; i < mweUnits.size(); i++) {
+          mweGraphs.get(i).mweMatch(mweWords.get(i), mweUnits.get(i));
+        }
+        return mweUnits.size();
+      }
+    });
+
+    // every dependency edge of the corpus between two words of a sentence whose nodes are found in the
+    // constituency tree (words that were changed by the normalization are not)
+    final List<SentenceObj> edgeSentences = new ArrayList<SentenceObj>();
+    final List<Edge> edges = new ArrayList<Edge>();
+    for (SentenceObj sentence : sentenceList) {
+      final DependencyGraph graph = sentence.getGraph();
+      for (Edge edge : graph.getEdges()) {
+        if (edge.source == graph.getRoot() || sentence.getTree() == null) {
+          continue;
+        }
+        try {
+          sentence.getTree().getArgumentNode(edge.source, edge.target, graph);
+        } catch (RuntimeException e) {
+          continue;
+        }
+        edgeSentences.add(sentence);
+        edges.add(edge);
+      }
+    }
+
+    benchmarks.add(new Benchmark("ConstituencyTree.getArgumentNode") {
+      @Override
+      int run() {
+        for (int i = 0; i < edges.size(); i++) {
+          final SentenceObj sentence = edgeSentences.get(i);
+          sentence.getTree().getArgumentNode(edges.get(i).source, edges.get(i).target, sentence.getGraph());
+        }
+        return edges.size();
+      }
+    });
+
+    benchmarks.add(new Benchmark("SentimentLex.fileToLex") {
+      @Override
+      int run() {
+        new SentimentLex(true).fileToLex(LEXICON_PATH);
+        return 1;
+      }
+    });
+
+    benchmarks.add(new Benchmark("CorpusParser.parseCorpusFromFile") {
+      @Override
+      int run() throws Exception {
+        corpusParser.parseCorpusFromFile(CONSTITUENCY_PATH);
+        return 1;
+      }
+    });
+
+    final Module classicModule = new ClassicModule(lex, false, true, true);
+    final Module grammarInducedModule = new GrammarInducedModule(null, true, true, true, true, true, true);
+    benchmarks.add(findFrames("ClassicModule.findFrames", classicModule, sentenceList));
+    benchmarks.add(findFrames("GrammarInducedModule.findFrames", grammarInducedModule, sentenceList));
+
+    // the preset subjective expressions are those found by the classic module
+    final List<Sentence> salsaSentences = salsa.getSentences();
+    for (int i = 0; i < sentenceList.size(); i++) {
+      salsaSentences.get(i).setSem(SentimentChecker.toSemantics(classicModule.findFrames(sentenceList.get(i))));
+    }
+    final SubtaskParser subtaskParser = new SubtaskParser(salsa, sentences);
+    subtaskParser.searchSEs();
+    final Module presetModule = new PresetSELocationModule(subtaskParser.getSEsFromInput(), sentences, lex, true,
+            true, false, grammarInducedModule);
+    benchmarks.add(findFrames("PresetSELocationModule.findFrames", presetModule, sentenceList));
+
+    return benchmarks;
+  }
+
+  private static Benchmark findFrames(String name, final Module module, final List<SentenceObj> sentences) {
+    return new Benchmark(name) {
+      @Override
+      int run() {
+        for (SentenceObj sentence : sentences) {
+          module.findFrames(sentence);
+        }
+        return sentences.size();
+      }
+    };
+  }
+
+  private static void writeResults(List<Result> results, int iterations, String filename) throws IOException {
+    final PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(filename), "UTF-8"));
+    try {
+      out.println("[");
+      for (int i = 0; i < results.size(); i++) {
+        final Result result = results.get(i);
+        out.println("  {");
+        out.println("    \"benchmark\" : " + ExtractionServer.quote(result.name) + ",");
+        out.println("    \"mode\" : \"avgt\",");
+        out.println("    \"warmupIterations\" : " + WARMUP_ITERATIONS + ",");
+        out.println("    \"measurementIterations\" : " + iterations + ",");
+        out.println("    \"params\" : {");
+        out.println("      \"corpus\" : " + ExtractionServer.quote(CORPUS) + ",");
+        out.println("      \"operations\" : \"" + result.operations + "\"");
+        out.println("    },");
+        out.println("    \"primaryMetric\" : {");
+        out.println("      \"score\" : " + number(result.mean()) + ",");
+        out.println("      \"scoreError\" : " + number(result.error()) + ",");
+        out.println("      \"scoreUnit\" : \"us/op\",");
+        final StringBuilder rawData = new StringBuilder();
+        for (int j = 0; j < result.scores.length; j++) {
+          rawData.append(j > 0 ? ", " : "").append(number(result.scores[j]));
+        }
+        out.println("      \"rawData\" : [ [ " + rawData + " ] ]");
+        out.println("    }");
+        out.println(i < results.size() - 1 ? "  }," : "  }");
+      }
+      out.println("]");
+    } finally {
+      out.close();
+    }
+  }
+
+  private static String number(double value) {
+    return String.format(Locale.ROOT, "%.3f", value);
+  }
+}
@@ -0,0 +1,562 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import salsa.corpora.elements.Frame;
+
+/**
+ * Collects measurements of a pipeline run: the wall and CPU time of each stage (reading the lexicon, the
+ * dependency parses, normalization, ...), the time every {@link Module} needs per sentence, overall and by
+ * sentence length, the number of frames and frame elements every module finds, and the depth of the queues
+ * of the {@link AnalysisPipeline}. The measurements can be written as a JSON report and are exposed via JMX
+ * by the {@link ExtractionServer}.
+ *
+ * The latencies are kept in histograms with a relative error of at most 1/16, so the memory needed does
+ * not grow with the number of sentences. All methods are thread-safe.
+ */
+public class PipelineMetrics implements PipelineMetricsMXBean {
+
+  // upper bounds of the sentence length buckets in tokens
+  private static final int[] LENGTH_BUCKETS = {10, 20, 40, 80, Integer.MAX_VALUE};
+
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+  private final Map<String, long[]> stages = new LinkedHashMap<String, long[]>();
+  private final Map<String, ModuleMetrics> modules = new LinkedHashMap<String, ModuleMetrics>();
+  private final Map<String, Queue> queues = new LinkedHashMap<String, Queue>();
+  private final AtomicLong sentences = new AtomicLong();
+  private final AtomicLong normalizationFallbacks = new AtomicLong();
+  private final AtomicLong skippedSentences = new AtomicLong();
+  private final AtomicLong filteredSentences = new AtomicLong();
+  private final AtomicLong cacheHits = new AtomicLong();
+  private final AtomicLong cacheMisses = new AtomicLong();
+  private final AtomicLong cacheSavedNanos = new AtomicLong();
+
+  /**
+   * A running stage. The time is added to the stage when it is stopped.
+   */
+  public class Stage {
+
+    private final String name;
+    private final long wallStart;
+    private final long cpuStart;
+
+    private Stage(String name) {
+      this.name = name;
+      this.wallStart = System.nanoTime();
+      this.cpuStart = cpuTime();
+    }
+
+    /**
+     * Stops the stage. A stage that is run several times is reported with the total time.
+     */
+    public void stop() {
+      final long wall = System.nanoTime() - wallStart;
+      final long cpu = cpuTime() - cpuStart;
+      synchronized (stages) {
+        long[] times = stages.get(name);
+        if (times == null) {
+          times = new long[2];
+          stages.put(name, times);
+        }
+        times[0] += wall;
+        times[1] += cpu;
+      }
+    }
+  }
+
+  /**
+   * Starts a stage of the pipeline in the current thread.
+   *
+   * @param name The name of the stage as it appears in the report.
+   * @return The running stage.
+   */
+  public Stage startStage(String name) {
+    return new Stage(name);
+  }
+
+  /**
+   * A bounded queue between two stages of the {@link AnalysisPipeline}. Its depth is sampled whenever an
+   * element is added, and the time the producer waits for space and the consumers wait for elements are
+   * summed up.
+   */
+  public class Queue {
+
+    private final int capacity;
+    private long samples;
+    private long depthSum;
+    private int maxDepth;
+    private long producerWaitNanos;
+    private long consumerWaitNanos;
+
+    private Queue(int capacity) {
+      this.capacity = capacity;
+    }
+
+    /**
+     * Records the depth of the queue after an element has been added.
+     *
+     * @param depth The number of elements in the queue.
+     */
+    public synchronized void depth(int depth) {
+      samples++;
+      depthSum += depth;
+      maxDepth = Math.max(maxDepth, depth);
+    }
+
+    /**
+     * Records how long the producer waited because the queue was full.
+     *
+     * @param nanos The time waited.
+     */
+    public synchronized void producerWait(long nanos) {
+      producerWaitNanos += nanos;
+    }
+
+    /**
+     * Records how long a consumer waited because the queue was empty.
+     *
+     * @param nanos The time waited.
+     */
+    public synchronized void consumerWait(long nanos) {
+      consumerWaitNanos += nanos;
+    }
+
+    private synchronized void appendJson(String name, StringBuilder json) {
+      json.append("{\"name\": ").append(ExtractionServer.quote(name))
+              .append(", \"capacity\": ").append(capacity)
+              .append(", \"samples\": ").append(samples)
+              .append(", \"meanDepth\": ").append(String.format(Locale.ROOT, "%.3f", samples == 0 ? 0.0 : (double) depthSum / samples))
+              .append(", \"maxDepth\": ").append(maxDepth)
+              .append(", \"producerWaitMillis\": ").append(millis(producerWaitNanos))
+              .append(", \"consumerWaitMillis\": ").append(millis(consumerWaitNanos)).append("}");
+    }
+  }
+
+  /**
+   * Returns the queue of the given name, which is created on first use. A queue that is used in several
+   * runs is reported with the samples and times of all runs.
+   *
+   * @param name The name of the queue as it appears in the report.
+   * @param capacity The capacity of the queue.
+   * @return The queue.
+   */
+  public Queue queue(String name, int capacity) {
+    synchronized (queues) {
+      Queue queue = queues.get(name);
+      if (queue == null) {
+        queue = new Queue(capacity);
+        queues.put(name, queue);
+      }
+      return queue;
+    }
+  }
+
+  /**
+   * Runs every module on a sentence and records the time of each module and the frames found.
+   *
+   * @param modules The modules.
+   * @param sentence The preprocessed sentence.
+   * @return The frames found by all modules.
+   */
+  public List<Frame> findFrames(Collection<Module> modules, SentenceObj sentence) {
+    return findFrames(modules, sentence, 0);
+  }
+
+  /**
+   * Runs every module on a sentence like {@link #findFrames(Collection, SentenceObj)}, but with a time
+   * budget. If the modules exceed the budget, the sentence is skipped: no frames are returned and the
+   * sentence is counted as skipped. Sentences which are no candidates (see {@link SentenceObj#isCandidate()})
+   * are not passed to the modules.
+   *
+   * @param modules The modules.
+   * @param sentence The preprocessed sentence.
+   * @param budgetMillis The time budget in milliseconds, 0 for no limit.
+   * @return The frames found by all modules, or an empty list if the budget is exceeded.
+   */
+  public List<Frame> findFrames(Collection<Module> modules, SentenceObj sentence, long budgetMillis) {
+    final List<Frame> found = new ArrayList<Frame>();
+    if (!sentence.isCandidate()) {
+      filteredSentences.incrementAndGet();
+      sentences.incrementAndGet();
+      return found;
+    }
+    // the graph is built and normalized on first use, which is not part of the time of the modules
+    sentence.getGraph();
+    final int tokens = sentence.getWordList().size();
+    SentenceEvents.enter(sentence);
+    SentenceBudget.start(budgetMillis);
+    try {
+      for (Module module : modules) {
+        final String name = module.getClass().getSimpleName();
+        final SentenceEvents.ModuleExecution event = new SentenceEvents.ModuleExecution();
+        event.begin();
+        final long start = System.nanoTime();
+        final Collection<Frame> frames = module.findFrames(sentence);
+        final long time = System.nanoTime() - start;
+        event.module = name;
+        event.frames = frames.size();
+        event.endForCurrentSentence();
+        int frameElements = 0;
+        for (Frame frame : frames) {
+          frameElements += frame.getFes().size();
+        }
+        getModule(name).record(tokens, time, frames.size(), frameElements);
+        found.addAll(frames);
+      }
+    } catch (SentenceBudget.ExceededException e) {
+      System.err.println("Sentence " + sentence.id.getId() + ": finding frames exceeded the time budget of "
+              + budgetMillis + " ms, skipping the sentence");
+      skippedSentences.incrementAndGet();
+      found.clear();
+    } finally {
+      SentenceBudget.stop();
+      SentenceEvents.exit();
+    }
+    sentences.incrementAndGet();
+    return found;
+  }
+
+  /**
+   * Counts a sentence whose normalization exceeded the time budget and which keeps its raw dependency
+   * graph.
+   */
+  public void recordNormalizationFallback() {
+    normalizationFallbacks.incrementAndGet();
+  }
+
+  /**
+   * Counts a sentence whose frames were found in the {@link ResultCache} instead of being found by the
+   * modules.
+   *
+   * @param savedNanos The time the analysis of the sentence took when its frames were cached.
+   */
+  public void recordCacheHit(long savedNanos) {
+    cacheHits.incrementAndGet();
+    cacheSavedNanos.addAndGet(savedNanos);
+    sentences.incrementAndGet();
+  }
+
+  /**
+   * Counts a sentence whose frames were not found in the {@link ResultCache}.
+   */
+  public void recordCacheMiss() {
+    cacheMisses.incrementAndGet();
+  }
+
+  private ModuleMetrics getModule(String name) {
+    synchronized (modules) {
+      ModuleMetrics metrics = modules.get(name);
+      if (metrics == null) {
+        metrics = new ModuleMetrics();
+        modules.put(name, metrics);
+      }
+      return metrics;
+    }
+  }
+
+  private Map<String, ModuleMetrics> copyModules() {
+    synchronized (modules) {
+      return new LinkedHashMap<String, ModuleMetrics>(modules);
+    }
+  }
+
+  private static long cpuTime() {
+    return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+  }
+
+  @Override
+  public long getSentences() {
+    return sentences.get();
+  }
+
+  @Override
+  public long getNormalizationFallbacks() {
+    return normalizationFallbacks.get();
+  }
+
+  @Override
+  public long getSkippedSentences() {
+    return skippedSentences.get();
+  }
+
+  @Override
+  public long getFilteredSentences() {
+    return filteredSentences.get();
+  }
+
+  @Override
+  public long getCacheHits() {
+    return cacheHits.get();
+  }
+
+  @Override
+  public long getCacheMisses() {
+    return cacheMisses.get();
+  }
+
+  @Override
+  public Map<String, Long> getFrames() {
+    final Map<String, Long> result = new LinkedHashMap<String, Long>();
+    for (Map.Entry<String, ModuleMetrics> module : copyModules().entrySet()) {
+      synchronized (module.getValue()) {
+        result.put(module.getKey(), module.getValue().frames);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public Map<String, Long> getFrameElements() {
+    final Map<String, Long> result = new LinkedHashMap<String, Long>();
+    for (Map.Entry<String, ModuleMetrics> module : copyModules().entrySet()) {
+      synchronized (module.getValue()) {
+        result.put(module.getKey(), module.getValue().frameElements);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public Map<String, Double> getLatencyP50Millis() {
+    return latencies(0.5);
+  }
+
+  @Override
+  public Map<String, Double> getLatencyP99Millis() {
+    return latencies(0.99);
+  }
+
+  @Override
+  public Map<String, Double> getLatencyMaxMillis() {
+    return latencies(1);
+  }
+
+  private Map<String, Double> latencies(double quantile) {
+    final Map<String, Double> result = new LinkedHashMap<String, Double>();
+    for (Map.Entry<String, ModuleMetrics> module : copyModules().entrySet()) {
+      synchronized (module.getValue()) {
+        result.put(module.getKey(), module.getValue().latency.quantile(quantile) / 1e6);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public String getReport() {
+    return toJson();
+  }
+
+  @Override
+  public void reset() {
+    synchronized (stages) {
+      stages.clear();
+    }
+    synchronized (modules) {
+      modules.clear();
+    }
+    synchronized (queues) {
+      queues.clear();
+    }
+    sentences.set(0);
+    normalizationFallbacks.set(0);
+    skippedSentences.set(0);
+    filteredSentences.set(0);
+    cacheHits.set(0);
+    cacheMisses.set(0);
+    cacheSavedNanos.set(0);
+  }
+
+  /**
+   * @return The measurements as JSON. Times are given in milliseconds.
+   */
+  public String toJson() {
+    final StringBuilder json = new StringBuilder("{\n  \"stages\": [");
+    synchronized (stages) {
+      boolean first = true;
+      for (Map.Entry<String, long[]> stage : stages.entrySet()) {
+        json.append(first ? "\n" : ",\n").append("    {\"name\": ").append(ExtractionServer.quote(stage.getKey()))
+                .append(", \"wallMillis\": ").append(millis(stage.getValue()[0]))
+                .append(", \"cpuMillis\": ").append(millis(stage.getValue()[1])).append("}");
+        first = false;
+      }
+    }
+    json.append("\n  ],\n  \"queues\": [");
+    synchronized (queues) {
+      boolean first = true;
+      for (Map.Entry<String, Queue> queue : queues.entrySet()) {
+        json.append(first ? "\n    " : ",\n    ");
+        queue.getValue().appendJson(queue.getKey(), json);
+        first = false;
+      }
+    }
+    json.append("\n  ],\n  \"sentences\": ").append(sentences.get())
+            .append(",\n  \"normalizationFallbacks\": ").append(normalizationFallbacks.get())
+            .append(",\n  \"skippedSentences\": ").append(skippedSentences.get())
+            .append(",\n  \"filteredSentences\": ").append(filteredSentences.get())
+            .append(",\n  \"cacheHits\": ").append(cacheHits.get())
+            .append(",\n  \"cacheMisses\": ").append(cacheMisses.get())
+            .append(",\n  \"cacheSavedMillis\": ").append(millis(cacheSavedNanos.get()))
+            .append(",\n  \"modules\": [");
+
+    boolean first = true;
+    for (Map.Entry<String, ModuleMetrics> module : copyModules().entrySet()) {
+      final ModuleMetrics metrics = module.getValue();
+      synchronized (metrics) {
+        json.append(first ? "\n" : ",\n").append("    {\n      \"name\": ").append(ExtractionServer.quote(module.getKey()))
+                .append(",\n      \"sentences\": ").append(metrics.latency.count())
+                .append(",\n      \"frames\": ").append(metrics.frames)
+                .append(",\n      \"frameElements\": ").append(metrics.frameElements)
+                .append(",\n      \"latencyMillis\": ").append(toJson(metrics.latency))
+                .append(",\n      \"lengthBuckets\": [");
+        for (int i = 0; i < LENGTH_BUCKETS.length; i++) {
+          final int from = i == 0 ? 1 : LENGTH_BUCKETS[i - 1] + 1;
+          final String tokens = LENGTH_BUCKETS[i] == Integer.MAX_VALUE ? from + "+" : from + "-" + LENGTH_BUCKETS[i];
+          json.append(i == 0 ? "\n" : ",\n").append("        {\"tokens\": \"").append(tokens)
+                  .append("\", \"sentences\": ").append(metrics.byLength[i].count())
+                  .append(", \"latencyMillis\": ").append(toJson(metrics.byLength[i])).append("}");
+        }
+        json.append("\n      ]\n    }");
+      }
+      first = false;
+    }
+    return json.append("\n  ]\n}\n").toString();
+  }
+
+  /**
+   * Writes the JSON report.
+   *
+   * @param filename The path of the report file.
+   * @throws IOException If the file cannot be written.
+   */
+  public void writeReport(String filename) throws IOException {
+    final Writer out = new OutputStreamWriter(new FileOutputStream(filename), "UTF-8");
+    try {
+      out.write(toJson());
+    } finally {
+      out.close();
+    }
+  }
+
+  private static String toJson(LatencyHistogram histogram) {
+    return "{\"p50\": " + millis(histogram.quantile(0.5)) + ", \"p99\": " + millis(histogram.quantile(0.99))
+            + ", \"max\": " + millis(histogram.quantile(1)) + ", \"mean\": " + millis(histogram.mean()) + "}";
+  }
+
+  private static String millis(double nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+  }
+
+  /**
+   * The measurements of one module. Access is synchronized on the object.
+   */
+  private static class ModuleMetrics {
+
+    final LatencyHistogram latency = new LatencyHistogram();
+    final LatencyHistogram[] byLength = new LatencyHistogram[LENGTH_BUCKETS.length];
+    long frames;
+    long frameElements;
+
+    ModuleMetrics() {
+      for (int i = 0; i < byLength.length; i++) {
+        byLength[i] = new LatencyHistogram();
+      }
+    }
+
+    synchronized void record(int tokens, long nanos, int frames, int frameElements) {
+      latency.record(nanos);
+      int bucket = 0;
+      while (tokens > LENGTH_BUCKETS[bucket]) {
+        bucket++;
+      }
+      byLength[bucket].record(nanos);
+      this.frames += frames;
+      this.frameElements += frameElements;
+    }
+  }
+
+  /**
+   * A histogram of durations in nanoseconds. Values below 16 are counted exactly, larger values in 16
+   * buckets per power of two. Not thread-safe.
+   */
+  static class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+
+    void record(long value) {
+      if (value < 0) {
+        value = 0;
+      }
+      counts[index(value)]++;
+      count++;
+      sum += value;
+      max = Math.max(max, value);
+    }
+
+    long count() {
+      return count;
+    }
+
+    double mean() {
+      return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param quantile A value between 0 and 1.
+     * @return The upper bound of the bucket that contains the quantile, but at most the maximum. 0 if
+     * nothing has been recorded.
+     */
+    long quantile(double quantile) {
+      if (count == 0) {
+        return 0;
+      }
+      if (quantile >= 1) {
+        return max;
+      }
+      final long rank = Math.max(1, (long) Math.ceil(quantile * count));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(upperBound(i), max);
+        }
+      }
+      return max;
+    }
+
+    private static int index(long value) {
+      if (value < SUB_BUCKETS) {
+        return (int) value;
+      }
+      final int exponent = 63 - Long.numberOfLeadingZeros(value);
+      final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+      return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBound(int index) {
+      if (index < SUB_BUCKETS) {
+        return index;
+      }
+      final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+      final long subBucket = index % SUB_BUCKETS;
+      final long width = 1L << (exponent - SUB_BUCKET_BITS);
+      return ((SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+    }
+  }
+}
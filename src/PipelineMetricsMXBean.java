@@ -0,0 +1,74 @@
+import java.util.Map;
+
+/**
+ * The management interface of {@link PipelineMetrics}, which is registered with the platform MBean server
+ * in server mode. All maps are keyed by the simple class name of the {@link Module}.
+ */
+public interface PipelineMetricsMXBean {
+
+  /**
+   * @return The number of annotated sentences.
+   */
+  long getSentences();
+
+  /**
+   * @return The number of sentences whose normalization exceeded the time budget and which kept their raw
+   * dependency graph.
+   */
+  long getNormalizationFallbacks();
+
+  /**
+   * @return The number of sentences skipped because finding their frames exceeded the time budget.
+   */
+  long getSkippedSentences();
+
+  /**
+   * @return The number of sentences which were not annotated since no module could find anything in them.
+   */
+  long getFilteredSentences();
+
+  /**
+   * @return The number of sentences whose frames were found in the result cache.
+   */
+  long getCacheHits();
+
+  /**
+   * @return The number of sentences whose frames were not found in the result cache and which were annotated.
+   */
+  long getCacheMisses();
+
+  /**
+   * @return The number of frames found by each module.
+   */
+  Map<String, Long> getFrames();
+
+  /**
+   * @return The number of frame elements (sources and targets) found by each module.
+   */
+  Map<String, Long> getFrameElements();
+
+  /**
+   * @return The median time per sentence of each module in milliseconds.
+   */
+  Map<String, Double> getLatencyP50Millis();
+
+  /**
+   * @return The 99th percentile of the time per sentence of each module in milliseconds.
+   */
+  Map<String, Double> getLatencyP99Millis();
+
+  /**
+   * @return The maximum time per sentence of each module in milliseconds.
+   */
+  Map<String, Double> getLatencyMaxMillis();
+
+  /**
+   * @return The whole report as JSON.
+   */
+  String getReport();
+
+  /**
+   * Discards all measurements.
+   */
+  void reset();
+}
@@ -1,8 +1,8 @@
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -32,7 +32,11 @@ import salsa.corpora.noelement.Id;
  */
 public class PresetSELocationModule implements Module {
 
-  private Map<String, HashMap<String, String>> SEsFromInput = new HashMap<>();
+  /**
+   * The preset SEs of every sentence which has any, in the order in which
+   * they were found.
+   */
+  private final Map<SentenceObj, List<SubtaskParser.PresetSE>> SEsBySentence = new IdentityHashMap<>();
   private SentenceList sentences = new SentenceList();
   private final SentimentLex lex;
   private final boolean findSources;
@@ -63,7 +67,16 @@ public class PresetSELocationModule implements Module {
   public PresetSELocationModule(Map<String, HashMap<String, String>> SEsFromInput,
           SentenceList sentences, SentimentLex lex, boolean findSources,
           boolean findTargets, boolean ignoreLexicon, Module giModule) {
-    this.SEsFromInput = SEsFromInput;
+    // Parse the SEs and resolve their sentence indexes once, so every sentence
+    // only visits its own SEs.
+    final Map<Integer, List<SubtaskParser.PresetSE>> SEsBySentence = SubtaskParser.groupBySentence(SEsFromInput);
+    int i = 0;
+    for (SentenceObj sentence : sentences.getSentenceList()) {
+      final List<SubtaskParser.PresetSE> presetSEs = SEsBySentence.get(i++);
+      if (presetSEs != null) {
+        this.SEsBySentence.put(sentence, presetSEs);
+      }
+    }
     this.sentences = sentences;
     this.lex = lex;
     this.findSources = findSources;
@@ -77,6 +90,17 @@ public class PresetSELocationModule implements Module {
 //    }
   }
 
+  /**
+   * Only the sentences with preset SEs are candidates.
+   *
+   * @param sentence The {@link SentenceObj}.
+   * @return true if SEs are preset in the sentence.
+   */
+  @Override
+  public boolean isCandidate(SentenceObj sentence) {
+    return SEsBySentence.containsKey(sentence);
+  }
+
   /**
    * Finds and sets frames for SEs and optionally looks for sources and targets.
    * Works with the SEs from the input from the
@@ -92,51 +116,27 @@ public class PresetSELocationModule implements Module {
     int hitcount = 0;
     int fecount = 0;
     int multiFrameCounter;
-
-    ConstituencyTree tree = sentence.getTree();
-    DependencyGraph graph = sentence.getGraph();
     final Collection<Frame> frames = new ArrayList<>();
 
-    // Iterate over all sentences and find the corresponding WordObjs.
-    for (Entry<String, HashMap<String, String>> entry
-            : SEsFromInput.entrySet()) {
-      String entryId = entry.getKey();
-      //entryId example: 311_83
-
-      //multiple SEs on the same entry case:
-      if (entry.getKey().contains("#")) {
-        entryId = entry.getKey().replaceAll("#", "");
-      }
-
-      /**
-       * A list of every wordId of a mwe.
-       */
-      List<String> mweIds = new LinkedList<>();
-      //Get the Ids of every mwe-part.
-      //entryId example (sentenceID_wordId§wordId§...): 330_31§32§33
-      if (entry.getKey().contains("§")) {
-        String wordIds = entryId.substring(entryId.indexOf("_") + 1, entryId.length());
-        //wordIds: 31§32§33
-        mweIds.addAll(Arrays.asList(wordIds.split("§")));
-      }
-
-      // Use Id of first mwe-part in case of mwe to look for the matching sentence.
-      if (entry.getKey().contains("§")) {
-        entryId = entryId.substring(0, entryId.indexOf("§"));
-      }
+    final List<SubtaskParser.PresetSE> presetSEs = SEsBySentence.get(sentence);
+    if (presetSEs == null) {
+      return frames;
+    }
 
+    ConstituencyTree tree = sentence.getTree();
+    DependencyGraph graph = sentence.getGraph();
+    SentenceObj toAnalyse = sentence;
+
+    // Iterate over the SEs of the sentence and find the corresponding WordObjs.
+    for (SubtaskParser.PresetSE presetSE : presetSEs) {
+      // Id of the first mwe-part in case of mwe, example: 311_83
+      String entryId = presetSE.wordId;
+      // A list of every wordId of a mwe.
+      List<String> mweIds = presetSE.mweIds;
       // The corresopnding sentence Id to the currently looked at SE.
-      String sentenceId = entryId.substring(0, entryId.indexOf("_"));
-      //sentenceID example: 83
-      //System.out.println("sentenceID: " + sentenceId); 
-
-      // Find the sentence in the SentenceList matching the current sentenceId.
-      SentenceObj toAnalyse = searchMatchingSentence(sentences, sentenceId);
-      if (toAnalyse != sentence) {
-        continue;
-      }
+      String sentenceId = presetSE.sentenceId;
 
-      HashMap<String, String> neu = entry.getValue();
+      HashMap<String, String> neu = presetSE.lemmaPos;
       //neu example: {Preisbindung=ADJA}
       //neu example: {setze_ein=MWE}
 
@@ -147,8 +147,7 @@ public class PresetSELocationModule implements Module {
         //elem key + value: vorsehen_vor + MWE
 //        System.out.println("elem: " + elem + " id: " + entryId + " entry.getKey() " + entry.getKey());
 
-        multiFrameCounter = entry.getKey().length() - entry.getKey().
-                replaceAll("#", "").length();
+        multiFrameCounter = presetSE.frameIndex;
         // The WordObj corresponding to the SE in the current sentence.
         WordObj word = findWordObj(toAnalyse, entryId);
 //        System.out.println("word: " + word);
@@ -192,7 +191,7 @@ public class PresetSELocationModule implements Module {
         final FrameElementIds feIds = new FrameElementIds(frame);
 
         Target target = new Target();
-        Id targetId = sentence.tree.getTerminal(word).getId();
+        Id targetId = sentence.getTree().getTerminal(word).getId();
 
         Fenode targetNode = new Fenode(targetId);
         target.addFenode(targetNode);
@@ -538,22 +537,6 @@ public class PresetSELocationModule implements Module {
     return fecount;
   }
 
-  /**
-   * Returns the matching sentence in the SentenceList given a sentenceId.
-   *
-   * @param sentences The complete sentence list.
-   * @param sentenceId The Id of the sentence to be matched.
-   * @return The matching sentence as SentenceObj.
-   */
-  public SentenceObj searchMatchingSentence(SentenceList sentences, String sentenceId) {
-    for (int i = 0; i < sentences.getSentenceList().size(); i++) {
-      if ((i) == Integer.parseInt(sentenceId)) {
-        return sentences.getSentenceList().get(i);
-      }
-    }
-    return null;
-  }
-
   /**
    * Returns the fitting wordObj given a SentenceObj and a word Id as String.
    *
@@ -0,0 +1,749 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import salsa.corpora.elements.Element;
+import salsa.corpora.elements.Fenode;
+import salsa.corpora.elements.Flag;
+import salsa.corpora.elements.Frame;
+import salsa.corpora.elements.FrameElement;
+import salsa.corpora.elements.Graph;
+import salsa.corpora.elements.Nonterminal;
+import salsa.corpora.elements.Secedge;
+import salsa.corpora.elements.Sentence;
+import salsa.corpora.elements.Target;
+import salsa.corpora.elements.Terminal;
+import salsa.corpora.noelement.Id;
+import salsa.util.CompressedStreams;
+
+/**
+ * A {@link ResultCache} keeps the frames found in each sentence in a file, so that a later run over a
+ * partly changed corpus only analyses the sentences that have changed.
+ *
+ * The key of a sentence is a SHA-256 hash of everything the modules look at: the words with their lemma,
+ * part of speech, relation and head, the named entities, the Tiger graph and a fingerprint of the lexicon
+ * and the settings of the modules (see {@link #computeFingerprint(List, String)}). The ids in the graph and
+ * in the frames are stored relative to the id of the sentence, so a sentence that has moved to another line
+ * is still found, and its frames get the ids of the new line.
+ *
+ * The cache keeps the entries in the order in which they were last used. When it grows beyond its size
+ * limit, the least recently used entries are evicted. Besides the frames, every entry stores how long the
+ * analysis took, from which the time saved by the cache is reported. Changes to the modules themselves are
+ * not part of the key, so the cache file must be deleted after updating the extractor.
+ *
+ * A cache without a file lives for one run only. It still saves the analysis of sentences which occur
+ * several times in a corpus, like headlines, boilerplate and repeated quotes: each copy after the first gets
+ * the frames of the first copy with its own ids.
+ */
+public class ResultCache {
+
+  private static final int MAGIC = 0x4f525843; // "ORXC"
+  private static final int VERSION = 2;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final int KEY_BYTES = 32;
+  // the size of an entry in the file besides its frames: the key, the analysis time and the length
+  private static final int ENTRY_OVERHEAD = KEY_BYTES + 8 + 4;
+
+  private static final int NO_STRING = -1;
+
+  // how an id is stored, see writeId
+  private static final byte NO_ID = 0;
+  private static final byte ABSOLUTE_ID = 1;
+  private static final byte SENTENCE_ID = 2;
+  private static final byte GRAPH_ID = 3;
+
+  /**
+   * The serialized frames of a sentence and the time it took to find them.
+   */
+  private static final class Entry {
+
+    private final byte[] frames;
+    private final long analysisNanos;
+
+    Entry(byte[] frames, long analysisNanos) {
+      this.frames = frames;
+      this.analysisNanos = analysisNanos;
+    }
+
+    int size() {
+      return ENTRY_OVERHEAD + frames.length;
+    }
+  }
+
+  private final File file;
+  private final String fingerprint;
+  private final long maxBytes;
+
+  // the entries by hex encoded key, from the least to the most recently used
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(1 << 10, 0.75f, true);
+  private long bytes;
+
+  private long hits;
+  private long misses;
+  private long evicted;
+  private long savedNanos;
+  private long lookupNanos;
+
+  /**
+   * @param file The cache file, which is gzip compressed if its name ends with ".gz", or null to keep the
+   * entries in memory during the run only.
+   * @param fingerprint The fingerprint of the lexicon and the settings as computed by
+   * {@link #computeFingerprint(List, String)}.
+   * @param maxBytes The maximum size of the entries in bytes, 0 for no limit.
+   */
+  public ResultCache(File file, String fingerprint, long maxBytes) {
+    this.file = file;
+    this.fingerprint = fingerprint;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Computes the part of the keys which is the same for all sentences of a run.
+   *
+   * @param lexiconFiles The paths of the lexicon files that are read by the modules.
+   * @param settings A {@link String} that describes the settings which influence the modules.
+   * @return The hex encoded SHA-256 hash of the format version, the settings and the file contents.
+   * @throws IOException If a lexicon file cannot be read.
+   */
+  public static String computeFingerprint(List<String> lexiconFiles, String settings) throws IOException {
+    return CorpusSnapshot.computeKey(lexiconFiles, "ResultCache " + VERSION + "\n" + settings);
+  }
+
+  /**
+   * @return The cache file, or null if the cache is kept in memory only.
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Reads the entries of the cache file. A missing file gives an empty cache.
+   *
+   * @throws IOException If the file cannot be read or is not a cache file of this version.
+   */
+  public synchronized void read() throws IOException {
+    if (!file.isFile()) {
+      return;
+    }
+    final DataInputStream in = new DataInputStream(new BufferedInputStream(
+            CompressedStreams.openInput(file.getPath()), 1 << 16));
+    try {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException(file + " is not a result cache of this version");
+      }
+      final int size = in.readInt();
+      final byte[] key = new byte[KEY_BYTES];
+      for (int i = 0; i < size; i++) {
+        in.readFully(key);
+        final long analysisNanos = in.readLong();
+        final int length = in.readInt();
+        if (length < 0) {
+          throw new IOException(file + " is broken");
+        }
+        final byte[] frames = new byte[length];
+        in.readFully(frames);
+        add(toHex(key), new Entry(frames, analysisNanos));
+      }
+    } catch (EOFException e) {
+      throw new IOException(file + " is truncated");
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Writes all entries to the cache file, the least recently used first so that they are evicted first in
+   * the next run. The file is written to a temporary file first, so that an interrupted run never leaves a
+   * broken cache behind.
+   *
+   * @throws IOException If the file cannot be written.
+   */
+  public synchronized void write() throws IOException {
+    final String path = file.getPath();
+    final File tmp = new File(CompressedStreams.isCompressed(path)
+            ? path.substring(0, path.length() - 3) + ".tmp.gz" : path + ".tmp");
+    final DataOutputStream out = new DataOutputStream(CompressedStreams.openOutput(tmp.getPath()));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(entries.size());
+      for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+        out.write(fromHex(entry.getKey()));
+        out.writeLong(entry.getValue().analysisNanos);
+        out.writeInt(entry.getValue().frames.length);
+        out.write(entry.getValue().frames);
+      }
+    } finally {
+      out.close();
+    }
+
+    if (file.exists() && !file.delete() || !tmp.renameTo(file)) {
+      tmp.delete();
+      throw new IOException("Could not move result cache to " + file);
+    }
+  }
+
+  /**
+   * Finds the frames of a sentence in the cache, or runs the modules and adds their frames to the cache.
+   * Sentences which are no candidates (see {@link SentenceObj#isCandidate()}) are passed on to the modules
+   * directly, since nothing needs to be done for them. Frames that may be incomplete because the sentence
+   * exceeded the time budget are not added.
+   *
+   * @param modules The modules.
+   * @param sentence The preprocessed sentence.
+   * @param tigerSentence The sentence in the Salsa / Tiger XML corpus, whose graph is part of the key.
+   * @param metrics The metrics with which the modules are run and in which the hits and misses are counted.
+   * @param budgetMillis The time budget in milliseconds, 0 for no limit.
+   * @return The frames of the sentence.
+   */
+  public List<Frame> findFrames(Collection<Module> modules, SentenceObj sentence, Sentence tigerSentence,
+          PipelineMetrics metrics, long budgetMillis) {
+    if (!sentence.isCandidate()) {
+      return metrics.findFrames(modules, sentence, budgetMillis);
+    }
+    return findFrames(modules, sentence, tigerSentence, computeKey(sentence, tigerSentence), 0, metrics, budgetMillis);
+  }
+
+  /**
+   * Finds the frames of a candidate sentence like {@link #findFrames(Collection, SentenceObj, Sentence,
+   * PipelineMetrics, long)}, but with a key that has already been computed. This is used by the
+   * {@link AnalysisPipeline}, whose reader computes the key before it builds the graph of the sentence.
+   *
+   * @param modules The modules.
+   * @param sentence The preprocessed sentence.
+   * @param tigerSentence The sentence in the Salsa / Tiger XML corpus.
+   * @param key The key computed with {@link #computeKey(SentenceObj, Sentence)} before the graph of the
+   * sentence was built.
+   * @param preparationNanos The time already spent on preparing the sentence for the modules, which is
+   * added to the time of the analysis.
+   * @param metrics The metrics with which the modules are run and in which the hits and misses are counted.
+   * @param budgetMillis The time budget in milliseconds, 0 for no limit.
+   * @return The frames of the sentence.
+   */
+  public List<Frame> findFrames(Collection<Module> modules, SentenceObj sentence, Sentence tigerSentence,
+          String key, long preparationNanos, PipelineMetrics metrics, long budgetMillis) {
+    final String sentenceId = sentence.id.getId();
+    final String graphId = tigerSentence.getId().getId();
+
+    final long start = System.nanoTime();
+    final Entry entry;
+    synchronized (this) {
+      entry = entries.get(key);
+    }
+    if (entry != null) {
+      try {
+        final List<Frame> frames = decodeFrames(entry.frames, sentenceId, graphId);
+        synchronized (this) {
+          hits++;
+          savedNanos += entry.analysisNanos;
+          lookupNanos += System.nanoTime() - start;
+        }
+        metrics.recordCacheHit(entry.analysisNanos);
+        return frames;
+      } catch (IOException e) {
+        System.err.println("Sentence " + sentenceId + ": could not read the cached frames, analysing the sentence again: "
+                + e.getMessage());
+      }
+    }
+    final long lookup = System.nanoTime() - start;
+    metrics.recordCacheMiss();
+
+    final long analysisStart = System.nanoTime();
+    final List<Frame> frames = metrics.findFrames(modules, sentence, budgetMillis);
+    final long analysisNanos = preparationNanos + System.nanoTime() - analysisStart;
+
+    final long storeStart = System.nanoTime();
+    final boolean complete = !sentence.isNormalizationFallback()
+            && (budgetMillis <= 0 || analysisNanos < budgetMillis * 1000000L);
+    final byte[] encoded = complete ? encodeFrames(frames, sentenceId, graphId) : null;
+    synchronized (this) {
+      misses++;
+      if (encoded != null) {
+        add(key, new Entry(encoded, analysisNanos));
+      }
+      lookupNanos += lookup + System.nanoTime() - storeStart;
+    }
+    return frames;
+  }
+
+  /**
+   * Checks whether the frames of a sentence are in the cache, without counting a hit or a miss.
+   *
+   * @param key The key of the sentence.
+   * @return true if the cache has an entry for the key.
+   */
+  public synchronized boolean contains(String key) {
+    return entries.containsKey(key);
+  }
+
+  /**
+   * Adds an entry and evicts the least recently used entries until the cache fits into its size limit.
+   */
+  private void add(String key, Entry entry) {
+    final Entry old = entries.put(key, entry);
+    if (old != null) {
+      bytes -= old.size();
+    }
+    bytes += entry.size();
+    if (maxBytes > 0) {
+      final Iterator<Entry> eldest = entries.values().iterator();
+      while (bytes > maxBytes && eldest.hasNext()) {
+        bytes -= eldest.next().size();
+        eldest.remove();
+        evicted++;
+      }
+    }
+  }
+
+  /**
+   * @return The number of sentences whose frames were found in the cache.
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return The number of sentences which were analysed since their frames were not in the cache.
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return A summary of the hits and misses, the time saved and the size of the cache.
+   */
+  public synchronized String getReport() {
+    final long lookups = hits + misses;
+    if (file == null) {
+      return String.format(Locale.ROOT, "Duplicate sentences: %d of %d analyses saved, %.1f ms of analysis saved, "
+              + "%.1f ms spent on finding duplicates; %d sentences kept (%.1f MB), %d evicted", hits, lookups,
+              savedNanos / 1e6, lookupNanos / 1e6, entries.size(), bytes / (1024.0 * 1024.0), evicted);
+    }
+    return String.format(Locale.ROOT, "Result cache: %d hits, %d misses (hit rate %.1f%%), %.1f ms of analysis saved, "
+            + "%.1f ms spent on the cache; %d entries (%.1f MB), %d evicted", hits, misses,
+            lookups == 0 ? 0.0 : 100.0 * hits / lookups, savedNanos / 1e6, lookupNanos / 1e6, entries.size(),
+            bytes / (1024.0 * 1024.0), evicted);
+  }
+
+  /**
+   * Computes the key of a sentence. The ids of the nodes of the graph are written relative to the id of the
+   * sentence, so that the key does not depend on the position of the sentence in the corpus.
+   *
+   * @param sentence The preprocessed sentence.
+   * @param tigerSentence The sentence in the Salsa / Tiger XML corpus.
+   * @return The hex encoded SHA-256 hash of the fingerprint and the sentence.
+   */
+  String computeKey(SentenceObj sentence, Sentence tigerSentence) {
+    final long start = System.nanoTime();
+    final String key = buildKey(sentence, tigerSentence);
+    synchronized (this) {
+      lookupNanos += System.nanoTime() - start;
+    }
+    return key;
+  }
+
+  private String buildKey(SentenceObj sentence, Sentence tigerSentence) {
+    final String sentenceId = sentence.id.getId();
+    final String graphId = tigerSentence.getId().getId();
+    final KeyBuilder key = new KeyBuilder();
+
+    key.string(fingerprint);
+    // the frames refer to nodes by both ids, so it matters whether they are the same
+    key.bool(sentenceId.equals(graphId));
+    key.string(sentence.sentence);
+
+    key.integer(sentence.wordList.size());
+    for (WordObj word : sentence.wordList) {
+      key.string(word.getName());
+      key.string(word.getLemma());
+      key.string(word.getPos());
+      key.string(word.getRelation());
+      key.integer(word.getEdge());
+      key.integer(word.getPosition());
+      key.bool(word.getIsParticleVerb());
+      key.integer(word.getParticle() == null ? -1 : word.getParticle().getPosition());
+      key.integer(word.getDeleted().size());
+      for (WordObj deleted : word.getDeleted()) {
+        key.integer(deleted.getPosition());
+      }
+    }
+
+    final NamedEntityList namedEntityList = sentence.getNamedEntityList();
+    key.bool(namedEntityList != null);
+    if (namedEntityList != null) {
+      key.integer(namedEntityList.getNamedEntities().size());
+      for (NamedEntity ne : namedEntityList.getNamedEntities()) {
+        key.string(ne.getName());
+        key.string(ne.getTag());
+        key.integer(ne.getStartIndex());
+        key.integer(ne.getEndIndex());
+      }
+    }
+
+    final Graph graph = tigerSentence.getGraph();
+    key.bool(graph != null);
+    if (graph != null) {
+      key.id(graph.getRoot(), graphId);
+      key.integer(graph.getTerminals().getTerminals().size());
+      for (Terminal terminal : graph.getTerminals().getTerminals()) {
+        key.id(terminal.getId(), graphId);
+        key.string(terminal.getWord());
+        key.string(terminal.getLemma());
+        key.string(terminal.getPos());
+        key.string(terminal.getMorph());
+        key.secedge(terminal.getSecedge(), graphId);
+      }
+      key.integer(graph.getNonterminals().getNonterminals().size());
+      for (Nonterminal nonterminal : graph.getNonterminals().getNonterminals()) {
+        key.id(nonterminal.getId(), graphId);
+        key.string(nonterminal.getCat());
+        key.secedge(nonterminal.getSecedge(), graphId);
+        key.integer(nonterminal.getEdges().size());
+        for (salsa.corpora.elements.Edge edge : nonterminal.getEdges()) {
+          key.id(edge.getId(), graphId);
+          key.string(edge.getLabel());
+        }
+      }
+    }
+    return key.digest();
+  }
+
+  /**
+   * Collects the parts of a key in a buffer which is hashed at once, since hashing many small pieces and
+   * encoding every string is slow. Strings are written as their length and chars.
+   */
+  private static final class KeyBuilder {
+
+    private char[] buffer = new char[2048];
+    private int length;
+
+    void string(String value) {
+      if (value == null) {
+        integer(NO_STRING);
+        return;
+      }
+      integer(value.length());
+      ensure(value.length());
+      value.getChars(0, value.length(), buffer, length);
+      length += value.length();
+    }
+
+    void integer(int value) {
+      ensure(2);
+      buffer[length++] = (char) (value >>> 16);
+      buffer[length++] = (char) value;
+    }
+
+    void bool(boolean value) {
+      ensure(1);
+      buffer[length++] = value ? '1' : '0';
+    }
+
+    /**
+     * Writes the id of a node of the graph relative to the id of the graph.
+     */
+    void id(Id id, String graphId) {
+      if (id == null) {
+        string(null);
+      } else if (id.getId().startsWith(graphId + "_")) {
+        bool(true);
+        string(id.getId().substring(graphId.length()));
+      } else {
+        bool(false);
+        string(id.getId());
+      }
+    }
+
+    void secedge(Secedge secedge, String graphId) {
+      bool(secedge != null);
+      if (secedge != null) {
+        id(secedge.getId(), graphId);
+        string(secedge.getLabel());
+      }
+    }
+
+    private void ensure(int size) {
+      if (length + size > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, length + size));
+      }
+    }
+
+    String digest() {
+      final MessageDigest digest;
+      try {
+        digest = MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException("SHA-256 is not available: " + e.getMessage());
+      }
+      final byte[] bytes = new byte[2 * length];
+      for (int i = 0; i < length; i++) {
+        bytes[2 * i] = (byte) (buffer[i] >>> 8);
+        bytes[2 * i + 1] = (byte) buffer[i];
+      }
+      return toHex(digest.digest(bytes));
+    }
+  }
+
+  /**
+   * Serializes frames with all their attributes, so that they are written exactly like the frames found by
+   * the modules.
+   *
+   * @param frames The frames of a sentence.
+   * @param sentenceId The id of the {@link SentenceObj}, relative to which the ids are stored.
+   * @param graphId The id of the sentence in the Salsa / Tiger XML corpus.
+   * @return The serialized frames.
+   */
+  static byte[] encodeFrames(Collection<Frame> frames, String sentenceId, String graphId) {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+    final DataOutputStream out = new DataOutputStream(buffer);
+    try {
+      out.writeInt(frames.size());
+      for (Frame frame : frames) {
+        writeString(out, frame.getName());
+        writeId(out, frame.getId(), sentenceId, graphId, false);
+        writeString(out, frame.getSource());
+        writeString(out, frame.getUsp());
+        out.writeInt(frame.getElements().size());
+        for (Element element : frame.getElements()) {
+          writeString(out, element.getName());
+          writeString(out, element.getOptional());
+        }
+
+        final Target target = frame.getTarget();
+        out.writeBoolean(target != null);
+        if (target != null) {
+          writeId(out, target.getId(), sentenceId, graphId, false);
+          writeString(out, target.getLemma());
+          writeString(out, target.getHeadlemma());
+          writeFenodes(out, target.getFenodes(), sentenceId, graphId);
+        }
+
+        out.writeInt(frame.getFes().size());
+        for (FrameElement fe : frame.getFes()) {
+          writeId(out, fe.getId(), sentenceId, graphId, false);
+          writeString(out, fe.getName());
+          writeString(out, fe.getSource());
+          writeString(out, fe.getUsp());
+          writeFenodes(out, fe.getFenodes(), sentenceId, graphId);
+          writeFlags(out, fe.getFlags());
+        }
+        writeFlags(out, frame.getFlags());
+      }
+      out.flush();
+    } catch (IOException e) {
+      // a ByteArrayOutputStream does not throw
+      throw new IllegalStateException(e);
+    }
+    return buffer.toByteArray();
+  }
+
+  private static void writeFenodes(DataOutputStream out, List<Fenode> fenodes, String sentenceId, String graphId)
+          throws IOException {
+    out.writeInt(fenodes.size());
+    for (Fenode fenode : fenodes) {
+      writeId(out, fenode.getIdref(), sentenceId, graphId, true);
+      writeString(out, fenode.getIs_split());
+    }
+  }
+
+  private static void writeFlags(DataOutputStream out, List<Flag> flags) throws IOException {
+    out.writeInt(flags.size());
+    for (Flag flag : flags) {
+      writeString(out, flag.getName());
+      writeString(out, flag.getForWhat());
+      writeString(out, flag.getSource());
+      writeString(out, flag.getText());
+    }
+  }
+
+  /**
+   * Deserializes frames and gives them the ids of the sentence.
+   *
+   * @param encoded The frames as serialized by {@link #encodeFrames(Collection, String, String)}.
+   * @param sentenceId The id of the {@link SentenceObj}.
+   * @param graphId The id of the sentence in the Salsa / Tiger XML corpus.
+   * @return The frames.
+   * @throws IOException If the data is broken.
+   */
+  static List<Frame> decodeFrames(byte[] encoded, String sentenceId, String graphId) throws IOException {
+    final DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+    try {
+      final int frameCount = in.readInt();
+      final List<Frame> frames = new ArrayList<Frame>(frameCount);
+      for (int i = 0; i < frameCount; i++) {
+        final Frame frame = new Frame(readString(in));
+        frame.setId(readId(in, sentenceId, graphId));
+        frame.setSource(readString(in));
+        frame.setUsp(readString(in));
+        final int elementCount = in.readInt();
+        for (int j = 0; j < elementCount; j++) {
+          final String name = readString(in);
+          frame.addElement(new Element(name, readString(in)));
+        }
+
+        if (in.readBoolean()) {
+          final Target target = new Target();
+          target.setId(readId(in, sentenceId, graphId));
+          target.setLemma(readString(in));
+          target.setHeadlemma(readString(in));
+          for (Fenode fenode : readFenodes(in, sentenceId, graphId)) {
+            target.addFenode(fenode);
+          }
+          frame.setTarget(target);
+        }
+
+        final int feCount = in.readInt();
+        for (int j = 0; j < feCount; j++) {
+          final Id id = readId(in, sentenceId, graphId);
+          final FrameElement fe = new FrameElement(id, readString(in));
+          fe.setSource(readString(in));
+          fe.setUsp(readString(in));
+          for (Fenode fenode : readFenodes(in, sentenceId, graphId)) {
+            fe.addFenode(fenode);
+          }
+          for (Flag flag : readFlags(in)) {
+            fe.addFlag(flag);
+          }
+          frame.addFe(fe);
+        }
+        for (Flag flag : readFlags(in)) {
+          frame.addFlag(flag);
+        }
+        frames.add(frame);
+      }
+      if (in.read() != -1) {
+        throw new IOException("unexpected data after the frames");
+      }
+      return frames;
+    } catch (EOFException e) {
+      throw new IOException("the frames are truncated");
+    }
+  }
+
+  private static List<Fenode> readFenodes(DataInputStream in, String sentenceId, String graphId) throws IOException {
+    final int size = in.readInt();
+    final List<Fenode> fenodes = new ArrayList<Fenode>(size);
+    for (int i = 0; i < size; i++) {
+      final Id idref = readId(in, sentenceId, graphId);
+      fenodes.add(new Fenode(idref, readString(in)));
+    }
+    return fenodes;
+  }
+
+  private static List<Flag> readFlags(DataInputStream in) throws IOException {
+    final int size = in.readInt();
+    final List<Flag> flags = new ArrayList<Flag>(size);
+    for (int i = 0; i < size; i++) {
+      final String name = readString(in);
+      final Flag flag = new Flag(name, readString(in));
+      flag.setSource(readString(in));
+      flag.setText(readString(in));
+      flags.add(flag);
+    }
+    return flags;
+  }
+
+  /**
+   * Writes an id relative to the id of the sentence or of its graph if it starts with one of them, e.g.
+   * "12_f1" of sentence 12 as "_f1". If both ids of the sentence are the same, graphFirst decides which of
+   * them the id is restored with.
+   */
+  private static void writeId(DataOutputStream out, Id id, String sentenceId, String graphId, boolean graphFirst)
+          throws IOException {
+    if (id == null) {
+      out.writeByte(NO_ID);
+      return;
+    }
+    final String value = id.getId();
+    if (graphFirst && value.startsWith(graphId + "_")) {
+      out.writeByte(GRAPH_ID);
+      writeString(out, value.substring(graphId.length()));
+    } else if (value.startsWith(sentenceId + "_")) {
+      out.writeByte(SENTENCE_ID);
+      writeString(out, value.substring(sentenceId.length()));
+    } else if (value.startsWith(graphId + "_")) {
+      out.writeByte(GRAPH_ID);
+      writeString(out, value.substring(graphId.length()));
+    } else {
+      out.writeByte(ABSOLUTE_ID);
+      writeString(out, value);
+    }
+    out.writeBoolean(id.getIsTerminal());
+  }
+
+  private static Id readId(DataInputStream in, String sentenceId, String graphId) throws IOException {
+    final byte kind = in.readByte();
+    if (kind == NO_ID) {
+      return null;
+    }
+    final String value = readString(in);
+    final String id;
+    if (kind == SENTENCE_ID) {
+      id = sentenceId + value;
+    } else if (kind == GRAPH_ID) {
+      id = graphId + value;
+    } else if (kind == ABSOLUTE_ID) {
+      id = value;
+    } else {
+      throw new IOException("unknown kind of id " + kind);
+    }
+    return new Id(id, in.readBoolean());
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(NO_STRING);
+      return;
+    }
+    final byte[] bytes = value.getBytes(UTF8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    final int length = in.readInt();
+    if (length == NO_STRING) {
+      return null;
+    }
+    if (length < 0 || length > in.available()) {
+      throw new IOException("invalid string length " + length);
+    }
+    final byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, UTF8);
+  }
+
+  private static String toHex(byte[] bytes) {
+    final StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return hex.toString();
+  }
+
+  private static byte[] fromHex(String hex) {
+    final byte[] bytes = new byte[hex.length() / 2];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+    }
+    return bytes;
+  }
+}
@@ -5,7 +5,9 @@ import java.util.Properties;
  * @author Erik Hahn
  *
  * Retrieves configuration data similarily to {@link java.util.Properties} but provides some protection
- * against configuration and programming errors.
+ * against configuration and programming errors. Keys that are missing in the configuration file get their
+ * {@link ConfigKeys#getDefaultValue() default value}, so configuration files written before a key was added
+ * keep working.
  */
 class SafeProperties {
 	final Properties properties;
@@ -18,30 +20,20 @@ class SafeProperties {
 		this.properties = properties;
 	}
 
-	private String getProperty(String key) throws IOException {
-		final String result = properties.getProperty(key);
-		if (result == null) {
-			throw new IOException("The variable " + key + " is not specified in the configuration file.");
-		} else {
-			return result;
-		}
-	}
-
 	/**
 	 * @param key A {@link ConfigKeys} object
-	 * @return The value configured for the given configuration key
-	 * @throws IOException if no value is present in the configuration file for the given key
+	 * @return The value configured for the given configuration key, or its default value if the configuration file
+	 * does not specify it
 	 */
-	public String getProperty(ConfigKeys key) throws IOException {
-		return getProperty(key.toString());
+	public String getProperty(ConfigKeys key) {
+		return properties.getProperty(key.toString(), key.getDefaultValue());
 	}
 
 	/**
 	 *
 	 * @param key A {@link ConfigKeys} object
 	 * @return true if <code>getProperty(key)=="True"</code>, false otherwise
-	 * @throws IOException if no value is present in the configuration file for the given key or if the value is
-	 * not "True" or "False"
+	 * @throws IOException if the value is not "True" or "False"
 	 */
 	public boolean getPropertyBool(ConfigKeys key) throws IOException {
 		final String rawValue = getProperty(key);
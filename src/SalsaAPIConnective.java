@@ -1,5 +1,6 @@
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -27,7 +28,7 @@ public class SalsaAPIConnective {
 	private Head head;
 	private ArrayList<Sentence> sentences;
 	private LinkedList<Graph> graphs;
-	private LinkedList<ConstituencyTree> trees;
+	private SentenceList sentenceList;
 
 	/**
 	 * Parses a Salsa XML file which represents a corpus by:
@@ -43,18 +44,31 @@ public class SalsaAPIConnective {
 	 * @param sentenceList A {@link SentenceList} containing all sentences of the XML corpus as {@link SentenceObj}.
 	 */
 	public SalsaAPIConnective(String file, SentenceList sentenceList){
+		this(file, sentenceList, null);
+	}
+
+	/**
+	 * Parses a Salsa XML file like {@link #SalsaAPIConnective(String, SentenceList)}, but with a given
+	 * {@link CorpusParser}. This allows one parser to be reused for several files.
+	 *
+	 * @param file A {@link String} of the path of the Salsa XML corpus.
+	 * @param sentenceList A {@link SentenceList} containing all sentences of the XML corpus as {@link SentenceObj}.
+	 * @param corpusParser The {@link CorpusParser} used to parse the file. If it is null, a new validating parser is created.
+	 */
+	public SalsaAPIConnective(String file, SentenceList sentenceList, CorpusParser corpusParser){
 		
 		this.graphs = new LinkedList<Graph>();
-		this.trees = new LinkedList<ConstituencyTree>();
 
-		this.parser = null;
+		this.parser = corpusParser;
 		
-		try {
-			parser = new CorpusParser();
-		} catch (ParserConfigurationException e) {
-			e.printStackTrace();
-		} catch (SAXException e) {
-			e.printStackTrace();
+		if (parser == null) {
+			try {
+				parser = new CorpusParser();
+			} catch (ParserConfigurationException e) {
+				e.printStackTrace();
+			} catch (SAXException e) {
+				e.printStackTrace();
+			}
 		}
 		
 		this.corpus = null;
@@ -67,28 +81,49 @@ public class SalsaAPIConnective {
 			e.printStackTrace();
 		}
 		
+		assignTrees(sentenceList);
+	}
+
+	/**
+	 * Wraps an already parsed {@link Corpus}, e.g. one read from a {@link CorpusSnapshot}, and assigns its
+	 * {@link ConstituencyTree}s like {@link #SalsaAPIConnective(String, SentenceList)}.
+	 *
+	 * @param corpus The {@link Corpus} object representing the Salsa XML corpus.
+	 * @param sentenceList A {@link SentenceList} containing all sentences of the XML corpus as {@link SentenceObj}.
+	 */
+	public SalsaAPIConnective(Corpus corpus, SentenceList sentenceList){
+
+		this.graphs = new LinkedList<Graph>();
+		this.corpus = corpus;
+
+		assignTrees(sentenceList);
+	}
+
+	/**
+	 * Assigns the {@link Graph} of every {@link Sentence} of {@link #corpus} to the corresponding
+	 * {@link SentenceObj}, which builds its {@link ConstituencyTree} from it on first use.
+	 */
+	private void assignTrees(SentenceList sentenceList){
+
 		this.body = corpus.getBody();
 		this.head = corpus.getHead();
 
 		this.sentences = body.getSentences();
 		
-		// for every Sentence in the Corpus, get its Graph representation. From the Graph, create a ConstituencyTree.
+		// for every Sentence in the Corpus, get its Graph representation. The ConstituencyTree is created from it
+		// when it is first used.
 		
 		for (Sentence sentence: this.sentences){
 			Graph graph = sentence.getGraph();
 			this.graphs.add(graph);
-			ConstituencyTree tree = new ConstituencyTree(graph);
-			this.trees.add(tree);
-			
 		}
 			
-		// iterate over SentenceList and assign the corresponding ConstituencyTree to each SentenceObj.
+		// iterate over SentenceList and assign the corresponding Graph to each SentenceObj.
 
-		for (int j = 0; j <= sentenceList.sentenceList.size() - 1; j++){
-			
-			SentenceObj sent = sentenceList.sentenceList.get(j);
-			ConstituencyTree constTree = this.trees.get(j);
-			sent.setTree(constTree);
+		this.sentenceList = sentenceList;
+		Iterator<Graph> graphIterator = this.graphs.iterator();
+		for (SentenceObj sent : sentenceList.sentenceList){
+			sent.setTreeGraph(graphIterator.next());
 		}
 		
 		
@@ -131,8 +166,13 @@ public class SalsaAPIConnective {
 	
 	/**
 	 * @return A {@link LinkedList} of {@link ConstituencyTree} objects which represent the tree structure of every sentence in the Salsa XML corpus and are created from the {@link Graph} objects of the Salsa Java API.
+	 * The trees which have not been used yet are built now.
 	 */
 	public LinkedList<ConstituencyTree> getTrees() {
+		LinkedList<ConstituencyTree> trees = new LinkedList<ConstituencyTree>();
+		for (SentenceObj sent : sentenceList.sentenceList){
+			trees.add(sent.getTree());
+		}
 		return trees;
 	}
 
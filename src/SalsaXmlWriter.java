@@ -0,0 +1,77 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import salsa.corpora.elements.Body;
+import salsa.corpora.elements.Corpus;
+import salsa.corpora.elements.Sentence;
+import salsa.util.CompressedStreams;
+
+/**
+ * A {@link SalsaXmlWriter} writes a Salsa XML corpus one sentence at a time, so the sentences can be
+ * written as soon as their frames have been found instead of building the text of the whole corpus in
+ * memory. The output is the same as that of {@link Corpus#toString()}.
+ */
+public class SalsaXmlWriter implements Closeable {
+
+  private static final String NEWLINE = System.getProperty("line.separator");
+
+  private final Writer out;
+
+  /**
+   * Writes the start of the corpus, including its head.
+   *
+   * @param out The writer to which the corpus is written.
+   * @param corpus The corpus whose name, target and head are written.
+   * @throws IOException If the start cannot be written.
+   */
+  public SalsaXmlWriter(Writer out, Corpus corpus) throws IOException {
+    this.out = out;
+    out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + NEWLINE);
+    out.write("<" + Corpus.getXmltag() + " corpusname=\"" + corpus.getCorpusname()
+            + "\" target=\"" + corpus.getTarget() + "\">" + NEWLINE);
+    if (corpus.getHead() != null) {
+      out.write("\t" + corpus.getHead().toString());
+    }
+    out.write("\t<" + Body.getXmltag() + ">" + NEWLINE);
+  }
+
+  /**
+   * Opens a file in the platform's default encoding like {@link salsa.util.MyFileWriter}, which is gzip
+   * compressed if its name ends with ".gz", and writes the start of the corpus.
+   *
+   * @param filename The path of the file.
+   * @param corpus The corpus whose name, target and head are written.
+   * @throws IOException If the file cannot be created.
+   */
+  public SalsaXmlWriter(String filename, Corpus corpus) throws IOException {
+    this(new BufferedWriter(new OutputStreamWriter(CompressedStreams.openOutput(filename))), corpus);
+  }
+
+  /**
+   * Writes a sentence of the body.
+   *
+   * @param sentence The sentence, including its semantics.
+   * @throws IOException If the sentence cannot be written.
+   */
+  public void write(Sentence sentence) throws IOException {
+    out.write("\t\t" + sentence.toString());
+  }
+
+  /**
+   * Writes the end of the corpus. The file is complete only if this is called before {@link #close()}.
+   *
+   * @throws IOException If the end cannot be written.
+   */
+  public void finish() throws IOException {
+    out.write("\t</" + Body.getXmltag() + ">" + NEWLINE);
+    out.write("</" + Corpus.getXmltag() + ">" + NEWLINE);
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
@@ -0,0 +1,58 @@
+/**
+ * A time budget for processing one sentence. Malformed parses can make the normalization of a dependency
+ * graph or the matching of multi-word expressions run for a very long time, so the loops and recursions
+ * which depend on the shape of the parse call {@link #check()}, which throws an {@link ExceededException}
+ * once the budget of the sentence the current thread is processing is used up.
+ *
+ * The budget is cooperative: code that never calls {@link #check()} is not interrupted. Normalization and
+ * annotation of a sentence each get the whole budget.
+ */
+final class SentenceBudget {
+
+  private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<Long>();
+
+  private SentenceBudget() {
+  }
+
+  /**
+   * Starts the budget of a sentence in the current thread.
+   *
+   * @param millis The budget in milliseconds. If 0 or less, the time is not limited.
+   */
+  static void start(long millis) {
+    if (millis > 0) {
+      DEADLINE.set(System.nanoTime() + millis * 1000000L);
+    } else {
+      DEADLINE.remove();
+    }
+  }
+
+  /**
+   * Ends the budget started by {@link #start(long)}.
+   */
+  static void stop() {
+    DEADLINE.remove();
+  }
+
+  /**
+   * @throws ExceededException If the budget of the current sentence is used up.
+   */
+  static void check() {
+    final Long deadline = DEADLINE.get();
+    if (deadline != null && System.nanoTime() - deadline > 0) {
+      throw new ExceededException();
+    }
+  }
+
+  /**
+   * Thrown by {@link SentenceBudget#check()} if the budget of the current sentence is used up.
+   */
+  static class ExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    ExceededException() {
+      super("The time budget of the sentence is exceeded");
+    }
+  }
+}
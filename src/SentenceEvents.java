@@ -0,0 +1,117 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Custom Java Flight Recorder events for the processing of single sentences: the normalization of the
+ * dependency graph, the matching of multi-word expressions, the search for argument nodes in the
+ * constituency tree and the execution of every {@link Module}. Each event carries the id and the number of
+ * tokens of the sentence, so a recording shows which sentences are slow in which step:
+ *
+ * <pre>
+ * java -XX:StartFlightRecording=filename=run.jfr ... Main config.txt
+ * jfr print --events opinionroles.ModuleExecution run.jfr
+ * </pre>
+ *
+ * The MWE and argument events are only recorded if they take at least 1 ms, since they occur many times per
+ * sentence. The thresholds can be changed in the settings of the recording. The events of a step refer to
+ * the sentence that was passed to {@link #enter(SentenceObj)} in the same thread.
+ */
+final class SentenceEvents {
+
+  private static final ThreadLocal<SentenceObj> CURRENT = new ThreadLocal<SentenceObj>();
+
+  private SentenceEvents() {
+  }
+
+  /**
+   * Sets the sentence the current thread is processing.
+   *
+   * @param sentence The sentence.
+   */
+  static void enter(SentenceObj sentence) {
+    CURRENT.set(sentence);
+  }
+
+  /**
+   * Ends the processing of the sentence set by {@link #enter(SentenceObj)}.
+   */
+  static void exit() {
+    CURRENT.remove();
+  }
+
+  /**
+   * An event with the sentence the current thread is processing.
+   */
+  @Category("Opinion Role Extractor")
+  abstract static class SentenceEvent extends Event {
+
+    @Label("Sentence Id")
+    String sentenceId;
+
+    @Label("Tokens")
+    int tokens;
+
+    /**
+     * Ends the event and commits it with the current sentence if it is enabled and exceeds its threshold.
+     */
+    void endForCurrentSentence() {
+      end();
+      if (shouldCommit()) {
+        final SentenceObj sentence = CURRENT.get();
+        if (sentence != null) {
+          sentenceId = sentence.id == null ? null : sentence.id.getId();
+          tokens = sentence.getWordList().size();
+        }
+        commit();
+      }
+    }
+  }
+
+  @Name("opinionroles.Normalization")
+  @Label("Dependency Graph Normalization")
+  @Description("Normalization of the dependency graph of a sentence")
+  static class Normalization extends SentenceEvent {
+  }
+
+  @Name("opinionroles.MweMatch")
+  @Label("MWE Matching")
+  @Description("Matching of a multi-word expression of the lexicon in the dependency graph")
+  @Threshold("1 ms")
+  static class MweMatch extends SentenceEvent {
+
+    @Label("MWE")
+    String mwe;
+
+    @Label("Matched")
+    boolean matched;
+  }
+
+  @Name("opinionroles.ArgumentLookup")
+  @Label("Argument Node Lookup")
+  @Description("Search for the constituent of an argument of a predicate in the constituency tree")
+  @Threshold("1 ms")
+  static class ArgumentLookup extends SentenceEvent {
+
+    @Label("Predicate")
+    String predicate;
+
+    @Label("Argument")
+    String argument;
+  }
+
+  @Name("opinionroles.ModuleExecution")
+  @Label("Module Execution")
+  @Description("Search for subjective expressions in a sentence by one module")
+  static class ModuleExecution extends SentenceEvent {
+
+    @Label("Module")
+    String module;
+
+    @Label("Frames")
+    int frames;
+  }
+}
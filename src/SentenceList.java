@@ -1,8 +1,10 @@
-import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.Locale;
 import java.util.Scanner;
+
+import salsa.util.CompressedStreams;
 import salsa.corpora.noelement.*;
 
 /**
@@ -25,11 +27,12 @@ public class SentenceList{
         Scanner scanner;
         int idcount = 0;
         try {
-            scanner = new Scanner(new File(filename), "UTF-8");
+            scanner = new Scanner(CompressedStreams.openInput(filename), "UTF-8");
             scanner.useLocale(Locale.GERMANY);
             String line;
             while (scanner.hasNext()){
             	line = scanner.nextLine();
+            	CompressedStreams.checkScanner(scanner, filename);
             	idcount++;
             	SentenceObj sentence = new SentenceObj(line);
             	Integer tmp = new Integer(idcount);
@@ -37,6 +40,7 @@ public class SentenceList{
             	
             	this.sentenceList.add(sentence);
             }
+            CompressedStreams.checkScanner(scanner, filename);
          } catch (FileNotFoundException e) {
              e.printStackTrace();
          }
@@ -58,8 +62,27 @@ public class SentenceList{
 		
 		try {
 			
-			scanner = new Scanner(new File(filename), "UTF-8");
+			scanner = new Scanner(CompressedStreams.openInput(filename), "UTF-8");
 			scanner.useLocale(Locale.GERMANY);
+			readDependencyParse(scanner, filename);
+		}
+        catch (FileNotFoundException e) {
+                e.printStackTrace();
+           }
+		
+	}
+
+	/**
+	 * Reads a ParZu dependency parse like {@link #readDependencyParse(String)}, but from a {@link Scanner}.
+	 * The {@link SentenceObj}s for all sentences of the parse must already be in the list.
+	 * @param scanner A {@link Scanner} returning the lines of the dependency parse.
+	 */
+	void readDependencyParse(Scanner scanner){
+		readDependencyParse(scanner, "the dependency parse");
+	}
+
+	private void readDependencyParse(Scanner scanner, String filename){
+		
             String line;
             
             int sentCounter = 0;
@@ -70,6 +93,7 @@ public class SentenceList{
             while (scanner.hasNext()){
             	
             	line = scanner.nextLine();
+            	CompressedStreams.checkScanner(scanner, filename);
             	
             	if (!line.isEmpty()) {
            
@@ -98,28 +122,8 @@ public class SentenceList{
             	
             	else {
             		
-            		DependencyGraph graph = new DependencyGraph(sentence.wordList);
-            		sentence.setGraph(graph);
-					sentence.setRawGraph(graph);
-            		//add node for every wordobj of the sentence
-            		for (WordObj wordobj: sentence.wordList){
-            			graph.addNode(wordobj);
-            		}
-            		for (WordObj target: sentence.wordList){
-            			/*wordobj is already target
-            		    find out source by identifying the origin of the target's incoming edge*/
-            			int sourceNum = target.getEdge();
-            			//check if root or a "normal" node is source 
-            			if (sourceNum == 0){
-            				WordObj source = graph.getRoot();
-            				graph.addEdge(source, target, target.getRelation());
-            			}
-            			else{
-            				WordObj source = sentence.wordList.get(sourceNum-1);
-            				graph.addEdge(source, target, target.getRelation());
-                    		
-            			}
-            		}
+            		// the dependency graph is built from the heads and relations of the words on first use
+            		sentence.setGraphFromParse();
             		
               		wordCounter = 0;
                     sentCounter++;
@@ -129,38 +133,42 @@ public class SentenceList{
             	}
             	
             }
+            CompressedStreams.checkScanner(scanner, filename);
             
-            //create a dependency graph for the last sentence.
-            DependencyGraph graph = new DependencyGraph(sentence.wordList);
-    		sentence.setGraph(graph);
-			sentence.setRawGraph(graph);
-    		//add node for every wordobj of the sentence
-    		for (WordObj wordobj: sentence.wordList){
-    			graph.addNode(wordobj);
-    		}
-    		for (WordObj target: sentence.wordList){
-    			/*wordobj is already target
-    		    find out source by identifying the origin of the target's incoming edge*/
-    			int sourceNum = target.getEdge();
-    			//check if root or a "normal" node is source 
-    			if (sourceNum == 0){
-    				WordObj source = graph.getRoot();
-    				graph.addEdge(source, target, target.getRelation());
-    			}
-    			else{
-    				WordObj source = sentence.wordList.get(sourceNum-1);
-    				graph.addEdge(source, target, target.getRelation());
-          
-		}
-    		}
-		}
-        catch (FileNotFoundException e) {
-                e.printStackTrace();
-           }
+            //the dependency graph of the last sentence, also built on first use.
+            sentence.setGraphFromParse();
 		
 	}
 
 	
+	/**
+	 * Marks the sentences in which none of the modules can find a subjective expression (see
+	 * {@link Module#isCandidate(SentenceObj)}). These sentences skip the normalization, the constituency tree
+	 * and the modules, and get empty semantics in the output. The dependency parses must have been read.
+	 *
+	 * @param modules The modules which will annotate the sentences.
+	 * @return The number of sentences which are no candidates.
+	 */
+	public int markCandidates(Collection<Module> modules){
+		
+		int skipped = 0;
+		for (SentenceObj sentence : this.sentenceList){
+			boolean candidate = false;
+			for (Module module : modules){
+				if (module.isCandidate(sentence)){
+					candidate = true;
+					break;
+				}
+			}
+			sentence.setCandidate(candidate);
+			if (!candidate){
+				skipped++;
+			}
+		}
+		return skipped;
+	}
+
+	
 	/**
 	 * Normalize all {@link DependencyGraph} objects. This involves the
 	 * following steps:
@@ -170,17 +178,39 @@ public class SentenceList{
 	 * - normalization of conjunctions
 	 */
 	public void normalizeDependencyGraphs(){
-		
-		for (int j = 0; j <= this.sentenceList.size() - 1; j++){
-
-			DependencyGraph graph = this.sentenceList.get(j).getGraph();
+		normalizeDependencyGraphs(0, new PipelineMetrics());
+	}
 
-			SentenceObj sentence = this.sentenceList.get(j);
-			DependencyGraph normalized = graph.normalize(graph);
-			DependencyGraph normalizedready = graph.normalizeActivePassive(normalized);
-			DependencyGraph normalizedcon = graph.normalizeConjunctions(normalizedready);
+	/**
+	 * Normalize all {@link DependencyGraph} objects like {@link #normalizeDependencyGraphs()}, but with a
+	 * time budget per sentence. If the normalization of a sentence exceeds the budget, the sentence keeps
+	 * its raw dependency graph.
+	 *
+	 * The graphs are normalized when they are first used (see {@link SentenceObj#getGraph()}), so sentences
+	 * which are never annotated, e.g. because they are no candidates (see {@link #markCandidates(Collection)}),
+	 * are not normalized at all. Call {@link #buildGraphs()} to normalize all graphs now.
+	 *
+	 * @param budgetMillis The time budget per sentence in milliseconds, 0 for no limit.
+	 * @param metrics The metrics in which the normalization time and the sentences that exceed the budget
+	 * are recorded.
+	 */
+	public void normalizeDependencyGraphs(long budgetMillis, PipelineMetrics metrics){
+		
+		for (SentenceObj sentence : this.sentenceList){
+			if (sentence.isCandidate()){
+				sentence.normalizeLazily(budgetMillis, metrics);
+			}
+		}
+	}
 
-			sentence.setGraph(normalizedcon);
+	/**
+	 * Builds and, if requested, normalizes the {@link DependencyGraph}s of all sentences now instead of on
+	 * first use.
+	 */
+	public void buildGraphs(){
+		
+		for (SentenceObj sentence : this.sentenceList){
+			sentence.getGraph();
 		}
 	}
 		
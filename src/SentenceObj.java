@@ -1,9 +1,13 @@
 import java.util.LinkedList;
+import salsa.corpora.elements.Graph;
 import salsa.corpora.noelement.*;
 
 /**
  * A Sentence Object contains all information for one sentence
  *
+ * The {@link DependencyGraph} and the {@link ConstituencyTree} are built when they are first used, so sentences
+ * which no module looks at cost neither the time nor the memory for them. Until then the sentence keeps only
+ * the parse of its words and the Salsa {@link Graph} of the tree.
  */
 public class SentenceObj{
 	
@@ -14,6 +18,16 @@ public class SentenceObj{
 	Id id;
 	NamedEntityList namedEntityList;
 	private DependencyGraph rawGraph;
+	// true if the dependency graph is built from the heads and relations of the words on first use
+	private boolean graphFromParse;
+	// the settings of a normalization that is run on first use, null if there is none
+	private PipelineMetrics normalizationMetrics;
+	private long normalizationBudget;
+	// true if the normalization exceeded its budget and the sentence kept its raw graph
+	private boolean normalizationFallback;
+	// the Salsa graph from which the constituency tree is built on first use
+	private Graph treeGraph;
+	private boolean candidate = true;
 	boolean sourceIsAuthor=false;
 	
     //added by isha 09.06
@@ -58,9 +72,10 @@ public class SentenceObj{
 	}
 	
 	/**
-	 * @return DependencyGraph {@link #graph} of the sentence
+	 * @return DependencyGraph {@link #graph} of the sentence, built and normalized on first use
 	 */
 	public DependencyGraph getGraph() {
+		buildGraph();
 		return graph;
 	}
 
@@ -68,13 +83,18 @@ public class SentenceObj{
 	 * @param graph {@link #graph} to set
 	 */
 	public void setGraph(DependencyGraph graph) {
+		buildGraph();
 		this.graph = graph;
 	}
 	
 	/**
-	 * @return ConstituencyTree {@link #tree} of the sentence
+	 * @return ConstituencyTree {@link #tree} of the sentence, built on first use
 	 */
 	public ConstituencyTree getTree() {
+		if (tree == null && treeGraph != null) {
+			tree = new ConstituencyTree(treeGraph);
+			treeGraph = null;
+		}
 		return tree;
 	}
 
@@ -83,6 +103,89 @@ public class SentenceObj{
 	 */
 	public void setTree(ConstituencyTree tree) {
 		this.tree = tree;
+		this.treeGraph = null;
+	}
+
+	/**
+	 * Sets the Salsa graph from which the {@link ConstituencyTree} is built on first use.
+	 * @param graph The graph of the sentence in the Salsa / Tiger XML corpus.
+	 */
+	void setTreeGraph(Graph graph) {
+		this.tree = null;
+		this.treeGraph = graph;
+	}
+
+	/**
+	 * Lets the {@link DependencyGraph} be built on first use from the heads and relations of the words,
+	 * which must have been read from the dependency parse.
+	 * @throws IndexOutOfBoundsException If the head of a word is not in the sentence.
+	 */
+	void setGraphFromParse() {
+		for (WordObj word : wordList) {
+			if (word.getEdge() < 0 || word.getEdge() > wordList.size()) {
+				throw new IndexOutOfBoundsException("Head " + word.getEdge() + " of " + word.getName()
+						+ " is not in the sentence");
+			}
+		}
+		this.graph = null;
+		this.rawGraph = null;
+		this.graphFromParse = true;
+	}
+
+	/**
+	 * Lets the {@link DependencyGraph} be normalized on first use, see
+	 * {@link SentenceList#normalizeDependencyGraphs(long, PipelineMetrics)}.
+	 * @param budgetMillis The time budget of the normalization in milliseconds, 0 for no limit.
+	 * @param metrics The metrics in which the normalization is recorded.
+	 */
+	void normalizeLazily(long budgetMillis, PipelineMetrics metrics) {
+		this.normalizationBudget = budgetMillis;
+		this.normalizationMetrics = metrics;
+	}
+
+	private void buildGraph() {
+		if (graphFromParse) {
+			graphFromParse = false;
+			rawGraph = DependencyGraph.fromParse(wordList);
+			graph = rawGraph;
+		}
+		if (normalizationMetrics != null) {
+			PipelineMetrics metrics = normalizationMetrics;
+			normalizationMetrics = null;
+			normalize(normalizationBudget, metrics);
+		}
+	}
+
+	/**
+	 * Normalizes the {@link DependencyGraph}: general normalization, normalization for active and passive
+	 * voice and normalization of conjunctions. If the normalization exceeds the budget, the sentence keeps its
+	 * raw graph.
+	 */
+	private void normalize(long budgetMillis, PipelineMetrics metrics) {
+		PipelineMetrics.Stage stage = metrics.startStage("Normalizing dependency graphs");
+		DependencyGraph.Checkpoint raw = budgetMillis > 0 ? new DependencyGraph.Checkpoint(graph) : null;
+		SentenceEvents.enter(this);
+		SentenceBudget.start(budgetMillis);
+		try {
+			SentenceEvents.Normalization event = new SentenceEvents.Normalization();
+			event.begin();
+			DependencyGraph normalized = graph.normalize(graph);
+			DependencyGraph normalizedready = graph.normalizeActivePassive(normalized);
+			DependencyGraph normalizedcon = graph.normalizeConjunctions(normalizedready);
+			event.endForCurrentSentence();
+
+			graph = normalizedcon;
+		} catch (SentenceBudget.ExceededException e) {
+			System.err.println("Sentence " + id.getId() + ": normalization exceeded the time budget of "
+					+ budgetMillis + " ms, using the raw dependency graph");
+			metrics.recordNormalizationFallback();
+			normalizationFallback = true;
+			graph = raw.restore();
+		} finally {
+			SentenceBudget.stop();
+			SentenceEvents.exit();
+			stage.stop();
+		}
 	}
 
 	/* (non-Javadoc)
@@ -109,13 +212,54 @@ public class SentenceObj{
 
 
 	public void setRawGraph(DependencyGraph rawGraph) {
+		buildGraph();
 		this.rawGraph = rawGraph;
 	}
 
 	/**
-	 * @return unnormalized {@link DependencyGraph} of the sentence
+	 * @return unnormalized {@link DependencyGraph} of the sentence. Since the normalization changes it in
+	 * place, it is normalized as well when it is first used, like {@link #getGraph()}.
 	 */
 	public DependencyGraph getRawGraph() {
+		buildGraph();
 		return rawGraph;
 	}
+
+	/**
+	 * @return true if the normalization of the {@link DependencyGraph} exceeded its time budget, so that the
+	 * sentence has its raw graph instead of the normalized one.
+	 */
+	public boolean isNormalizationFallback() {
+		return normalizationFallback;
+	}
+
+	/**
+	 * Drops the dependency graphs and the constituency tree once the frames of the sentence have been written,
+	 * so that the memory of a run does not grow with the number of sentences analysed. They are not built
+	 * again, {@link #getGraph()}, {@link #getRawGraph()} and {@link #getTree()} return null afterwards.
+	 */
+	void release() {
+		graph = null;
+		rawGraph = null;
+		tree = null;
+		treeGraph = null;
+		graphFromParse = false;
+		normalizationMetrics = null;
+	}
+
+	/**
+	 * @return false if no {@link Module} can find a subjective expression in the sentence, see
+	 * {@link SentenceList#markCandidates(java.util.Collection)}. Such a sentence is not annotated, so its
+	 * {@link DependencyGraph} and {@link ConstituencyTree} are never built.
+	 */
+	public boolean isCandidate() {
+		return candidate;
+	}
+
+	/**
+	 * @param candidate {@link #isCandidate()} to set
+	 */
+	public void setCandidate(boolean candidate) {
+		this.candidate = candidate;
+	}
 }
\ No newline at end of file
@@ -3,6 +3,9 @@ import salsa.corpora.elements.*;
 import salsa.corpora.elements.Frame;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 
@@ -14,6 +17,11 @@ public class SentimentChecker{
 	private final SalsaAPIConnective salsaCon;
 	private final SentenceList list;
 	private final Set<Module> modules;
+	private final PipelineMetrics metrics;
+	private final long budgetMillis;
+	private final ResultCache resultCache;
+	private final int threads;
+	private final int queueCapacity;
 
 	/**
 	 *
@@ -22,29 +30,129 @@ public class SentimentChecker{
 	 * @param list <!--TODO-->
 	 */
 	public SentimentChecker(SalsaAPIConnective salsaCon, SentenceList list, Set<Module> modules) {
+		this(salsaCon, list, modules, new PipelineMetrics(), 0);
+	}
+
+	/**
+	 *
+	 * @param salsaCon	A {@link SalsaAPIConnective} object used to add the sentiment information to the Tiger XML corpus.
+	 * @param list The sentences.
+	 * @param modules The modules that will be used to find sentiment expressions
+	 * @param metrics The metrics in which the modules and the writing of the output are recorded.
+	 * @param budgetMillis The time budget per sentence in milliseconds, 0 for no limit. Sentences which exceed it get empty semantics.
+	 */
+	public SentimentChecker(SalsaAPIConnective salsaCon, SentenceList list, Set<Module> modules, PipelineMetrics metrics, long budgetMillis) {
+		this(salsaCon, list, modules, metrics, budgetMillis, null);
+	}
+
+	/**
+	 *
+	 * @param salsaCon	A {@link SalsaAPIConnective} object used to add the sentiment information to the Tiger XML corpus.
+	 * @param list The sentences.
+	 * @param modules The modules that will be used to find sentiment expressions
+	 * @param metrics The metrics in which the modules and the writing of the output are recorded.
+	 * @param budgetMillis The time budget per sentence in milliseconds, 0 for no limit. Sentences which exceed it get empty semantics.
+	 * @param resultCache The cache from which the frames of unchanged sentences are taken, or null to analyse every sentence.
+	 */
+	public SentimentChecker(SalsaAPIConnective salsaCon, SentenceList list, Set<Module> modules, PipelineMetrics metrics, long budgetMillis,
+			ResultCache resultCache) {
+		this(salsaCon, list, modules, metrics, budgetMillis, resultCache, 1, 64);
+	}
+
+	/**
+	 *
+	 * @param salsaCon	A {@link SalsaAPIConnective} object used to add the sentiment information to the Tiger XML corpus.
+	 * @param list The sentences.
+	 * @param modules The modules that will be used to find sentiment expressions. They must be thread-safe if threads is greater than 1.
+	 * @param metrics The metrics in which the modules and the writing of the output are recorded.
+	 * @param budgetMillis The time budget per sentence in milliseconds, 0 for no limit. Sentences which exceed it get empty semantics.
+	 * @param resultCache The cache from which the frames of unchanged sentences are taken, or null to analyse every sentence.
+	 * @param threads The number of threads which run the modules.
+	 * @param queueCapacity The maximum number of sentences between reading and writing, see {@link AnalysisPipeline}.
+	 */
+	public SentimentChecker(SalsaAPIConnective salsaCon, SentenceList list, Set<Module> modules, PipelineMetrics metrics, long budgetMillis,
+			ResultCache resultCache, int threads, int queueCapacity) {
 		this.salsaCon = salsaCon;
 		this.list = list;
 		this.modules = modules;
+		this.metrics = metrics;
+		this.budgetMillis = budgetMillis;
+		this.resultCache = resultCache;
+		this.threads = threads;
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * A sentence which has been prepared for the modules by the reader of the {@link AnalysisPipeline}.
+	 */
+	private static final class PreparedSentence {
+		private final String key;
+		private final long preparationNanos;
+
+		PreparedSentence(String key, long preparationNanos) {
+			this.key = key;
+			this.preparationNanos = preparationNanos;
+		}
 	}
 
+	/**
+	 * The stages of the analysis. The reader builds the graph and the tree of each candidate sentence unless
+	 * its frames are in the {@link ResultCache}, the workers find the frames with the modules or in the cache,
+	 * and the output is written by subclasses, which then release the graph and the tree of the sentence.
+	 */
+	private abstract class SentenceStages implements AnalysisPipeline.Stages<PreparedSentence> {
+
+		// the sentences by index, since the linked list of the SentenceList would be walked for every lookup
+		final List<SentenceObj> sentences = new ArrayList<SentenceObj>(list.sentenceList);
+
+		public PreparedSentence assemble(int i) {
+			SentenceObj sentence = sentences.get(i);
+			if (!sentence.isCandidate()) {
+				return null;
+			}
+			// the key is computed before the graph is normalized, see ResultCache
+			String key = resultCache == null ? null : resultCache.computeKey(sentence, salsaCon.getSentences().get(i));
+			if (key != null && resultCache.contains(key)) {
+				return new PreparedSentence(key, 0);
+			}
+			long start = System.nanoTime();
+			sentence.getGraph();
+			sentence.getTree();
+			return new PreparedSentence(key, System.nanoTime() - start);
+		}
+
+		public List<Frame> analyse(int i, PreparedSentence prepared) {
+			SentenceObj sentence = sentences.get(i);
+			if (prepared == null || prepared.key == null) {
+				return metrics.findFrames(modules, sentence, budgetMillis);
+			}
+			return resultCache.findFrames(modules, sentence, salsaCon.getSentences().get(i), prepared.key,
+					prepared.preparationNanos, metrics, budgetMillis);
+		}
+	}
 
 	/**
-	 * Calls the <code>findFrames</code> method of each enabled {@link Module} and combines their output into
-	 * a single {@link Semantics} object.
-	 * @param sentence The {@link SentenceObj} that will be passed to each module
+	 * Runs the {@link AnalysisPipeline} over all sentences.
+	 * @param stages The stages, which write the frames of each sentence.
+	 * @throws IOException If the output cannot be written.
+	 */
+	private void analyse(SentenceStages stages) throws IOException {
+		new AnalysisPipeline<PreparedSentence>(threads, queueCapacity, metrics).run(stages.sentences.size(), stages);
+	}
+
+	/**
+	 * Combines frames into a single {@link Semantics} object.
+	 * @param found The frames found for one sentence.
 	 * @return A {@link Semantics} object
 	 */
-	private Semantics findSentiment(SentenceObj sentence) {
+	static Semantics toSemantics(Collection<Frame> found) {
 		/*
 		 The SALSA API and SALTO can handle multiple Frames objects in one sentence but evaltool can't. Thus we merge
 		 all frames into a single Frames object.
 		  */
 		final Frames frames = new Frames();
-		for (Module module : modules) {
-		
-			for (Frame frame: module.findFrames(sentence)) {
-				frames.addFrame(frame);
-			}
+		for (Frame frame: found) {
+			frames.addFrame(frame);
 		}
 		final Semantics sem = new Semantics();
 		sem.addFrames(frames);
@@ -54,12 +162,91 @@ public class SentimentChecker{
 
 
 	/**
-	 * Calls {@link #findSentiment(SentenceObj)} for every {@link SentenceObj} in {@link SentenceList} and exports the Salsa XML structure to filename.
+	 * Calls the modules for every {@link SentenceObj} in {@link SentenceList} and exports the Salsa XML structure with
+	 * the frames of each sentence to filename. Each sentence is written as soon as the frames of it and of all
+	 * sentences before it have been found, and then its frames, dependency graphs and constituency tree are dropped.
 	 * Also adds general specification of frames to the Salsa XML structure.
 	 * @param	filename The path of the output file.
 	 */
 	public void findSentiments(String filename){
 
+		declareFrames(this.salsaCon.getHead());
+		
+		System.out.println("Analysing...");
+		PipelineMetrics.Stage stage = metrics.startStage("Finding frames and writing output");
+		
+		final int listSize = list.sentenceList.size();
+		
+		try {
+			final SalsaXmlWriter writer = new SalsaXmlWriter(filename, this.salsaCon.getCorpus());
+			try {
+				analyse(new SentenceStages() {
+					public void write(int i, List<Frame> frames) throws IOException {
+						Sentence sentence = salsaCon.getSentences().get(i);
+						sentence.setSem(toSemantics(frames));
+						writer.write(sentence);
+						// neither the frames nor the graph and tree are needed once the sentence has been written
+						sentence.setSem(null);
+						sentences.get(i).release();
+						System.out.println("Sentence " + (i+1) + " of " + listSize);
+					}
+				});
+				writer.finish();
+			} finally {
+				writer.close();
+			}
+			System.out.println(listSize +" sentences have been analysed successfully.");
+		} catch (IOException e) {
+
+			e.printStackTrace();
+		}
+		stage.stop();
+	}
+
+	/**
+	 * Calls the modules for every {@link SentenceObj} in {@link SentenceList} like {@link #findSentiments(String)},
+	 * but writes the frames of each sentence to filename as one line of JSON as soon as they are found.
+	 * The Salsa XML corpus is left unchanged.
+	 * @param	filename The path of the output file.
+	 * @see JsonLinesWriter
+	 */
+	public void writeJsonLines(String filename){
+
+		System.out.println("Analysing...");
+		PipelineMetrics.Stage stage = metrics.startStage("Finding frames and writing output");
+
+		final int listSize = list.sentenceList.size();
+
+		try {
+			final JsonLinesWriter writer = new JsonLinesWriter(filename);
+			try {
+				analyse(new SentenceStages() {
+					public void write(int i, List<Frame> frames) throws IOException {
+						SentenceObj stmp = sentences.get(i);
+						Sentence sentence = salsaCon.getSentences().get(i);
+						writer.write(sentence.getId().getId(), stmp.sentence, sentence.getGraph(), frames);
+						stmp.release();
+						System.out.println("Sentence " + (i+1) + " of " + listSize);
+					}
+				});
+			} finally {
+				writer.close();
+			}
+			System.out.println(listSize +" sentences have been analysed successfully.");
+		} catch (IOException e) {
+
+			e.printStackTrace();
+		}
+		stage.stop();
+	}
+
+	/**
+	 * Adds the general specification of the SubjectiveExpression frame and the Sprecher flags to the head of a
+	 * Salsa XML corpus.
+	 * @param head The {@link Head} of the corpus.
+	 */
+	static void declareFrames(Head head){
+
 		Frames hframes = new Frames();
 		Frame f1 = new Frame("SubjectiveExpression");
 		Element e1 = new Element("Source","true");
@@ -72,28 +259,8 @@ public class SentimentChecker{
 		Flag hflag2 = new Flag("Sprecher", "fe");
 		hflags.addFlag(hflag1);
 		hflags.addFlag(hflag2);
-		this.salsaCon.getHead().setFlags(hflags);
-		this.salsaCon.getHead().setFrames(hframes);
-		
-		System.out.println("Analysing...");
-		
-		int listSize = list.sentenceList.size();
-		
-		for (int i = 0; i < listSize; i++){
-			SentenceObj stmp = list.sentenceList.get(i);
-			Semantics sem = findSentiment(stmp);
-			this.salsaCon.getSentences().get(i).setSem(sem);
-			System.out.println("Sentence " + (i+1) + " of "+list.sentenceList.size());
-		}
-		
-		System.out.println((list.sentenceList.size()) +" sentences have been analysed successfully.");
-		MyFileWriter writer = new MyFileWriter(filename);
-		try {
-			writer.writeToFile(this.salsaCon.getCorpus().toString());
-		} catch (IOException e) {
-
-			e.printStackTrace();
-		}
+		head.setFlags(hflags);
+		head.setFrames(hframes);
 	}
 }
 
@@ -1,6 +1,7 @@
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -11,6 +12,8 @@ import java.util.Scanner;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import salsa.util.CompressedStreams;
+
 /**
  * SentimentLex object contains all informations from a given sentiment lexicon
  *
@@ -22,6 +25,9 @@ public class SentimentLex {
   boolean flexibleMWEs = false;
   String[] collectSubjectiveExpressions = {""};
 
+  // removes comments from a line of the lexicon file
+  private static final Pattern COMMENT = Pattern.compile("#.*$", Pattern.DOTALL);
+
   /**
    * Constructs a new SentimentLex
    *
@@ -322,14 +328,14 @@ public class SentimentLex {
   public void fileToLex(String filename) {
     Scanner scanner;
     try {
-      scanner = new Scanner(new File(filename),
+      scanner = new Scanner(CompressedStreams.openInput(filename),
               "UTF-8");
       scanner.useLocale(Locale.GERMANY);
       String line;
       while (scanner.hasNext()) {
         line = scanner.nextLine();
-        Pattern pattern = Pattern.compile("#.*$", Pattern.DOTALL);
-        Matcher matcher = pattern.matcher(line);
+        CompressedStreams.checkScanner(scanner, filename);
+        Matcher matcher = COMMENT.matcher(line);
         line = matcher.replaceFirst("");
         line = line.replace("[", ".");
         line = line.replace("]", "");
@@ -361,11 +367,38 @@ public class SentimentLex {
         SentimentUnit unit = new SentimentUnit(parts[0], parts[1], sources, targets);
         this.addSentiment(unit);
       }
+      CompressedStreams.checkScanner(scanner, filename);
     } catch (FileNotFoundException e) {
       e.printStackTrace();
     }
   }
 
+  /**
+   * Reads in the sentiment lexicon from a {@link CompiledLexicon} if it has
+   * been compiled from filename with the same setting for flexible MWEs.
+   * Otherwise the lexicon is read from filename.
+   *
+   * @param filename The lexicon text file.
+   * @param compiledFilename The compiled lexicon file or an empty String if no
+   * compiled lexicon should be used.
+   */
+  public void loadLex(String filename, String compiledFilename) {
+    if (!compiledFilename.isEmpty()) {
+      final CompiledLexicon compiled = new CompiledLexicon(new File(compiledFilename));
+      if (compiled.exists()) {
+        try {
+          compiled.read(this, filename);
+          return;
+        } catch (IOException e) {
+          System.err.println("Could not use compiled lexicon, reading " + filename + " instead: " + e.getMessage());
+          sentimentList.clear();
+          sentimentMap.clear();
+        }
+      }
+    }
+    fileToLex(filename);
+  }
+
   /**
    * Builds a {@link #sentimentMap} from a given {@link #sentimentList}
    *
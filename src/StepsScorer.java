@@ -0,0 +1,464 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import salsa.corpora.elements.Corpus;
+import salsa.corpora.elements.Fenode;
+import salsa.corpora.elements.Flag;
+import salsa.corpora.elements.Frame;
+import salsa.corpora.elements.FrameElement;
+import salsa.corpora.elements.Terminal;
+import salsa.corpora.processing.CorpusProcessor;
+import salsa.corpora.xmlparser.CorpusParser;
+
+/**
+ * Scores the frames of a system output against a gold standard like the
+ * evaluation tool of the STEPS shared task (see evaluation/evaltool), but
+ * without its GUI, so that it can be run in a loop, e.g. over many
+ * configurations.
+ *
+ * The frames and frame elements are resolved to the ids of the terminals they
+ * cover with {@link CorpusProcessor}. A source without fenodes that is flagged
+ * as "Sprecher" stands for the speaker and matches any other such source. The
+ * subjective expressions (SEs) of the system are aligned to those of the gold
+ * standard in document order: an exact match covers the same terminals, a
+ * partial match shares at least one terminal. If several gold SEs match, the
+ * one with the most matching sources and targets and then the highest Dice
+ * coefficient is taken, and the first one of these. The sources and targets of
+ * two aligned SEs are aligned in the same way.
+ *
+ * Precision, recall and F1 are given for exact and partial matches, the latter
+ * with the mean Dice coefficient of the matches. Sources and targets are
+ * scored against all annotated sources and targets and against those of the
+ * aligned SEs only. Each pair of files is scored as one speech, several pairs
+ * are combined into a micro average (over the counts) and a macro average
+ * (over the speeches).
+ *
+ * Usage (in the repository directory):
+ * <code>StepsScorer &lt;gold-xml&gt; &lt;system-xml&gt; [&lt;gold-xml&gt; &lt;system-xml&gt; ...]</code>
+ */
+public class StepsScorer {
+
+  /**
+   * The kinds of annotations that are scored.
+   */
+  public enum Category {
+    SE("SE"),
+    SOURCE("Source"),
+    TARGET("Target"),
+    SOURCE_CORRECT_SE("Source (correct SE)"),
+    TARGET_CORRECT_SE("Target (correct SE)");
+
+    final String label;
+
+    Category(String label) {
+      this.label = label;
+    }
+  }
+
+  /**
+   * The pseudo terminal id of a source that stands for the speaker.
+   */
+  private static final String SPEAKER = "#Sprecher";
+
+  /**
+   * The number of annotations of the system, of the gold standard and of the
+   * matches between them for one {@link Category} and kind of match.
+   */
+  public static final class Counts {
+
+    int system;
+    int gold;
+    int matched;
+    double diceSum;
+
+    void add(Counts other) {
+      system += other.system;
+      gold += other.gold;
+      matched += other.matched;
+      diceSum += other.diceSum;
+    }
+
+    public double precision() {
+      return system == 0 ? 0 : (double) matched / system;
+    }
+
+    public double recall() {
+      return gold == 0 ? 0 : (double) matched / gold;
+    }
+
+    public double f1() {
+      final double precision = precision();
+      final double recall = recall();
+      return precision + recall == 0 ? 0 : 2 * precision * recall / (precision + recall);
+    }
+
+    /**
+     * @return The mean Dice coefficient of the matches.
+     */
+    public double dice() {
+      return matched == 0 ? 0 : diceSum / matched;
+    }
+  }
+
+  /**
+   * The scores of one speech or the micro average of several speeches.
+   */
+  public static final class Scores {
+
+    final String name;
+    private final Counts[][] counts = new Counts[2][Category.values().length];
+
+    Scores(String name) {
+      this.name = name;
+      for (Counts[] countsOfMatch : counts) {
+        for (int i = 0; i < countsOfMatch.length; i++) {
+          countsOfMatch[i] = new Counts();
+        }
+      }
+    }
+
+    /**
+     * @param category The kind of annotations.
+     * @param exact true for exact matches, false for partial matches.
+     * @return The counts.
+     */
+    public Counts get(Category category, boolean exact) {
+      return counts[exact ? 0 : 1][category.ordinal()];
+    }
+  }
+
+  /**
+   * A frame whose target and frame elements are resolved to terminal ids.
+   */
+  private static final class Annotation {
+
+    final Set<String> target;
+    final List<Set<String>> sources = new ArrayList<Set<String>>();
+    final List<Set<String>> targets = new ArrayList<Set<String>>();
+
+    Annotation(Set<String> target) {
+      this.target = target;
+    }
+  }
+
+  private final List<Annotation> gold;
+  private final Map<String, List<Integer>> goldByTerminal = new HashMap<String, List<Integer>>();
+
+  /**
+   * Resolves the frames of the gold standard, which can then be compared to
+   * any number of system outputs.
+   *
+   * @param gold The gold standard corpus.
+   */
+  public StepsScorer(Corpus gold) {
+    final CorpusProcessor processor = new CorpusProcessor(gold);
+    this.gold = resolve(processor, processor.getAllAnnotatedFrames());
+    for (int i = 0; i < this.gold.size(); i++) {
+      for (String terminal : this.gold.get(i).target) {
+        List<Integer> frames = goldByTerminal.get(terminal);
+        if (frames == null) {
+          frames = new ArrayList<Integer>();
+          goldByTerminal.put(terminal, frames);
+        }
+        frames.add(i);
+      }
+    }
+  }
+
+  private static List<Annotation> resolve(CorpusProcessor processor, Iterable<Frame> frames) {
+    final List<Annotation> annotations = new ArrayList<Annotation>();
+    for (Frame frame : frames) {
+      final Annotation annotation = new Annotation(resolve(processor,
+              frame.getTarget() == null ? new ArrayList<Fenode>() : frame.getTarget().getFenodes(),
+              Collections.<Flag>emptyList()));
+      for (FrameElement fe : frame.getFes()) {
+        if ("Source".equals(fe.getName())) {
+          annotation.sources.add(resolve(processor, fe.getFenodes(), fe.getFlags()));
+        } else if ("Target".equals(fe.getName())) {
+          annotation.targets.add(resolve(processor, fe.getFenodes(), fe.getFlags()));
+        }
+      }
+      annotations.add(annotation);
+    }
+    return annotations;
+  }
+
+  private static Set<String> resolve(CorpusProcessor processor, ArrayList<Fenode> fenodes, List<Flag> flags) {
+    final Set<String> terminals = new HashSet<String>();
+    if (!fenodes.isEmpty()) {
+      for (Terminal terminal : processor.getAllTerminals(fenodes)) {
+        terminals.add(terminal.getId().getId());
+      }
+    }
+    for (Flag flag : flags) {
+      if ("Sprecher".equals(flag.getName())) {
+        terminals.add(SPEAKER);
+      }
+    }
+    return terminals;
+  }
+
+  /**
+   * Scores a system output as one speech.
+   *
+   * @param name The name of the speech, e.g. the file name.
+   * @param system The system output corpus.
+   * @return The scores.
+   */
+  public Scores score(String name, Corpus system) {
+    final CorpusProcessor processor = new CorpusProcessor(system);
+    return score(name, processor, processor.getAllAnnotatedFrames());
+  }
+
+  /**
+   * Scores frames that are not part of a corpus, e.g. those found by the
+   * modules in memory, as one speech.
+   *
+   * @param name The name of the speech.
+   * @param processor The processor of the corpus whose nodes the fenodes of
+   * the frames refer to. It must not be changed while scoring.
+   * @param frames The frames.
+   * @return The scores.
+   */
+  public Scores score(String name, CorpusProcessor processor, Iterable<Frame> frames) {
+    final List<Annotation> annotations = resolve(processor, frames);
+    final Scores scores = new Scores(name);
+    score(annotations, true, scores);
+    score(annotations, false, scores);
+    return scores;
+  }
+
+  private void score(List<Annotation> system, boolean exact, Scores scores) {
+    final Counts se = scores.get(Category.SE, exact);
+    final Counts source = scores.get(Category.SOURCE, exact);
+    final Counts target = scores.get(Category.TARGET, exact);
+    final Counts sourceCorrectSe = scores.get(Category.SOURCE_CORRECT_SE, exact);
+    final Counts targetCorrectSe = scores.get(Category.TARGET_CORRECT_SE, exact);
+
+    se.system = system.size();
+    se.gold = gold.size();
+    for (Annotation annotation : system) {
+      source.system += annotation.sources.size();
+      target.system += annotation.targets.size();
+    }
+    for (Annotation annotation : gold) {
+      source.gold += annotation.sources.size();
+      target.gold += annotation.targets.size();
+    }
+
+    final boolean[] aligned = new boolean[gold.size()];
+    for (Annotation annotation : system) {
+      // The candidates in document order, so the first of equally good matches is taken.
+      final Set<Integer> candidates = new TreeSet<Integer>();
+      for (String terminal : annotation.target) {
+        final List<Integer> frames = goldByTerminal.get(terminal);
+        if (frames != null) {
+          candidates.addAll(frames);
+        }
+      }
+      int best = -1;
+      int bestFes = -1;
+      double bestDice = -1;
+      for (int candidate : candidates) {
+        final Annotation goldAnnotation = gold.get(candidate);
+        if (aligned[candidate] || !matches(annotation.target, goldAnnotation.target, exact)) {
+          continue;
+        }
+        final int fes = align(annotation.sources, goldAnnotation.sources, exact, null)
+                + align(annotation.targets, goldAnnotation.targets, exact, null);
+        final double dice = dice(annotation.target, goldAnnotation.target);
+        if (fes > bestFes || fes == bestFes && dice > bestDice) {
+          best = candidate;
+          bestFes = fes;
+          bestDice = dice;
+        }
+      }
+      if (best < 0) {
+        continue;
+      }
+
+      aligned[best] = true;
+      final Annotation goldAnnotation = gold.get(best);
+      se.matched++;
+      se.diceSum += bestDice;
+      sourceCorrectSe.system += annotation.sources.size();
+      sourceCorrectSe.gold += goldAnnotation.sources.size();
+      align(annotation.sources, goldAnnotation.sources, exact, sourceCorrectSe);
+      targetCorrectSe.system += annotation.targets.size();
+      targetCorrectSe.gold += goldAnnotation.targets.size();
+      align(annotation.targets, goldAnnotation.targets, exact, targetCorrectSe);
+    }
+    source.matched = sourceCorrectSe.matched;
+    source.diceSum = sourceCorrectSe.diceSum;
+    target.matched = targetCorrectSe.matched;
+    target.diceSum = targetCorrectSe.diceSum;
+  }
+
+  /**
+   * Aligns the frame elements of a system SE to those of a gold SE.
+   *
+   * @param system The frame elements of one role of the system SE.
+   * @param gold The frame elements of the same role of the gold SE.
+   * @param exact true for exact matches, false for partial matches.
+   * @param counts The counts to add the matches to, or null.
+   * @return The number of matches.
+   */
+  private static int align(List<Set<String>> system, List<Set<String>> gold, boolean exact, Counts counts) {
+    int matched = 0;
+    final boolean[] aligned = new boolean[gold.size()];
+    for (Set<String> fe : system) {
+      int best = -1;
+      double bestDice = -1;
+      for (int i = 0; i < gold.size(); i++) {
+        if (!aligned[i] && matches(fe, gold.get(i), exact)) {
+          final double dice = dice(fe, gold.get(i));
+          if (dice > bestDice) {
+            best = i;
+            bestDice = dice;
+          }
+        }
+      }
+      if (best >= 0) {
+        aligned[best] = true;
+        matched++;
+        if (counts != null) {
+          counts.matched++;
+          counts.diceSum += bestDice;
+        }
+      }
+    }
+    return matched;
+  }
+
+  private static boolean matches(Set<String> system, Set<String> gold, boolean exact) {
+    if (system.isEmpty()) {
+      return false;
+    }
+    if (exact) {
+      return system.equals(gold);
+    }
+    for (String terminal : system) {
+      if (gold.contains(terminal)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static double dice(Set<String> system, Set<String> gold) {
+    int common = 0;
+    for (String terminal : system) {
+      if (gold.contains(terminal)) {
+        common++;
+      }
+    }
+    return 2.0 * common / (system.size() + gold.size());
+  }
+
+  /**
+   * @param speeches The scores of several speeches.
+   * @return The scores over the summed counts of the speeches.
+   */
+  public static Scores microAverage(List<Scores> speeches) {
+    final Scores micro = new Scores("micro average");
+    for (Scores speech : speeches) {
+      for (Category category : Category.values()) {
+        micro.get(category, true).add(speech.get(category, true));
+        micro.get(category, false).add(speech.get(category, false));
+      }
+    }
+    return micro;
+  }
+
+  /**
+   * @param speeches The scores of several speeches.
+   * @param category The kind of annotations.
+   * @param exact true for exact matches, false for partial matches.
+   * @return The precision, recall, F1 and Dice coefficient averaged over the
+   * speeches.
+   */
+  public static double[] macroAverage(List<Scores> speeches, Category category, boolean exact) {
+    final double[] macro = new double[4];
+    for (Scores speech : speeches) {
+      final Counts counts = speech.get(category, exact);
+      macro[0] += counts.precision();
+      macro[1] += counts.recall();
+      macro[2] += counts.f1();
+      macro[3] += counts.dice();
+    }
+    for (int i = 0; i < macro.length; i++) {
+      macro[i] /= Math.max(speeches.size(), 1);
+    }
+    return macro;
+  }
+
+  /**
+   * Prints the scores of the speeches and their averages as a table with tab
+   * separated columns.
+   *
+   * @param speeches The scores of the speeches.
+   * @param out The stream to print to.
+   */
+  public static void print(List<Scores> speeches, PrintStream out) {
+    out.println("speech\tannotation\tmatch\tprecision\trecall\tf1\tdice");
+    final List<Scores> rows = new ArrayList<Scores>(speeches);
+    if (speeches.size() > 1) {
+      rows.add(microAverage(speeches));
+    }
+    for (Scores scores : rows) {
+      for (Category category : Category.values()) {
+        for (boolean exact : new boolean[]{true, false}) {
+          final Counts counts = scores.get(category, exact);
+          print(out, scores.name, category, exact,
+                  new double[]{counts.precision(), counts.recall(), counts.f1(), counts.dice()});
+        }
+      }
+    }
+    if (speeches.size() > 1) {
+      for (Category category : Category.values()) {
+        for (boolean exact : new boolean[]{true, false}) {
+          print(out, "macro average", category, exact, macroAverage(speeches, category, exact));
+        }
+      }
+    }
+  }
+
+  private static void print(PrintStream out, String name, Category category, boolean exact, double[] values) {
+    out.printf(Locale.ROOT, "%s\t%s\t%s\t%.4f\t%.4f\t%.4f\t%s%n", name, category.label,
+            exact ? "exact" : "partial", values[0], values[1], values[2],
+            exact ? "" : String.format(Locale.ROOT, "%.4f", values[3]));
+  }
+
+  /**
+   * Scores pairs of gold standard and system files.
+   *
+   * @param args Pairs of the paths of a gold standard and a system output file.
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length == 0 || args.length % 2 != 0) {
+      System.err.println("Usage: StepsScorer <gold-xml> <system-xml> [<gold-xml> <system-xml> ...]");
+      return;
+    }
+
+    final CorpusParser parser = new CorpusParser(false);
+    final Map<String, StepsScorer> scorers = new HashMap<String, StepsScorer>();
+    final List<Scores> speeches = new ArrayList<Scores>();
+    for (int i = 0; i < args.length; i += 2) {
+      StepsScorer scorer = scorers.get(args[i]);
+      if (scorer == null) {
+        scorer = new StepsScorer(parser.parseCorpusFromFile(args[i]));
+        scorers.put(args[i], scorer);
+      }
+      speeches.add(scorer.score(args[i + 1], parser.parseCorpusFromFile(args[i + 1])));
+    }
+    print(speeches, System.out);
+  }
+}
@@ -1,7 +1,11 @@
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import salsa.corpora.elements.Fenode;
@@ -50,6 +54,70 @@ public class SubtaskParser {
     return SEsFromInput;
   }
 
+  /**
+   * Parses the keys of a SEsFromInput HashMap and groups the SEs by the index
+   * of their sentence. Within a sentence, the SEs keep the iteration order of
+   * the HashMap, which determines the order of the frames.
+   *
+   * @param SEsFromInput the found SEs, see {@link #getSEsFromInput()}.
+   * @return the SEs of each sentence index.
+   */
+  static Map<Integer, List<PresetSE>> groupBySentence(Map<String, HashMap<String, String>> SEsFromInput) {
+    final Map<Integer, List<PresetSE>> SEsBySentence = new HashMap<Integer, List<PresetSE>>();
+    for (Map.Entry<String, HashMap<String, String>> entry : SEsFromInput.entrySet()) {
+      final PresetSE presetSE = new PresetSE(entry.getKey(), entry.getValue());
+      final Integer sentence = Integer.valueOf(presetSE.sentenceId);
+      List<PresetSE> presetSEs = SEsBySentence.get(sentence);
+      if (presetSEs == null) {
+        presetSEs = new ArrayList<PresetSE>();
+        SEsBySentence.put(sentence, presetSEs);
+      }
+      presetSEs.add(presetSE);
+    }
+    return SEsBySentence;
+  }
+
+  /**
+   * A SE found in the input file, parsed from its key in SEsFromInput.
+   * Key examples: 311_83, 311_83# (second SE on the same word),
+   * 330_31§32§33 (mwe).
+   */
+  static final class PresetSE {
+
+    /**
+     * The index of the sentence as String, example: 330
+     */
+    final String sentenceId;
+    /**
+     * The Id of the (first mwe-part) word, example: 330_31
+     */
+    final String wordId;
+    /**
+     * The word Ids of every mwe-part, example: [31, 32, 33]. Empty if the SE
+     * is no mwe.
+     */
+    final List<String> mweIds;
+    /**
+     * The number of SEs found before on the same word.
+     */
+    final int frameIndex;
+    /**
+     * <lemma,pos> of the SE, pos is "MWE" for mwes.
+     */
+    final HashMap<String, String> lemmaPos;
+
+    PresetSE(String key, HashMap<String, String> lemmaPos) {
+      final String id = key.replace("#", "");
+      final int separator = id.indexOf("§");
+      this.wordId = separator < 0 ? id : id.substring(0, separator);
+      this.sentenceId = wordId.substring(0, wordId.indexOf("_"));
+      this.mweIds = separator < 0 ? Collections.<String>emptyList()
+              : Arrays.asList(id.substring(id.indexOf("_") + 1).split("§"));
+      this.frameIndex = key.length() - id.length();
+      this.lemmaPos = lemmaPos;
+    }
+  }
+
   /**
    * Collect the SEs from the input file. Identified SEs are stored in the 
    * HashMap SEsFromInput.
@@ -58,9 +126,17 @@ public class SubtaskParser {
     System.out.println("Processing SubtaskParser...");
     System.out.println("Size of pure sentences: " + sentences.getSentenceList().size());
     ArrayList<Sentence> salsaSentences = salsa.getBody().getSentences();
+    Iterator<SentenceObj> sentenceIterator = sentences.getSentenceList().iterator();
     for (int i = 0; i < salsaSentences.size(); i++) {
       Graph graph = salsaSentences.get(i).getGraph();
-      ConstituencyTree tree = new ConstituencyTree(graph);
+      SentenceObj sentence = sentenceIterator.hasNext() ? sentenceIterator.next() : null;
+      // Reuse the tree the SalsaAPIConnective assigned to the sentence.
+      ConstituencyTree tree = sentence == null ? null : sentence.getTree();
+      if (tree == null || tree.getGraph() != graph) {
+        tree = new ConstituencyTree(graph);
+      }
+      TerminalIndex terminalIndex = null;
+      Map<String, String> lemmas = null;
 
 //      System.out.println((i + 1) + " of " + salsaSentences.size());
       //section: <frames>
@@ -80,22 +156,29 @@ public class SubtaskParser {
           String mweWordId = "";
           boolean mwExpression = false;
           ArrayList<Terminal> tList = tree.getTerminals();
+          if (terminalIndex == null) {
+            terminalIndex = new TerminalIndex(tree);
+          }
 
           // Iterate over fenodes.
           for (int fenodeCount = 0; fenodeCount < feNodes.size(); fenodeCount++) {
-            // Iterate over terminals.
-            for (int terminalCount = 0; terminalCount < tList.size(); terminalCount++) {
+            String subjId = feNodes.get(fenodeCount).getIdref().getId();
+            // Iterate over the terminals which are or are below the node of the fenode.
+            for (int terminalCount = terminalIndex.next(subjId, 0); terminalCount < tList.size();
+                    terminalCount = terminalIndex.next(subjId, terminalCount + 1)) {
               Terminal terminal = tList.get(terminalCount);
-              Nonterminal parent = tree.getParent(terminal);
-              Nonterminal grandParent = tree.getParent(parent);
+              Nonterminal parent = terminalIndex.parents[terminalCount];
+              Nonterminal grandParent = terminalIndex.grandParents[terminalCount];
 
               String terminalId = terminal.getId().getId();
-              String terminalParentId = parent.getId().getId();
+              String terminalParentId = new String();
+              if (parent != null) {
+                terminalParentId = parent.getId().getId();
+              }
               String terminalGrandParentId = new String();
               if (grandParent != null) {
                 terminalGrandParentId = grandParent.getId().getId();
               }
-              String subjId = feNodes.get(fenodeCount).getIdref().getId();
 
               boolean parentHit = false;
               boolean grandParentHit = false;
@@ -201,7 +284,10 @@ public class SubtaskParser {
                   // All Subjective Expressions not recognised here could be 
                   // unrecognised because they are not lemmatized. 
                   // Therefore search for the lemma form.
-                  String lemma = this.searchLemma(Integer.toString(i), terminal.getWord());
+                  if (lemmas == null) {
+                    lemmas = getLemmas(sentence);
+                  }
+                  String lemma = lemmas.get(terminal.getWord());
                   if (!(lemma == null)) {
                     HashMap<String, String> lemmaPos = new HashMap<String, String>();
                     lemmaPos.put(lemma, terminal.getPos());
@@ -234,34 +320,95 @@ public class SubtaskParser {
   }
 
   /**
-   * Searches for the fitting lemma of a word.
+   * Maps the words of a sentence to their lemmas. If a word occurs more
+   * than once, the lemma of its first occurrence counts.
    *
-   * @param Id the Id of the word.
-   * @param word the unlemmatized word.
-   * @return the lemma if found, else null.
+   * @param sentence the sentence, may be null if the Salsa XML has more
+   * sentences than the sentence list.
+   * @return the lemmas of the words.
    */
-  public String searchLemma(String Id, String word) {
-    try {
-      //Must differentiate cases where the Id contains an "s" Example: s140_2
-      //and where the id is directly given like: 130_6.
-      if (Id.startsWith("s")) {
-        Id = Id.substring(1);
+  private static Map<String, String> getLemmas(SentenceObj sentence) {
+    Map<String, String> lemmas = new HashMap<String, String>();
+    if (sentence != null) {
+      for (WordObj word : sentence.getWordList()) {
+        if (!lemmas.containsKey(word.getName())) {
+          lemmas.put(word.getName(), word.getLemma());
+        }
       }
-      //Ignore cases where Id in Salsa Xml exceeds number of sentences
-      if (!((Integer.parseInt(Id)) >= sentences.getSentenceList().size())) {
-        SentenceObj sObj = sentences.getSentenceList().get(Integer.parseInt(Id));
-        LinkedList<WordObj> wordList = sObj.getWordList();
-        for (int i = 0; i < wordList.size(); i++) {
-          if (wordList.get(i).getName().equals(word)) {
-            String lemma = wordList.get(i).getLemma();
-            return lemma;
+    }
+    return lemmas;
+  }
+
+  /**
+   * The parent and grandparent of every terminal of a {@link ConstituencyTree}
+   * and the terminals found by the ids of their own, parent or grandparent
+   * node, so a fenode is resolved without scanning the tree for every terminal.
+   */
+  private static final class TerminalIndex {
+
+    final Nonterminal[] parents;
+    final Nonterminal[] grandParents;
+    /**
+     * <node id, ascending terminal indexes>
+     */
+    private final Map<String, List<Integer>> terminalsById = new HashMap<String, List<Integer>>();
+
+    TerminalIndex(ConstituencyTree tree) {
+      // Like ConstituencyTree.getParent, the first parent in the order of the
+      // transitions counts.
+      Map<Object, Nonterminal> parentOf = new IdentityHashMap<Object, Nonterminal>();
+      for (Map.Entry<Nonterminal, ArrayList<Object>> transition : tree.getTransitions().entrySet()) {
+        for (Object child : transition.getValue()) {
+          if (!parentOf.containsKey(child)) {
+            parentOf.put(child, transition.getKey());
           }
         }
       }
-    } catch (IndexOutOfBoundsException e) {
-      String infoMessage = "Mismatch in sentences Size and Salsa XML Sentences Size";
-      System.out.println(infoMessage);
+      ArrayList<Terminal> terminals = tree.getTerminals();
+      parents = new Nonterminal[terminals.size()];
+      grandParents = new Nonterminal[terminals.size()];
+      for (int k = 0; k < terminals.size(); k++) {
+        parents[k] = parentOf.get(terminals.get(k));
+        grandParents[k] = parents[k] == null ? null : parentOf.get(parents[k]);
+        add(terminals.get(k).getId().getId(), k);
+        if (parents[k] != null) {
+          add(parents[k].getId().getId(), k);
+        }
+        if (grandParents[k] != null) {
+          add(grandParents[k].getId().getId(), k);
+        }
+      }
+    }
+
+    private void add(String id, int terminal) {
+      List<Integer> terminals = terminalsById.get(id);
+      if (terminals == null) {
+        terminals = new ArrayList<Integer>();
+        terminalsById.put(id, terminals);
+      }
+      if (terminals.isEmpty() || terminals.get(terminals.size() - 1) != terminal) {
+        terminals.add(terminal);
+      }
+    }
+
+    /**
+     * @param id the id of a node.
+     * @param from the first terminal index to consider.
+     * @return the smallest index not below from of a terminal which is or is
+     * the child or grandchild of the node, or the number of terminals.
+     */
+    int next(String id, int from) {
+      List<Integer> terminals = terminalsById.get(id);
+      if (terminals != null) {
+        int position = Collections.binarySearch(terminals, from);
+        if (position < 0) {
+          position = -position - 1;
+        }
+        if (position < terminals.size()) {
+          return terminals.get(position);
+        }
+      }
+      return parents.length;
     }
-    return null;
   }
 }
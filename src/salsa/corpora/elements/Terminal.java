@@ -51,18 +51,59 @@ public class Terminal {
 	public Terminal(Id id, String lemma, String morph, String pos, String word) {
 		super();
 		this.id = id;
-		lemma = lemma.replaceAll("<", "&lt;");
-		lemma = lemma.replaceAll(">", "&gt;");
-		lemma = lemma.replaceAll("\"", "&quot;");
-		lemma = lemma.replaceAll("&", "&amp;");
-		this.lemma = lemma;
+		this.lemma = escape(lemma);
 		this.morph = morph;
 		this.pos = pos;
-		word = word.replaceAll("<", "&lt;");
-		word = word.replaceAll(">", "&gt;");
-		word = word.replaceAll("\"", "&quot;");
-		word = word.replaceAll("&", "&amp;");
-		this.word = word;
+		this.word = escape(word);
+	}
+
+	/**
+	 * Escapes '&lt;', '&gt;', '"' and '&amp;' in a single pass. The result is
+	 * the same as replacing them one after another in this order, i.e. the
+	 * '&amp;' of an escaped '&lt;', '&gt;' or '"' is escaped again. Strings
+	 * without any of these characters are returned unchanged.
+	 * 
+	 * @param text
+	 *            the value of an attribute
+	 * @return the escaped value
+	 */
+	private static String escape(String text) {
+
+		int length = text.length();
+		int i = 0;
+		while (i < length) {
+			char c = text.charAt(i);
+			if (c == '<' || c == '>' || c == '"' || c == '&') {
+				break;
+			}
+			i++;
+		}
+		if (i == length) {
+			return text;
+		}
+
+		StringBuilder escaped = new StringBuilder(length + 16);
+		escaped.append(text, 0, i);
+		for (; i < length; i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '<':
+				escaped.append("&amp;lt;");
+				break;
+			case '>':
+				escaped.append("&amp;gt;");
+				break;
+			case '"':
+				escaped.append("&amp;quot;");
+				break;
+			case '&':
+				escaped.append("&amp;");
+				break;
+			default:
+				escaped.append(c);
+			}
+		}
+		return escaped.toString();
 	}
 
 	/**
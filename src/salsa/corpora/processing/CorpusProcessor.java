@@ -1,9 +1,12 @@
 package salsa.corpora.processing;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import salsa.corpora.elements.Body;
 import salsa.corpora.elements.Corpus;
@@ -49,6 +52,8 @@ public class CorpusProcessor {
 	
 	private ArrayList<Nonterminal> allNonterminalsInCorpus;
 	
+	private NodeIndex nodeIndex;
+	
 	
 
 	/**
@@ -239,6 +244,11 @@ public class CorpusProcessor {
 
 			Semantics sem = sentence.getSem();
 
+			// sentences of a Tiger XML file have no 'sem' section
+			if (sem == null) {
+				continue;
+			}
+
 			for (Frames frames : sem.getFrames()) {
 
 				for (Frame frame : frames.getFrames()) {
@@ -265,85 +275,126 @@ public class CorpusProcessor {
 	 */
 	public Set<Terminal> getAllTerminals(ArrayList<Fenode> allFenodes) {
 
-
 		Set<Terminal> allTerminals = new HashSet<Terminal>();
 
-		// gehe durch das Corpus und fuege alle entsprechenden Terminals zu
-		// 'allTerminals' hinzu
+		for (Fenode fenode : allFenodes) {
+			allTerminals.addAll(resolve(fenode.getIdref().getId()));
+		}
 
-		Set<String> unresolvedIds = new HashSet<String>();
+		return allTerminals;
+	}
 
-		//System.out.print("fe-nodes ");
-		for (Fenode fenode : allFenodes) {
-			unresolvedIds.add(fenode.getIdref().getId());
-			//System.out.print(fenode.getIdref().getId() + ",");
+	/**
+	 * Returns the <code>Terminal</code> elements covered by the node with the
+	 * given id. If a terminal and a nonterminal have the id, the terminal
+	 * counts, and if several nodes of the same kind have it, the first one in
+	 * the corpus counts. Ids of unknown nodes cover no terminals.
+	 * The terminals of a nonterminal are computed once and then reused. If the
+	 * edges contain a cycle, a nonterminal of the cycle is not expanded a
+	 * second time, so the nonterminals below the first one only get a part of
+	 * their terminals. Their sets are not reused.
+	 * 
+	 * @param id
+	 * @return the terminals
+	 */
+	private Set<Terminal> resolve(String id) {
+
+		NodeIndex index = getNodeIndex();
+
+		Terminal terminal = index.terminalsById.get(id);
+		if (terminal != null) {
+			return Collections.singleton(terminal);
 		}
-		//System.out.println(" are initially unresolved");
 
-		
-		while (!unresolvedIds.isEmpty()) {
-			
-			// versuche zuerst, die Terminals zu resolven
-			for (Terminal currentTerminal : getAllTerminalsInCorpus()) {
-				
-				HashSet<String> idsToRemove = new HashSet<String>();
+		Nonterminal nonterminal = index.nonterminalsById.get(id);
+		if (nonterminal == null) {
+			return Collections.emptySet();
+		}
 
-				for (String unresolvedId : unresolvedIds) {
-					
-					
+		Set<Terminal> terminals = index.terminalsOfNonterminal.get(nonterminal);
+		if (terminals != null) {
+			return terminals;
+		}
+
+		Expansion expansion = index.expansion.get();
+		// guards against cyclic edges, which would never be resolved
+		if (!expansion.nonterminals.add(nonterminal)) {
+			expansion.cyclic = true;
+			return Collections.emptySet();
+		}
+		boolean cyclicAbove = expansion.cyclic;
+		expansion.cyclic = false;
+		terminals = new HashSet<Terminal>();
+		try {
+			for (Edge edge : nonterminal.getEdges()) {
+				terminals.addAll(resolve(edge.getId().getId()));
+			}
+		} finally {
+			expansion.nonterminals.remove(nonterminal);
+		}
+		terminals = Collections.unmodifiableSet(terminals);
+		// the outermost nonterminal has all its terminals even if a cycle was cut below it
+		if (!expansion.cyclic || expansion.nonterminals.isEmpty()) {
+			index.terminalsOfNonterminal.put(nonterminal, terminals);
+		}
+		expansion.cyclic |= cyclicAbove;
+		return terminals;
+	}
 
-					if (currentTerminal.getId().getId().equals(unresolvedId)) {
+	/**
+	 * The nodes of the corpus by id and the terminals of the nonterminals that
+	 * have been resolved so far. It is built on first use and assumes that the
+	 * corpus does not change any more. It can be used by several threads.
+	 */
+	private static class NodeIndex {
 
-						allTerminals.add(currentTerminal);
+		final Map<String, Terminal> terminalsById = new HashMap<String, Terminal>();
 
-						idsToRemove.add(unresolvedId);
-						//System.out.println(unresolvedId
-						//		+ " has now been resolved to terminal node.");
-					}
-				}
-				for (String id : idsToRemove) {
-					unresolvedIds.remove(id);
-				}
+		final Map<String, Nonterminal> nonterminalsById = new HashMap<String, Nonterminal>();
+
+		final Map<Nonterminal, Set<Terminal>> terminalsOfNonterminal = new ConcurrentHashMap<Nonterminal, Set<Terminal>>();
+
+		final ThreadLocal<Expansion> expansion = new ThreadLocal<Expansion>() {
+			@Override
+			protected Expansion initialValue() {
+				return new Expansion();
 			}
+		};
+	}
 
-			// wenn dadurch immernoch nicht alles resolvt wurde, durchsuche die
-			// passenden Nonterminals
-			if (!unresolvedIds.isEmpty()) {
+	/**
+	 * The nonterminals that a thread is expanding in {@link CorpusProcessor#resolve(String)}.
+	 */
+	private static class Expansion {
 
-				for (Nonterminal currentNonterminal : getAllNonterminalsInCorpus()) {
-					
-					HashSet<String> idsToRemove = new HashSet<String>();
-					
-					HashSet<String> idsToAdd = new HashSet<String>();
+		final Set<Nonterminal> nonterminals = new HashSet<Nonterminal>();
 
-					for (String unresolvedId : unresolvedIds) {
+		// true if an edge led back to a nonterminal that is being expanded
+		boolean cyclic;
+	}
 
-						if (currentNonterminal.getId().getId().equals(
-								unresolvedId)) {
+	private synchronized NodeIndex getNodeIndex() {
 
-							for (Edge edge : currentNonterminal.getEdges()) {
+		if (null != nodeIndex) {
+			return nodeIndex;
+		}
 
-								idsToAdd.add(edge.getId().getId());
-								
+		NodeIndex index = new NodeIndex();
 
-							}
-							idsToRemove.add(unresolvedId);
-							
-						}
-					}
-					for (String id : idsToRemove) {
-						
-						unresolvedIds.remove(id);
-					}
-					for (String id : idsToAdd) {
-						unresolvedIds.add(id);
-					}
-				}
+		for (Terminal terminal : getAllTerminalsInCorpus()) {
+			if (!index.terminalsById.containsKey(terminal.getId().getId())) {
+				index.terminalsById.put(terminal.getId().getId(), terminal);
 			}
 		}
 
+		for (Nonterminal nonterminal : getAllNonterminalsInCorpus()) {
+			if (!index.nonterminalsById.containsKey(nonterminal.getId().getId())) {
+				index.nonterminalsById.put(nonterminal.getId().getId(), nonterminal);
+			}
+		}
 
-		return allTerminals;
+		nodeIndex = index;
+		return nodeIndex;
 	}
 
 	/**
@@ -370,7 +421,7 @@ public class CorpusProcessor {
 			
 			Semantics sem = sentence.getSem();
 			
-			ArrayList<Splitwords> allSplitwords = sem.getSplitwords();
+			ArrayList<Splitwords> allSplitwords = sem == null ? new ArrayList<Splitwords>() : sem.getSplitwords();
 			
 			for (Splitwords splitwords : allSplitwords) {
 				
@@ -390,6 +441,7 @@ public class CorpusProcessor {
 				allTerminals.add(currentTerminal);
 			}
 		}
+		allTerminalsInCorpus = allTerminals;
 		return allTerminals;
 	}
 
@@ -421,6 +473,7 @@ public class CorpusProcessor {
 				allNonterminals.add(currentNonterminal);
 			}
 		}
+		allNonterminalsInCorpus = allNonterminals;
 		return allNonterminals;
 	}
 }
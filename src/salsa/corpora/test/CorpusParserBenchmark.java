@@ -0,0 +1,62 @@
+package salsa.corpora.test;
+
+import java.io.File;
+
+import salsa.corpora.elements.Corpus;
+import salsa.corpora.xmlparser.CorpusParser;
+
+/**
+ * Measures how fast the <code>CorpusParser</code> reads a SalsaXML file. The
+ * file is parsed a few times to warm up the JVM and then parsed repeatedly
+ * while the time is taken.
+ *
+ * Usage: <code>CorpusParserBenchmark &lt;xml-file&gt; [iterations] [fast]</code>
+ *
+ */
+public class CorpusParserBenchmark {
+
+	private static final int WARMUP_ITERATIONS = 5;
+
+	/**
+	 * Parses the given file and prints the parse throughput.
+	 *
+	 * @param args
+	 *            the path of the SalsaXML file, optionally the number of
+	 *            measured iterations (default 20) and 'fast' to use a
+	 *            non-validating parser
+	 */
+	public static void main(String[] args) throws Exception {
+
+		if (args.length < 1) {
+			System.err
+					.println("Usage: CorpusParserBenchmark <xml-file> [iterations] [fast]");
+			return;
+		}
+
+		String fileName = args[0];
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		boolean validating = !(args.length > 2 && args[2].equals("fast"));
+
+		double megabytes = new File(fileName).length() / (1024.0 * 1024.0);
+
+		CorpusParser parser = new CorpusParser(validating);
+
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			parser.parseCorpusFromFile(fileName);
+		}
+
+		int sentences = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			Corpus corpus = parser.parseCorpusFromFile(fileName);
+			sentences += corpus.getBody().getSentences().size();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.println("Parsed " + fileName + " " + iterations
+				+ " times (" + sentences / iterations + " sentences, "
+				+ (validating ? "validating" : "fast") + ")");
+		System.out.printf("%.1f ms per file, %.2f MB/s%n", seconds * 1000
+				/ iterations, megabytes * iterations / seconds);
+	}
+}
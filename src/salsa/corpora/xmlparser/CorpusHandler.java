@@ -1,5 +1,9 @@
 package salsa.corpora.xmlparser;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
@@ -67,8 +71,23 @@ import salsa.corpora.noelement.Id;
  */
 public class CorpusHandler extends DefaultHandler {
 
-	// the currently active element
-	private String activeElement;
+	// maps the element names to the <code>Tag</code>s that handle them
+	private static final Map<String, Tag> TAGS = new HashMap<String, Tag>();
+
+	static {
+		for (Tag tag : Tag.values()) {
+			TAGS.put(tag.qualName, tag);
+		}
+	}
+
+	// the active element if it has text content, null otherwise
+	private Tag textElement;
+
+	// collects the text of <code>textElement</code> until it is complete
+	private final StringBuilder textBuffer = new StringBuilder();
+
+	// true if some text has been found for <code>textElement</code>
+	private boolean hasText;
 
 	// if the 'target' element is active, then <code>isTarget</code> is true.
 	private boolean isTarget;
@@ -199,11 +218,26 @@ public class CorpusHandler extends DefaultHandler {
 	}
 
 	/**
-	 * This method is called when the XML document starts. By now, nothing
-	 * happens in this method.
+	 * This method is called when the XML document starts. It resets the text
+	 * buffer, because the handler is reused by the <code>CorpusParser</code>
+	 * for every file it parses.
 	 */
 	public void startDocument() {
 
+		textElement = null;
+		hasText = false;
+		textBuffer.setLength(0);
+		// the handler is reused, and a document need not have a head
+		currentHead = null;
+	}
+
+	/**
+	 * This method is called when the XML document ends. It assigns the text
+	 * that has been collected for the last text element.
+	 */
+	public void endDocument() {
+
+		flushText();
 	}
 
 	/**
@@ -212,7 +246,7 @@ public class CorpusHandler extends DefaultHandler {
 	 * It initializes new objects and assigns them to their superordinating
 	 * elements. For example, it creates a new <code>Head</code> and assigns
 	 * it to the <code>Corpus</code>.
-	 * 
+	 *
 	 * @param uri
 	 *            a <code>String</code> with the namespace URI, empty if
 	 *            parser factory is not namespace aware (default)
@@ -232,763 +266,830 @@ public class CorpusHandler extends DefaultHandler {
 	String uri, @SuppressWarnings("unused")
 	String localName, String qualName, Attributes atts) throws SAXException {
 
-		activeElement = qualName;
-
-		if (qualName.equalsIgnoreCase("action")) {
-
-			currentAction = new Action(atts.getValue("date"), atts
-					.getValue("time"), atts.getValue("user"), atts
-					.getValue("type"));
+		// the text of the previously active element is complete now
+		flushText();
 
-			currentHistory.addAction(currentAction);
-
-		} else if (qualName.equalsIgnoreCase("annotation")) {
-
-			currentAnnotation = new Annotation();
-
-			currentHead.setAnnotation(currentAnnotation);
-
-		} else if (qualName.equalsIgnoreCase("author")) {
-
-			currentAuthor = new Author();
-
-			currentMeta.setAuthor(currentAuthor);
+		Tag tag = lookup(qualName);
 
+		if (null == tag) {
+			textElement = null;
+			return;
 		}
 
-		else if (qualName.equalsIgnoreCase("body")) {
-
-			currentBody = new Body();
-
-			corpus.setBody(currentBody);
-
-		} else if (qualName.equalsIgnoreCase("corpus")) {
-
-			corpus = new Corpus(atts.getValue("corpusname"), atts
-					.getValue("target"));
-
-		} else if (qualName.equalsIgnoreCase("corpus_id")) {
-
-			currentCorpusId = new CorpusId();
-
-			currentMeta.setCorpus_id(currentCorpusId);
+		tag.start(this, atts);
 
-		} else if (qualName.equalsIgnoreCase("date")) {
-
-			currentDate = new Date();
-
-			currentMeta.setDate(currentDate);
-
-		} else if (qualName.equalsIgnoreCase("description")) {
-
-			currentDescription = new Description();
-
-			currentMeta.setDescription(currentDescription);
+		textElement = tag.hasText ? tag : null;
+	}
 
-		} else if (qualName.equalsIgnoreCase("edge")) {
+	/**
+	 * This overrides {@link org.xml.sax.helpers.DefaultHandler#endElement}.
+	 * This method is called when the parser has found a closing element tag.
+	 *
+	 * @param uri
+	 *            a <code>String</code> with the namespace URI, empty if
+	 *            parser factory is not namespace aware (default)
+	 * @param localName
+	 *            a <code>String</code> with the local name (without prefix),
+	 *            empty if parser factory is not namespace aware (default)
+	 * @param qualName
+	 *            a <code>String</code> with the qualified (with prefix) name,
+	 *            or the empty string if qualified names are not available
+	 * @throws SAXException
+	 *             if an error occurs, possibly wrapping another exception
+	 */
+	public void endElement(@SuppressWarnings("unused")
+	String uri, @SuppressWarnings("unused")
+	String localName, String qualName) throws SAXException {
 
-			currentEdge = new Edge(new Id(atts.getValue("idref")), atts
-					.getValue("label"));
+		Tag tag = lookup(qualName);
 
-			currentNonterminal.addEdge(currentEdge);
+		if (null != tag) {
+			tag.end(this);
+		}
+	}
 
-		} else if (qualName.equalsIgnoreCase("edgelabel")) {
+	/**
+	 * This method is called when some text is found in the XML file. It
+	 * collects the text for the currently active element. The text is
+	 * assigned to the element as soon as the next element starts or the
+	 * document ends.
+	 *
+	 */
+	public void characters(char[] c, int start, int length) throws SAXException {
 
-			isEdgelabel = true;
+		if (null != textElement) {
+			textBuffer.append(c, start, length);
+			hasText = true;
+		}
+	}
 
-			currentEdgelabel = new Edgelabel();
+	/**
+	 * Assigns the collected text to the element that has been active last
+	 * and empties the buffer.
+	 */
+	private void flushText() {
 
-			currentAnnotation.setEdgelabel(currentEdgelabel);
+		if (hasText) {
+			textElement.setText(this, textBuffer.toString());
+			textBuffer.setLength(0);
+			hasText = false;
+		}
+	}
 
-		} else if (qualName.equalsIgnoreCase("element")) {
+	/**
+	 * Returns the <code>Tag</code> for an element name. Element names are
+	 * matched case-insensitively.
+	 *
+	 * @param qualName
+	 *            the qualified name of the element
+	 * @return the matching <code>Tag</code> or null if the element is unknown
+	 */
+	private static Tag lookup(String qualName) {
 
-			currentElement = new Element(atts.getValue("name"), atts
-					.getValue("optional"));
+		Tag tag = TAGS.get(qualName);
 
-			currentFrame.addElement(currentElement);
+		if (null == tag) {
+			tag = TAGS.get(qualName.toLowerCase(Locale.ENGLISH));
+		}
+		return tag;
+	}
 
-		} else if (qualName.equalsIgnoreCase("fe")) {
+	/**
+	 * Appends a piece of text to text that may have been assigned before.
+	 */
+	private static String append(String text, String currentString) {
 
-			isFrameElement = true;
+		if (null != text) {
+			return text + currentString;
+		}
+		return currentString;
+	}
 
-			currentFrameElement = new FrameElement(new Id(atts.getValue("id")),
-					atts.getValue("name"));
+	/**
+	 * The SalsaXML elements known to the handler. Every constant knows how to
+	 * create its element when the opening tag is found, what to do at the
+	 * closing tag and, for elements with text content, where to put the
+	 * text.
+	 */
+	private enum Tag {
 
-			String source = atts.getValue("source");
+		ACTION("action") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			String usp = atts.getValue("usp");
+				h.currentAction = new Action(atts.getValue("date"), atts
+						.getValue("time"), atts.getValue("user"), atts
+						.getValue("type"));
 
-			if (null != source) {
-				currentFrameElement.setSource(source);
-			}
-			if (null != usp) {
-				currentFrameElement.setUsp(usp);
+				h.currentHistory.addAction(h.currentAction);
 			}
+		},
 
-			currentFrame.addFe(currentFrameElement);
-
-		} else if (qualName.equalsIgnoreCase("feature")) {
+		ANNOTATION("annotation") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			isFeature = true;
+				h.currentAnnotation = new Annotation();
 
-			currentFeature = new Feature(atts.getValue("domain"), atts
-					.getValue("name"));
-
-			currentAnnotation.addFeature(currentFeature);
-
-		} else if (qualName.equalsIgnoreCase("fenode")) {
-
-			currentFenode = new Fenode(new Id(atts.getValue("idref")), atts
-					.getValue("is_split"));
-
-			if (isTarget) {
-				currentTarget.addFenode(currentFenode);
-			} else {
-				currentFrameElement.addFenode(currentFenode);
+				h.currentHead.setAnnotation(h.currentAnnotation);
 			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("flag")) {
+		AUTHOR("author", true) {
+			void start(CorpusHandler h, Attributes atts) {
 
-			currentFlag = new Flag(atts.getValue("name"));
+				h.currentAuthor = new Author();
 
-			String forWhat = atts.getValue("for");
-			if (null != forWhat) {
-				currentFlag.setForWhat(forWhat);
-			}
-			String source = atts.getValue("source");
-			if (null != source) {
-				currentFlag.setSource(source);
+				h.currentMeta.setAuthor(h.currentAuthor);
 			}
 
-			if (isFrameElement) {
-				currentFrameElement.addFlag(currentFlag);
-			} else if (isFrame) {
-				currentFrame.addFlag(currentFlag);
-			} else {
-
-				currentFlags.addFlag(currentFlag);
+			void setText(CorpusHandler h, String text) {
+				h.currentAuthor.setText(append(h.currentAuthor.getText(), text));
 			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("flags")) {
+		BODY("body") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			currentFlags = new Flags();
+				h.currentBody = new Body();
 
-			currentHead.setFlags(currentFlags);
-
-		} else if (qualName.equalsIgnoreCase("format")) {
-
-			currentFormat = new Format();
-
-			currentMeta.setFormat(currentFormat);
-
-		} else if (qualName.equalsIgnoreCase("frame")) {
-
-			isFrame = true;
-
-			currentFrame = new Frame(atts.getValue("name"));
-
-			String idString = atts.getValue("id");
-
-			String source = atts.getValue("source");
-
-			String usp = atts.getValue("usp");
-
-			if (null != idString) {
-				Id id = new Id(idString);
-
-				currentFrame.setId(id);
-			}
-			if (null != source) {
-				currentFrame.setSource(source);
-			}
-			if (null != usp) {
-				currentFrame.setUsp(usp);
+				h.corpus.setBody(h.currentBody);
 			}
+		},
 
-			currentFrames.addFrame(currentFrame);
+		CORPUS("corpus") {
+			void start(CorpusHandler h, Attributes atts) {
 
-		} else if (qualName.equalsIgnoreCase("frames")) {
+				h.corpus = new Corpus(atts.getValue("corpusname"), atts
+						.getValue("target"));
+			}
+		},
 
-			currentFrames = new Frames();
+		CORPUS_ID("corpus_id", true) {
+			void start(CorpusHandler h, Attributes atts) {
 
-			String xmlns = atts.getValue("xmlns");
+				h.currentCorpusId = new CorpusId();
 
-			if (null != xmlns) {
-				currentFrames.setXmlns(xmlns);
+				h.currentMeta.setCorpus_id(h.currentCorpusId);
 			}
 
-			if (null == currentHead.getFrames()) {
-				currentHead.setFrames(currentFrames);
-			} else {
-				currentSemantics.addFrames(currentFrames);
+			void setText(CorpusHandler h, String text) {
+				h.currentCorpusId.setId(append(h.currentCorpusId.getId(), text));
 			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("global")) {
+		DATE("date", true) {
+			void start(CorpusHandler h, Attributes atts) {
 
-			currentGlobal = new Global(atts.getValue("type"));
+				h.currentDate = new Date();
 
-			String param = atts.getValue("param");
-
-			if (null != param) {
-				currentGlobal.setParam(param);
+				h.currentMeta.setDate(h.currentDate);
 			}
 
-			currentGlobals.addGlobal(currentGlobal);
-
-		} else if (qualName.equalsIgnoreCase("globals")) {
-
-			currentGlobals = new Globals();
-
-			currentSemantics.addGlobals(currentGlobals);
-
-		}
-
-		else if (qualName.equalsIgnoreCase("graph")) {
-
-			currentGraph = new Graph(new Id(atts.getValue("root")));
-
-			currentSentence.setGraph(currentGraph);
-
-		} else if (qualName.equalsIgnoreCase("head")) {
-
-			currentHead = new Head();
-
-			corpus.setHead(currentHead);
-
-		} else if (qualName.equalsIgnoreCase("history")) {
-
-			currentHistory = new History();
-
-			currentMeta.setHistory(currentHistory);
-
-		} else if (qualName.equalsIgnoreCase("match")) {
-
-			currentMatch = new Match(atts.getValue("subgraph"));
-
-			currentMatches.addMatch(currentMatch);
-
-		} else if (qualName.equalsIgnoreCase("matches")) {
+			void setText(CorpusHandler h, String text) {
+				h.currentDate.setText(append(h.currentDate.getText(), text));
+			}
+		},
 
-			currentMatches = new Matches();
+		DESCRIPTION("description", true) {
+			void start(CorpusHandler h, Attributes atts) {
 
-			currentSentence.setMatches(currentMatches);
+				h.currentDescription = new Description();
 
-		} else if (qualName.equalsIgnoreCase("meta")) {
+				h.currentMeta.setDescription(h.currentDescription);
+			}
 
-			currentMeta = new Meta();
+			void setText(CorpusHandler h, String text) {
+				h.currentDescription.setText(append(h.currentDescription
+						.getText(), text));
+			}
+		},
 
-			currentHead.setMeta(currentMeta);
+		EDGE("edge") {
+			void start(CorpusHandler h, Attributes atts) {
 
-		} else if (qualName.equalsIgnoreCase("name")) {
+				h.currentEdge = new Edge(new Id(atts.getValue("idref")), atts
+						.getValue("label"));
 
-			currentName = new Name();
+				h.currentNonterminal.addEdge(h.currentEdge);
+			}
+		},
 
-			currentMeta.setName(currentName);
+		EDGELABEL("edgelabel") {
+			void start(CorpusHandler h, Attributes atts) {
 
-		}
+				h.isEdgelabel = true;
 
-		else if (qualName.equalsIgnoreCase("step")) {
+				h.currentEdgelabel = new Edgelabel();
 
-			currentStep = new Step();
+				h.currentAnnotation.setEdgelabel(h.currentEdgelabel);
+			}
 
-			currentAction.setStep(currentStep);
+			void end(CorpusHandler h) {
+				h.isEdgelabel = false;
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("recipient")) {
+		ELEMENT("element") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			currentRecipient = new Recipient(atts.getValue("id"));
+				h.currentElement = new Element(atts.getValue("name"), atts
+						.getValue("optional"));
 
-			currentAction.addRecipient(currentRecipient);
+				h.currentFrame.addElement(h.currentElement);
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("nonterminals")) {
+		FE("fe") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			currentNonterminals = new Nonterminals();
+				h.isFrameElement = true;
 
-			currentGraph.setNonterminals(currentNonterminals);
+				h.currentFrameElement = new FrameElement(new Id(atts
+						.getValue("id")), atts.getValue("name"));
 
-		} else if (qualName.equalsIgnoreCase("nt")) {
+				String source = atts.getValue("source");
 
-			currentNonterminal = new Nonterminal(atts.getValue("cat"), new Id(
-					atts.getValue("id")));
+				String usp = atts.getValue("usp");
 
-			currentNonterminals.addNonterminal(currentNonterminal);
+				if (null != source) {
+					h.currentFrameElement.setSource(source);
+				}
+				if (null != usp) {
+					h.currentFrameElement.setUsp(usp);
+				}
 
-		} else if (qualName.equalsIgnoreCase("part")) {
+				h.currentFrame.addFe(h.currentFrameElement);
+			}
 
-			currentPart = new Part(atts.getValue("word"), new Id(atts
-					.getValue("id")));
+			void end(CorpusHandler h) {
+				h.isFrameElement = false;
+			}
+		},
 
-			currentSplitword.addPart(currentPart);
+		FEATURE("feature") {
+			void start(CorpusHandler h, Attributes atts) {
 
-		} else if (qualName.equalsIgnoreCase("s")) {
+				h.isFeature = true;
 
-			currentSentence = new Sentence(new Id(atts.getValue("id")));
+				h.currentFeature = new Feature(atts.getValue("domain"), atts
+						.getValue("name"));
 
-			String source = atts.getValue("source");
+				h.currentAnnotation.addFeature(h.currentFeature);
+			}
 
-			if (null != source) {
-				currentSentence.setSource(source);
+			void end(CorpusHandler h) {
+				h.isFeature = false;
 			}
+		},
 
-			currentBody.addSentence(currentSentence);
+		FENODE("fenode") {
+			void start(CorpusHandler h, Attributes atts) {
 
-		} else if (qualName.equalsIgnoreCase("secedge")) {
+				h.currentFenode = new Fenode(new Id(atts.getValue("idref")),
+						atts.getValue("is_split"));
 
-			currentSecedge = new Secedge(new Id(atts.getValue("id")), atts
-					.getValue("label"));
+				if (h.isTarget) {
+					h.currentTarget.addFenode(h.currentFenode);
+				} else {
+					h.currentFrameElement.addFenode(h.currentFenode);
+				}
+			}
+		},
+
+		FLAG("flag", true) {
+			void start(CorpusHandler h, Attributes atts) {
+
+				h.currentFlag = new Flag(atts.getValue("name"));
+
+				String forWhat = atts.getValue("for");
+				if (null != forWhat) {
+					h.currentFlag.setForWhat(forWhat);
+				}
+				String source = atts.getValue("source");
+				if (null != source) {
+					h.currentFlag.setSource(source);
+				}
+
+				if (h.isFrameElement) {
+					h.currentFrameElement.addFlag(h.currentFlag);
+				} else if (h.isFrame) {
+					h.currentFrame.addFlag(h.currentFlag);
+				} else {
+
+					h.currentFlags.addFlag(h.currentFlag);
+				}
+			}
 
-			currentTerminal.setSecedge(currentSecedge);
+			void setText(CorpusHandler h, String text) {
+				h.currentFlag.setText(append(h.currentFlag.getText(), text));
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("secedgelabel")) {
+		FLAGS("flags") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			isSecedgelabel = true;
+				h.currentFlags = new Flags();
 
-			currentSecedgelabel = new Secedgelabel();
+				h.currentHead.setFlags(h.currentFlags);
+			}
+		},
 
-			currentAnnotation.setSecedgelabel(currentSecedgelabel);
+		FORMAT("format", true) {
+			void start(CorpusHandler h, Attributes atts) {
 
-		} else if (qualName.equalsIgnoreCase("sem")) {
+				h.currentFormat = new Format();
 
-			currentSemantics = new Semantics();
+				h.currentMeta.setFormat(h.currentFormat);
+			}
 
-			currentSentence.setSem(currentSemantics);
+			void setText(CorpusHandler h, String text) {
+				h.currentFormat.setFormat(append(h.currentFormat.getFormat(),
+						text));
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("splitwords")) {
+		FRAME("frame") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			currentSplitwords = new Splitwords();
+				h.isFrame = true;
 
-			currentSemantics.addSplitwords(currentSplitwords);
+				h.currentFrame = new Frame(atts.getValue("name"));
 
-		} else if (qualName.equalsIgnoreCase("splitword")) {
+				String idString = atts.getValue("id");
 
-			currentSplitword = new Splitword(new Id(atts.getValue("idref")));
+				String source = atts.getValue("source");
 
-			currentSplitwords.addSplitword(currentSplitword);
+				String usp = atts.getValue("usp");
 
-		} else if (qualName.equalsIgnoreCase("step")) {
+				if (null != idString) {
+					Id id = new Id(idString);
 
-			currentStep = new Step();
+					h.currentFrame.setId(id);
+				}
+				if (null != source) {
+					h.currentFrame.setSource(source);
+				}
+				if (null != usp) {
+					h.currentFrame.setUsp(usp);
+				}
 
-			currentAction.setStep(currentStep);
+				h.currentFrames.addFrame(h.currentFrame);
+			}
 
-		} else if (qualName.equalsIgnoreCase("t")) {
-		
-			currentTerminal = new Terminal(new Id(atts.getValue("id")), atts
-					.getValue("lemma"), atts.getValue("morph"), atts
-					.getValue("pos"), atts.getValue("word"));
-			
-		
-			currentTerminals.addTerminal(currentTerminal);
+			void end(CorpusHandler h) {
+				h.isFrame = false;
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("target")) {
+		FRAMES("frames") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			isTarget = true;
+				h.currentFrames = new Frames();
 
-			currentTarget = new Target();
+				String xmlns = atts.getValue("xmlns");
 
-			String idString = atts.getValue("id");
-			String lemma = atts.getValue("lemma");
-			String headlemma = atts.getValue("headlemma");
+				if (null != xmlns) {
+					h.currentFrames.setXmlns(xmlns);
+				}
 
-			if (null != idString) {
-				Id id = new Id(idString);
-				currentTarget.setId(id);
-			}
-			if (null != lemma) {
-				currentTarget.setLemma(lemma);
-			}
-			if (null != headlemma) {
-				currentTarget.setHeadlemma(headlemma);
+				// a batch of sentences without a head has frames in the sentences only
+				if (null != h.currentHead && null == h.currentHead.getFrames()) {
+					h.currentHead.setFrames(h.currentFrames);
+				} else {
+					h.currentSemantics.addFrames(h.currentFrames);
+				}
 			}
+		},
 
-			currentFrame.setTarget(currentTarget);
+		GLOBAL("global", true) {
+			void start(CorpusHandler h, Attributes atts) {
 
-		} else if (qualName.equalsIgnoreCase("terminals")) {
+				h.currentGlobal = new Global(atts.getValue("type"));
 
-			currentTerminals = new Terminals();
+				String param = atts.getValue("param");
 
-			currentGraph.setTerminals(currentTerminals);
+				if (null != param) {
+					h.currentGlobal.setParam(param);
+				}
 
-		} else if (qualName.equalsIgnoreCase("usp")) {
-
-			currentUnderspecification = new Underspecification();
-
-			currentSemantics.addUsp(currentUnderspecification);
+				h.currentGlobals.addGlobal(h.currentGlobal);
+			}
 
-		} else if (qualName.equalsIgnoreCase("uspblock")) {
+			void setText(CorpusHandler h, String text) {
+				h.currentGlobal.setText(append(h.currentGlobal.getText(), text));
+			}
+		},
 
-			currentUspblock = new Uspblock();
+		GLOBALS("globals") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			if (isUspframes) {
-				currentUnderspecificationFrames.addUspblock(currentUspblock);
-			} else {
+				h.currentGlobals = new Globals();
 
-				currentUnderspecificationFrameElements
-						.addUspblock(currentUspblock);
+				h.currentSemantics.addGlobals(h.currentGlobals);
 			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("uspfes")) {
+		GRAPH("graph") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			currentUnderspecificationFrameElements = new UnderspecificationFrameElements();
+				h.currentGraph = new Graph(new Id(atts.getValue("root")));
 
-			currentUnderspecification
-					.setUspfes(currentUnderspecificationFrameElements);
-
-		} else if (qualName.equalsIgnoreCase("uspframes")) {
-
-			isUspframes = true;
+				h.currentSentence.setGraph(h.currentGraph);
+			}
+		},
 
-			currentUnderspecificationFrames = new UnderspecificationFrames();
+		HEAD("head") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			currentUnderspecification
-					.setUspframes(currentUnderspecificationFrames);
+				h.currentHead = new Head();
 
-		} else if (qualName.equalsIgnoreCase("uspitem")) {
+				h.corpus.setHead(h.currentHead);
+			}
+		},
 
-			currentUspitem = new Uspitem(new Id(atts.getValue("idref")));
+		HISTORY("history") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			currentUspblock.addUspitem(currentUspitem);
+				h.currentHistory = new History();
 
-		} else if (qualName.equalsIgnoreCase("value")) {
+				h.currentMeta.setHistory(h.currentHistory);
+			}
+		},
 
-			currentValue = new Value(atts.getValue("name"));
+		MATCH("match") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			if (isEdgelabel) {
+				h.currentMatch = new Match(atts.getValue("subgraph"));
 
-				currentEdgelabel.addValue(currentValue);
-			} else if (isSecedgelabel) {
-				currentSecedgelabel.addValue(currentValue);
-			} else if (isFeature) {
-				currentFeature.addValue(currentValue);
-			} else {
-				System.err
-						.println("parsing error: 'value' is in the wrong section");
+				h.currentMatches.addMatch(h.currentMatch);
 			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("variable")) {
+		MATCHES("matches") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			currentVariable = new Variable(atts.getValue("name"), new Id(atts
-					.getValue("idref")));
+				h.currentMatches = new Matches();
 
-			currentMatch.addVariable(currentVariable);
-
-		} else if (qualName.equalsIgnoreCase("wordtag")) {
+				h.currentSentence.setMatches(h.currentMatches);
+			}
+		},
 
-			currentWordtag = new Wordtag(atts.getValue("name"));
+		META("meta") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			currentWordtags.setWordtag(currentWordtag);
+				h.currentMeta = new Meta();
 
-		} else if (qualName.equalsIgnoreCase("wordtags")) {
+				h.currentHead.setMeta(h.currentMeta);
+			}
+		},
 
-			currentWordtags = new Wordtags();
+		NAME("name", true) {
+			void start(CorpusHandler h, Attributes atts) {
 
-			String xmlns = atts.getValue("xmlns");
+				h.currentName = new Name();
 
-			if (null != xmlns) {
-				currentWordtags.setXmlns(xmlns);
+				h.currentMeta.setName(h.currentName);
 			}
 
-			if (null == currentHead.getWordtags()) {
-
-				currentHead.setWordtags(currentWordtags);
-			} else {
-				currentSemantics.addWordtags(currentWordtags);
+			void setText(CorpusHandler h, String text) {
+				h.currentName.setText(append(h.currentName.getText(), text));
 			}
+		},
 
-		}
-	}
-
-	/**
-	 * This overrides {@link org.xml.sax.helpers.DefaultHandler#endElement}.
-	 * This method is called when the parser has found a closing element tag.
-	 * 
-	 * @param uri
-	 *            a <code>String</code> with the namespace URI, empty if
-	 *            parser factory is not namespace aware (default)
-	 * @param localName
-	 *            a <code>String</code> with the local name (without prefix),
-	 *            empty if parser factory is not namespace aware (default)
-	 * @param qualName
-	 *            a <code>String</code> with the qualified (with prefix) name,
-	 *            or the empty string if qualified names are not available
-	 * @throws SAXException
-	 *             if an error occurs, possibly wrapping another exception
-	 */
-	public void endElement(@SuppressWarnings("unused")
-	String uri, @SuppressWarnings("unused")
-	String localName, String qualName) throws SAXException {
+		NONTERMINALS("nonterminals") {
+			void start(CorpusHandler h, Attributes atts) {
 
-		if (qualName.equalsIgnoreCase("action")) {
+				h.currentNonterminals = new Nonterminals();
 
-		} else if (qualName.equalsIgnoreCase("annotation")) {
+				h.currentGraph.setNonterminals(h.currentNonterminals);
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("body")) {
+		NT("nt") {
+			void start(CorpusHandler h, Attributes atts) {
 
-		} else if (qualName.equalsIgnoreCase("corpus")) {
+				h.currentNonterminal = new Nonterminal(atts.getValue("cat"),
+						new Id(atts.getValue("id")));
 
-		} else if (qualName.equalsIgnoreCase("corpus_id")) {
+				h.currentNonterminals.addNonterminal(h.currentNonterminal);
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("edge")) {
+		PART("part") {
+			void start(CorpusHandler h, Attributes atts) {
 
-		} else if (qualName.equalsIgnoreCase("edgelabel")) {
+				h.currentPart = new Part(atts.getValue("word"), new Id(atts
+						.getValue("id")));
 
-			isEdgelabel = false;
+				h.currentSplitword.addPart(h.currentPart);
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("element")) {
+		RECIPIENT("recipient", true) {
+			void start(CorpusHandler h, Attributes atts) {
 
-		} else if (qualName.equalsIgnoreCase("fe")) {
+				h.currentRecipient = new Recipient(atts.getValue("id"));
 
-			isFrameElement = false;
+				h.currentAction.addRecipient(h.currentRecipient);
+			}
 
-		} else if (qualName.equalsIgnoreCase("feature")) {
+			void setText(CorpusHandler h, String text) {
+				h.currentRecipient.setText(append(h.currentRecipient.getText(),
+						text));
+			}
+		},
 
-			isFeature = false;
+		S("s") {
+			void start(CorpusHandler h, Attributes atts) {
 
-		} else if (qualName.equalsIgnoreCase("fenode")) {
+				h.currentSentence = new Sentence(new Id(atts.getValue("id")));
 
-		} else if (qualName.equalsIgnoreCase("flag")) {
+				String source = atts.getValue("source");
 
-		} else if (qualName.equalsIgnoreCase("flags")) {
+				if (null != source) {
+					h.currentSentence.setSource(source);
+				}
 
-		} else if (qualName.equalsIgnoreCase("format")) {
+				h.currentBody.addSentence(h.currentSentence);
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("frame")) {
+		SECEDGE("secedge") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			isFrame = false;
+				h.currentSecedge = new Secedge(new Id(atts.getValue("id")),
+						atts.getValue("label"));
 
-		} else if (qualName.equalsIgnoreCase("frames")) {
+				h.currentTerminal.setSecedge(h.currentSecedge);
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("global")) {
+		SECEDGELABEL("secedgelabel") {
+			void start(CorpusHandler h, Attributes atts) {
 
-		} else if (qualName.equalsIgnoreCase("globals")) {
+				h.isSecedgelabel = true;
 
-		} else if (qualName.equalsIgnoreCase("graph")) {
+				h.currentSecedgelabel = new Secedgelabel();
 
-		} else if (qualName.equalsIgnoreCase("head")) {
+				h.currentAnnotation.setSecedgelabel(h.currentSecedgelabel);
+			}
 
-		} else if (qualName.equalsIgnoreCase("history")) {
+			void end(CorpusHandler h) {
+				h.isSecedgelabel = false;
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("match")) {
+		SEM("sem") {
+			void start(CorpusHandler h, Attributes atts) {
 
-		} else if (qualName.equalsIgnoreCase("matches")) {
+				h.currentSemantics = new Semantics();
 
-		} else if (qualName.equalsIgnoreCase("meta")) {
+				h.currentSentence.setSem(h.currentSemantics);
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("step")) {
+		SPLITWORD("splitword") {
+			void start(CorpusHandler h, Attributes atts) {
 
-		} else if (qualName.equalsIgnoreCase("recipient")) {
+				h.currentSplitword = new Splitword(new Id(atts
+						.getValue("idref")));
 
-		} else if (qualName.equalsIgnoreCase("nonterminals")) {
+				h.currentSplitwords.addSplitword(h.currentSplitword);
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("nt")) {
+		SPLITWORDS("splitwords") {
+			void start(CorpusHandler h, Attributes atts) {
 
-		} else if (qualName.equalsIgnoreCase("part")) {
+				h.currentSplitwords = new Splitwords();
 
-		} else if (qualName.equalsIgnoreCase("s")) {
+				h.currentSemantics.addSplitwords(h.currentSplitwords);
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("secedge")) {
+		STEP("step", true) {
+			void start(CorpusHandler h, Attributes atts) {
 
-		} else if (qualName.equalsIgnoreCase("secedgelabel")) {
+				h.currentStep = new Step();
 
-			isSecedgelabel = false;
+				h.currentAction.setStep(h.currentStep);
+			}
 
-		} else if (qualName.equalsIgnoreCase("sem")) {
+			void setText(CorpusHandler h, String text) {
+				h.currentStep.setStep(append(h.currentStep.getStep(), text));
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("splitwords")) {
+		T("t") {
+			void start(CorpusHandler h, Attributes atts) {
 
-		} else if (qualName.equalsIgnoreCase("splitword")) {
+				h.currentTerminal = new Terminal(new Id(atts.getValue("id")),
+						atts.getValue("lemma"), atts.getValue("morph"), atts
+								.getValue("pos"), atts.getValue("word"));
 
-		} else if (qualName.equalsIgnoreCase("step")) {
+				h.currentTerminals.addTerminal(h.currentTerminal);
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("t")) {
+		TARGET("target") {
+			void start(CorpusHandler h, Attributes atts) {
 
-		} else if (qualName.equalsIgnoreCase("target")) {
+				h.isTarget = true;
 
-			isTarget = false;
+				h.currentTarget = new Target();
 
-		} else if (qualName.equalsIgnoreCase("terminals")) {
+				String idString = atts.getValue("id");
+				String lemma = atts.getValue("lemma");
+				String headlemma = atts.getValue("headlemma");
 
-		} else if (qualName.equalsIgnoreCase("usp")) {
+				if (null != idString) {
+					Id id = new Id(idString);
+					h.currentTarget.setId(id);
+				}
+				if (null != lemma) {
+					h.currentTarget.setLemma(lemma);
+				}
+				if (null != headlemma) {
+					h.currentTarget.setHeadlemma(headlemma);
+				}
 
-		} else if (qualName.equalsIgnoreCase("uspblock")) {
+				h.currentFrame.setTarget(h.currentTarget);
+			}
 
-		} else if (qualName.equalsIgnoreCase("uspfes")) {
+			void end(CorpusHandler h) {
+				h.isTarget = false;
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("uspframes")) {
+		TERMINALS("terminals") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			isUspframes = false;
+				h.currentTerminals = new Terminals();
 
-		} else if (qualName.equalsIgnoreCase("uspitem")) {
+				h.currentGraph.setTerminals(h.currentTerminals);
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("value")) {
+		USP("usp") {
+			void start(CorpusHandler h, Attributes atts) {
 
-		} else if (qualName.equalsIgnoreCase("variable")) {
+				h.currentUnderspecification = new Underspecification();
 
-		} else if (qualName.equalsIgnoreCase("wordtag")) {
+				h.currentSemantics.addUsp(h.currentUnderspecification);
+			}
+		},
 
-		} else if (qualName.equalsIgnoreCase("wordtags")) {
+		USPBLOCK("uspblock") {
+			void start(CorpusHandler h, Attributes atts) {
 
-		}
-	}
+				h.currentUspblock = new Uspblock();
 
-	/**
-	 * This method is called when some text is found in the XML file. It adds or
-	 * assigns the text to the currently active element.
-	 * 
-	 */
-	public void characters(char[] c, int start, int length) throws SAXException {
+				if (h.isUspframes) {
+					h.currentUnderspecificationFrames
+							.addUspblock(h.currentUspblock);
+				} else {
 
-		String currentString = new String(c, start, length);
+					h.currentUnderspecificationFrameElements
+							.addUspblock(h.currentUspblock);
+				}
+			}
+		},
 
-		if (activeElement.equalsIgnoreCase("author")) {
-			String text = currentAuthor.getText();
+		USPFES("uspfes") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			if (null != text) {
-				text = text + currentString;
-				currentAuthor.setText(text);
-			} else {
+				h.currentUnderspecificationFrameElements = new UnderspecificationFrameElements();
 
-				currentAuthor.setText(currentString);
+				h.currentUnderspecification
+						.setUspfes(h.currentUnderspecificationFrameElements);
 			}
+		},
 
-		}
-
-		else if (activeElement.equalsIgnoreCase("corpus_id")) {
+		USPFRAMES("uspframes") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			String text = currentCorpusId.getId();
+				h.isUspframes = true;
 
-			if (null != text) {
-				text = text + currentString;
-				currentCorpusId.setId(text);
-			} else {
+				h.currentUnderspecificationFrames = new UnderspecificationFrames();
 
-				currentCorpusId.setId(currentString);
+				h.currentUnderspecification
+						.setUspframes(h.currentUnderspecificationFrames);
 			}
 
-		} else if (activeElement.equalsIgnoreCase("date")) {
-			String text = currentDate.getText();
-
-			if (null != text) {
-				text = text + currentString;
-				currentDate.setText(text);
-			} else {
-
-				currentDate.setText(currentString);
+			void end(CorpusHandler h) {
+				h.isUspframes = false;
 			}
+		},
 
-		} else if (activeElement.equalsIgnoreCase("description")) {
-			String text = currentDescription.getText();
+		USPITEM("uspitem") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			if (null != text) {
-				text = text + currentString;
-				currentDescription.setText(text);
-			} else {
+				h.currentUspitem = new Uspitem(new Id(atts.getValue("idref")));
 
-				currentDescription.setText(currentString);
+				h.currentUspblock.addUspitem(h.currentUspitem);
 			}
+		},
 
-		}
-
-		else if (activeElement.equalsIgnoreCase("flag")) {
+		VALUE("value", true) {
+			void start(CorpusHandler h, Attributes atts) {
 
-			String text = currentFlag.getText();
+				h.currentValue = new Value(atts.getValue("name"));
 
-			if (null != text) {
-				text = text + currentString;
-				currentFlag.setText(text);
-			} else {
+				if (h.isEdgelabel) {
 
-				currentFlag.setText(currentString);
+					h.currentEdgelabel.addValue(h.currentValue);
+				} else if (h.isSecedgelabel) {
+					h.currentSecedgelabel.addValue(h.currentValue);
+				} else if (h.isFeature) {
+					h.currentFeature.addValue(h.currentValue);
+				} else {
+					System.err
+							.println("parsing error: 'value' is in the wrong section");
+				}
 			}
 
-		}
-
-		else if (activeElement.equalsIgnoreCase("format")) {
-
-			String text = currentFormat.getFormat();
-
-			if (null != text) {
-				text = text + currentString;
-				currentFormat.setFormat(text);
-			} else {
-
-				currentFormat.setFormat(currentString);
+			void setText(CorpusHandler h, String text) {
+				h.currentValue.setText(append(h.currentValue.getText(), text));
 			}
-		}
-
-		else if (activeElement.equalsIgnoreCase("global")) {
+		},
 
-			String text = currentGlobal.getText();
+		VARIABLE("variable", true) {
+			void start(CorpusHandler h, Attributes atts) {
 
-			if (null != text) {
-				text = text + currentString;
-				currentGlobal.setText(text);
-			} else {
+				h.currentVariable = new Variable(atts.getValue("name"), new Id(
+						atts.getValue("idref")));
 
-				currentGlobal.setText(currentString);
+				h.currentMatch.addVariable(h.currentVariable);
 			}
 
-		} else if (activeElement.equalsIgnoreCase("name")) {
+			void setText(CorpusHandler h, String text) {
+				h.currentVariable.setText(append(h.currentVariable.getText(),
+						text));
+			}
+		},
 
-			String text = currentName.getText();
+		WORDTAG("wordtag") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			if (null != text) {
-				text = text + currentString;
-				currentName.setText(text);
-			} else {
+				h.currentWordtag = new Wordtag(atts.getValue("name"));
 
-				currentName.setText(currentString);
+				h.currentWordtags.setWordtag(h.currentWordtag);
 			}
+		},
 
-		} else if (activeElement.equalsIgnoreCase("recipient")) {
+		WORDTAGS("wordtags") {
+			void start(CorpusHandler h, Attributes atts) {
 
-			String text = currentRecipient.getText();
+				h.currentWordtags = new Wordtags();
 
-			if (null != text) {
-				text = text + currentString;
-				currentRecipient.setText(text);
-			} else {
+				String xmlns = atts.getValue("xmlns");
 
-				currentRecipient.setText(currentString);
-			}
+				if (null != xmlns) {
+					h.currentWordtags.setXmlns(xmlns);
+				}
 
-		} else if (activeElement.equalsIgnoreCase("step")) {
+				if (null != h.currentHead && null == h.currentHead.getWordtags()) {
 
-			String text = currentStep.getStep();
+					h.currentHead.setWordtags(h.currentWordtags);
+				} else {
+					h.currentSemantics.addWordtags(h.currentWordtags);
+				}
+			}
+		};
 
-			if (null != text) {
-				text = text + currentString;
-				currentStep.setStep(text);
-			} else {
+		// the element name as written in SalsaXML (lower case)
+		final String qualName;
 
-				currentStep.setStep(currentString);
-			}
+		// true if the element has text content
+		final boolean hasText;
 
+		private Tag(String qualName) {
+			this(qualName, false);
 		}
 
-		else if (activeElement.equalsIgnoreCase("value")) {
-			String text = currentValue.getText();
+		private Tag(String qualName, boolean hasText) {
+			this.qualName = qualName;
+			this.hasText = hasText;
+		}
 
-			if (null != text) {
-				text = text + currentString;
-				currentValue.setText(text);
-			} else {
+		/**
+		 * Creates the element for an opening tag and assigns it to its
+		 * superordinating element.
+		 */
+		abstract void start(CorpusHandler h, Attributes atts);
 
-				currentValue.setText(currentString);
-			}
+		/**
+		 * Is called for a closing tag. By default, nothing happens.
+		 */
+		void end(CorpusHandler h) {
 
 		}
 
-		else if (activeElement.equalsIgnoreCase("variable")) {
+		/**
+		 * Assigns the text content to the element. By default, nothing
+		 * happens.
+		 */
+		void setText(CorpusHandler h, String text) {
 
-			String text = currentVariable.getText();
-
-			if (null != text) {
-				text = text + currentString;
-				currentVariable.setText(text);
-			} else {
-
-				currentVariable.setText(currentString);
-			}
 		}
 	}
 
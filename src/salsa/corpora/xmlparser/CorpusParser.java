@@ -1,9 +1,11 @@
 package salsa.corpora.xmlparser;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
@@ -11,8 +13,12 @@ import javax.xml.parsers.SAXParserFactory;
 
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
 
 import salsa.corpora.elements.Corpus;
+import salsa.util.CompressedStreams;
 
 public class CorpusParser {
 
@@ -21,8 +27,11 @@ public class CorpusParser {
 
 	private CorpusHandler handler;
 
+	// true if the parser validates the XML documents against their DTD
+	private final boolean validating;
+
 	/**
-	 * Zero-argumented default constructor.
+	 * Zero-argumented default constructor. It creates a validating parser.
 	 * 
 	 * @throws ParserConfigurationException
 	 *             if there is a problem with the parser factory
@@ -31,12 +40,44 @@ public class CorpusParser {
 	 */
 	public CorpusParser() throws ParserConfigurationException, SAXException {
 
+		this(true);
+	}
+
+	/**
+	 * Constructor that chooses the parse mode. A non-validating parser
+	 * neither loads the DTD nor any external entities, so it should only be
+	 * used for files that are known to be well-formed, e.g. files created by
+	 * our own Tiger XML conversion. The parser can be reused for any number of
+	 * files.
+	 * 
+	 * @param validating
+	 *            <code>true</code> if the documents should be validated
+	 * @throws ParserConfigurationException
+	 *             if there is a problem with the parser factory
+	 * @throws SAXException
+	 *             if there is a problem when creating the parser
+	 */
+	public CorpusParser(boolean validating)
+			throws ParserConfigurationException, SAXException {
+
+		this.validating = validating;
+
 		// init parser factory
 		SAXParserFactory parserFactory = SAXParserFactory.newInstance();
 
-		parserFactory.setValidating(true);
+		parserFactory.setValidating(validating);
 
 		parserFactory.setNamespaceAware(false);
+
+		if (!validating) {
+			setFeatureIfSupported(parserFactory,
+					"http://xml.org/sax/features/external-general-entities");
+			setFeatureIfSupported(parserFactory,
+					"http://xml.org/sax/features/external-parameter-entities");
+			setFeatureIfSupported(parserFactory,
+					"http://apache.org/xml/features/nonvalidating/load-external-dtd");
+		}
+
 		// create parser
 		this.parser = parserFactory.newSAXParser();
 
@@ -44,9 +85,33 @@ public class CorpusParser {
 		this.handler = new CorpusHandler();
 	}
 
+	/**
+	 * Switches off a feature of the parser factory. Features that the
+	 * underlying parser does not know are skipped.
+	 */
+	private static void setFeatureIfSupported(SAXParserFactory parserFactory,
+			String feature) throws ParserConfigurationException, SAXException {
+
+		try {
+			parserFactory.setFeature(feature, false);
+		} catch (SAXNotRecognizedException e) {
+			// the parser does not load this kind of resource anyway
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if this parser validates the XML documents.
+	 * 
+	 * @return the parse mode
+	 */
+	public boolean isValidating() {
+		return validating;
+	}
+
 	/**
 	 * Parses the XML document and returns the equivalent <code>Corpus</code>. 
-	 * It reads only files in the 'utf-8' format.
+	 * It reads only files in the 'utf-8' format. Files whose name ends with
+	 * '.gz' are decompressed while they are parsed.
 	 * 
 	 * @param aFileName
 	 *            a <code>String</code> with the file name to read the XML
@@ -59,13 +124,105 @@ public class CorpusParser {
 	public Corpus parseCorpusFromFile(String aFileName) throws IOException,
 			SAXException {
 
-		FileInputStream is = new FileInputStream(new File(aFileName));
-		
-		this.parser.parse(new InputSource(new InputStreamReader(is, "UTF-8")),
-				this.handler);
-		
+		parse(aFileName, this.handler);
+
+		return handler.getCorpus();
+
+	}
+
+	/**
+	 * Parses an XML document that is given as a <code>String</code> and
+	 * returns the equivalent <code>Corpus</code>.
+	 * 
+	 * @param xml
+	 *            a <code>String</code> with the XML document
+	 * @throws IOException
+	 *             if there is a problem when reading the document
+	 * @throws SAXException
+	 *             if there is a problem when parsing the XML document
+	 */
+	public Corpus parseCorpusFromString(String xml) throws IOException,
+			SAXException {
+
+		try {
+			this.parser.parse(new InputSource(new StringReader(xml)),
+					this.handler);
+		} finally {
+			this.parser.reset();
+		}
+
 		return handler.getCorpus();
+	}
+
+	/**
+	 * Validates the XML document and returns all warnings and errors that
+	 * have been reported. Unlike {@link #parseCorpusFromFile(String)}, no
+	 * <code>Corpus</code> is created.
+	 * 
+	 * @param aFileName
+	 *            a <code>String</code> with the file name to read the XML
+	 *            document from
+	 * @return a <code>List</code> of the problems found, empty if the
+	 *         document is valid
+	 * @throws IOException
+	 *             if there is a problem when reading the file
+	 * @throws IllegalStateException
+	 *             if this parser is not validating
+	 */
+	public List<SAXParseException> validateFile(String aFileName)
+			throws IOException {
+
+		if (!validating) {
+			throw new IllegalStateException(
+					"validateFile needs a validating CorpusParser");
+		}
+
+		ValidationHandler validationHandler = new ValidationHandler();
+
+		try {
+			parse(aFileName, validationHandler);
+		} catch (SAXParseException e) {
+			// fatal errors have already been recorded by the handler
+		} catch (SAXException e) {
+			throw new IOException(e.getMessage());
+		}
+
+		return validationHandler.problems;
+	}
+
+	private void parse(String aFileName, DefaultHandler aHandler)
+			throws IOException, SAXException {
+
+		InputStream is = CompressedStreams.openInput(aFileName);
+
+		try {
+			this.parser.parse(new InputSource(new InputStreamReader(is,
+					"UTF-8")), aHandler);
+		} finally {
+			is.close();
+			this.parser.reset();
+		}
+	}
+
+	/**
+	 * Collects the warnings and errors of a validating parse.
+	 */
+	private static class ValidationHandler extends DefaultHandler {
+
+		private final List<SAXParseException> problems = new ArrayList<SAXParseException>();
+
+		public void warning(SAXParseException e) {
+			problems.add(e);
+		}
+
+		public void error(SAXParseException e) {
+			problems.add(e);
+		}
 
+		public void fatalError(SAXParseException e) throws SAXException {
+			problems.add(e);
+			throw e;
+		}
 	}
 
 }
@@ -0,0 +1,297 @@
+package salsa.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.Scanner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <code>CompressedStreams</code> opens files for reading and writing and
+ * transparently (de)compresses files whose name ends with ".gz". A compressed
+ * file is inflated on a separate thread which reads ahead of the consumer, so
+ * parsing does not wait for the decompression.
+ * 
+ */
+public final class CompressedStreams {
+
+	/**
+	 * The size of the chunks handed from the decompressing thread to the
+	 * reader.
+	 */
+	private static final int CHUNK_SIZE = 1 << 16;
+
+	/**
+	 * The number of chunks the decompressing thread may read ahead.
+	 */
+	private static final int READ_AHEAD_CHUNKS = 16;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private CompressedStreams() {
+	}
+
+	/**
+	 * Returns <code>true</code> if the file is read and written gzip
+	 * compressed.
+	 * 
+	 * @param fileName
+	 *            the name of the file
+	 */
+	public static boolean isCompressed(String fileName) {
+		return fileName.toLowerCase().endsWith(".gz");
+	}
+
+	/**
+	 * Opens a file for reading. The content of a compressed file is inflated
+	 * on a separate thread; errors of the decompression are thrown by the
+	 * methods of the returned stream.
+	 * 
+	 * @param fileName
+	 *            the name of the file
+	 * @return the (decompressed) content of the file
+	 * @throws FileNotFoundException
+	 *             if the file cannot be opened
+	 */
+	public static InputStream openInput(String fileName)
+			throws FileNotFoundException {
+
+		FileInputStream in = new FileInputStream(fileName);
+
+		if (!isCompressed(fileName)) {
+			return in;
+		}
+		return new ReadAheadInputStream(in, fileName);
+	}
+
+	/**
+	 * Opens a UTF-8 encoded file for reading like {@link #openInput(String)}.
+	 * 
+	 * @param fileName
+	 *            the name of the file
+	 * @return a buffered reader of the (decompressed) file
+	 * @throws FileNotFoundException
+	 *             if the file cannot be opened
+	 */
+	public static BufferedReader openReader(String fileName)
+			throws FileNotFoundException {
+
+		return new BufferedReader(new InputStreamReader(openInput(fileName),
+				UTF8), CHUNK_SIZE);
+	}
+
+	/**
+	 * Fails if a <code>Scanner</code> could not read its input. A
+	 * <code>Scanner</code> swallows the <code>IOException</code>s of its input
+	 * and reports the end of the input instead, so without this check an
+	 * error of the decompression would look like the end of a (partially read)
+	 * file. Call it after each line and after the last one.
+	 * 
+	 * @param scanner
+	 *            the scanner
+	 * @param fileName
+	 *            the name of the file the scanner reads, for the message
+	 * @throws UncheckedIOException
+	 *             if the scanner caught an <code>IOException</code>
+	 */
+	public static void checkScanner(Scanner scanner, String fileName) {
+
+		IOException error = scanner.ioException();
+		if (error != null) {
+			throw new UncheckedIOException("Could not read " + fileName + ": "
+					+ error.getMessage(), error);
+		}
+	}
+
+	/**
+	 * Opens a file for writing, which is compressed if its name ends with
+	 * ".gz". The returned stream is buffered.
+	 * 
+	 * @param fileName
+	 *            the name of the file
+	 * @return the stream to write the (uncompressed) content to
+	 * @throws IOException
+	 *             if the file cannot be created
+	 */
+	public static OutputStream openOutput(String fileName) throws IOException {
+
+		OutputStream out = new FileOutputStream(fileName);
+
+		if (isCompressed(fileName)) {
+			try {
+				out = new GZIPOutputStream(out, CHUNK_SIZE);
+			} catch (IOException e) {
+				out.close();
+				throw e;
+			}
+		}
+		return new BufferedOutputStream(out, CHUNK_SIZE);
+	}
+
+	/**
+	 * An <code>InputStream</code> whose content is inflated by a daemon thread
+	 * into a bounded queue of chunks.
+	 */
+	private static final class ReadAheadInputStream extends InputStream {
+
+		/**
+		 * Marks the end of the content, or an error of the decompression.
+		 */
+		private static final byte[] END = new byte[0];
+
+		private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<byte[]>(
+				READ_AHEAD_CHUNKS);
+
+		private final Thread inflater;
+
+		private volatile IOException error;
+
+		private volatile boolean closed;
+
+		private byte[] chunk = new byte[0];
+
+		private int position;
+
+		ReadAheadInputStream(final InputStream compressed, String fileName) {
+
+			inflater = new Thread("Inflating " + fileName) {
+				public void run() {
+					inflate(compressed);
+				}
+			};
+			inflater.setDaemon(true);
+			inflater.start();
+		}
+
+		private void inflate(InputStream compressed) {
+			try {
+				InputStream in = new GZIPInputStream(compressed, CHUNK_SIZE);
+				while (!closed) {
+					byte[] buffer = new byte[CHUNK_SIZE];
+					int length = 0;
+					int read;
+					while (length < buffer.length
+							&& (read = in.read(buffer, length, buffer.length
+									- length)) != -1) {
+						length += read;
+					}
+					if (length == 0) {
+						break;
+					}
+					if (length < buffer.length) {
+						byte[] last = new byte[length];
+						System.arraycopy(buffer, 0, last, 0, length);
+						buffer = last;
+					}
+					chunks.put(buffer);
+				}
+			} catch (IOException e) {
+				error = e;
+			} catch (InterruptedException e) {
+				// closed by the reader
+			} finally {
+				try {
+					compressed.close();
+				} catch (IOException e) {
+					if (error == null) {
+						error = e;
+					}
+				}
+			}
+			try {
+				if (!closed) {
+					chunks.put(END);
+				}
+			} catch (InterruptedException e) {
+				// closed by the reader
+			}
+		}
+
+		/**
+		 * Makes sure that the current chunk has unread bytes. An error of the
+		 * decompression is thrown by every call after the content read so far,
+		 * so a reader that skips one exception does not take the content for
+		 * complete.
+		 * 
+		 * @return <code>false</code> at the end of the content
+		 */
+		private boolean fill() throws IOException {
+
+			if (closed) {
+				throw new IOException("Stream closed");
+			}
+			if (chunk != END && position < chunk.length) {
+				return true;
+			}
+			if (chunk != END) {
+				try {
+					chunk = chunks.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException(
+							"Interrupted while waiting for the decompression");
+				}
+				position = 0;
+			}
+			if (chunk == END) {
+				if (error != null) {
+					throw new IOException(error.getMessage(), error);
+				}
+				return false;
+			}
+			return true;
+		}
+
+		public int read() throws IOException {
+
+			if (!fill()) {
+				return -1;
+			}
+			return chunk[position++] & 0xff;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException {
+
+			if (len == 0) {
+				return 0;
+			}
+			if (!fill()) {
+				return -1;
+			}
+			int length = Math.min(len, chunk.length - position);
+			System.arraycopy(chunk, position, b, off, length);
+			position += length;
+			return length;
+		}
+
+		public int available() throws IOException {
+
+			if (closed || chunk == END) {
+				return 0;
+			}
+			return chunk.length - position;
+		}
+
+		public void close() {
+
+			if (closed) {
+				return;
+			}
+			closed = true;
+			inflater.interrupt();
+			chunks.clear();
+		}
+	}
+}
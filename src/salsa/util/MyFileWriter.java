@@ -1,14 +1,12 @@
 package salsa.util;
 
 import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 
 /**
  * <code>MyFileWriter</code> writes a text to a file, using buffered writing
- * methods.
+ * methods. Files whose name ends with ".gz" are gzip compressed.
  * 
  * @author Fabian
  * 
@@ -32,9 +30,8 @@ public class MyFileWriter {
 	 */
 	public void writeToFile(String text) throws IOException {
 
-		File outputFile = new File(fileName);
 		BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
-				new FileOutputStream(outputFile)));
+				CompressedStreams.openOutput(fileName)));
 
 		out.write(text);
 